@@ -0,0 +1,71 @@
+package com.bluechilli.flutteruploader.benchmark;
+
+import com.bluechilli.flutteruploader.UploadStatus;
+import com.bluechilli.flutteruploader.plugin.CachingStreamHandler;
+import io.flutter.plugin.common.EventChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Progress events of many tasks added to a full cache with a listener attached. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CachingStreamHandlerBenchmark {
+  @Param({"100", "10000"})
+  public int tasks;
+
+  @Param({"0", "100"})
+  public long batchInterval;
+
+  private CachingStreamHandler<Map<String, Object>> handler;
+  private String[] ids;
+  private int tick = 0;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    handler = new CachingStreamHandler<>(1000, TimeUnit.DAYS.toMillis(1));
+    handler.setBatchInterval(batchInterval);
+    handler.onListen(
+        null,
+        new EventChannel.EventSink() {
+          @Override
+          public void success(Object event) {
+            blackhole.consume(event);
+          }
+
+          @Override
+          public void error(String errorCode, String errorMessage, Object errorDetails) {}
+
+          @Override
+          public void endOfStream() {}
+        });
+
+    ids = new String[tasks];
+    for (int i = 0; i < tasks; i++) {
+      ids[i] = "task-" + i;
+    }
+  }
+
+  @Benchmark
+  public void add() {
+    tick++;
+    String id = ids[tick % tasks];
+
+    Map<String, Object> args = new HashMap<>();
+    args.put("taskId", id);
+    args.put("status", UploadStatus.RUNNING);
+    args.put("progress", tick % 100);
+
+    handler.add(id, args);
+  }
+}
@@ -0,0 +1,66 @@
+package com.bluechilli.flutteruploader.benchmark;
+
+import com.bluechilli.flutteruploader.MultipartRequests;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Assembly of multipart/form-data bodies from form fields and files. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MultipartBenchmark {
+  private static final MediaType CONTENT_TYPE = MediaType.parse("image/jpeg");
+
+  @Param({"10", "100"})
+  public int fields;
+
+  @Param({"1", "10"})
+  public int files;
+
+  private Map<String, String> parameters;
+  private RequestBody fileBody;
+
+  @Setup
+  public void setUp() {
+    parameters = new LinkedHashMap<>();
+    for (int i = 0; i < fields; i++) {
+      parameters.put("field" + i, "value of field number " + i);
+    }
+    fileBody = RequestBody.create(new byte[4 * 1024], CONTENT_TYPE);
+  }
+
+  @Benchmark
+  public MultipartBody assemble() {
+    return build();
+  }
+
+  /** Assembles the body and writes it, which is where the part headers are encoded. */
+  @Benchmark
+  public long assembleAndWrite() throws IOException {
+    Buffer buffer = new Buffer();
+    build().writeTo(buffer);
+    return buffer.size();
+  }
+
+  private MultipartBody build() {
+    MultipartBody.Builder builder = MultipartRequests.prepareRequest(parameters, null);
+    for (int i = 0; i < files; i++) {
+      builder.addFormDataPart("file" + i, "photo" + i + ".jpg", fileBody);
+    }
+    return builder.build();
+  }
+}
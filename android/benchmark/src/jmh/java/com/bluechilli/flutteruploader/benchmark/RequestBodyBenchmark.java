@@ -0,0 +1,99 @@
+package com.bluechilli.flutteruploader.benchmark;
+
+import com.bluechilli.flutteruploader.CountProgressListener;
+import com.bluechilli.flutteruploader.CountingRequestBody;
+import com.bluechilli.flutteruploader.FileRequestBody;
+import com.bluechilli.flutteruploader.ProgressCoalescer;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Write throughput of the request bodies which count the bytes sent. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RequestBodyBenchmark {
+  private static final MediaType CONTENT_TYPE = MediaType.parse("application/octet-stream");
+
+  @Param({"1048576", "16777216"})
+  public int size;
+
+  private File file;
+  private CountProgressListener listener;
+
+  @Setup(Level.Trial)
+  public void setUp(Blackhole blackhole) throws IOException {
+    byte[] content = new byte[size];
+    new Random(42).nextBytes(content);
+
+    file = File.createTempFile("flutter_uploader", null);
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      sink.write(content);
+    }
+
+    listener =
+        new CountProgressListener() {
+          @Override
+          public void OnProgress(String taskId, long bytesWritten, long contentLength) {
+            blackhole.consume(bytesWritten);
+          }
+
+          @Override
+          public void OnError(String taskId, String code, String message) {
+            blackhole.consume(message);
+          }
+        };
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    file.delete();
+  }
+
+  /** The baseline without any counting. */
+  @Benchmark
+  public void plainFileBody() throws IOException {
+    write(RequestBody.create(file, CONTENT_TYPE));
+  }
+
+  /** The multipart path: a file body wrapped in a CountingSink. */
+  @Benchmark
+  public void countingRequestBody() throws IOException {
+    write(
+        new CountingRequestBody(
+            RequestBody.create(file, CONTENT_TYPE),
+            "task",
+            listener,
+            ProgressCoalescer.unthrottled()));
+  }
+
+  /** The binary path: chunked reads through a FileChannel. */
+  @Benchmark
+  public void fileRequestBody() throws IOException {
+    write(
+        new FileRequestBody(
+            file, CONTENT_TYPE, 256 * 1024, "task", listener, ProgressCoalescer.unthrottled()));
+  }
+
+  private static void write(RequestBody body) throws IOException {
+    try (BufferedSink sink = Okio.buffer(Okio.blackhole())) {
+      body.writeTo(sink);
+    }
+  }
+}
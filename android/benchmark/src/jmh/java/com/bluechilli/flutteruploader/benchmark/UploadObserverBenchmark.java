@@ -0,0 +1,135 @@
+package com.bluechilli.flutteruploader.benchmark;
+
+import androidx.work.Data;
+import androidx.work.WorkInfo;
+import com.bluechilli.flutteruploader.UploadStatus;
+import com.bluechilli.flutteruploader.plugin.StatusListener;
+import com.bluechilli.flutteruploader.plugin.UploadObserver;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * WorkManager delivers the full list of work on every change. Each invocation changes the progress
+ * of one running task in a list of mostly finished ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UploadObserverBenchmark {
+  @Param({"100", "1000", "5000"})
+  public int tasks;
+
+  private StatusListener listener;
+  private UploadObserver observer;
+  private List<WorkInfo> workInfos;
+  private int tick = 0;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    // The observer only keeps a weak reference, so the listener is held by this state.
+    listener = new ConsumingListener(blackhole);
+    observer = new UploadObserver(listener);
+
+    workInfos = new ArrayList<>(tasks);
+    Data output = new Data.Builder().putInt("statusCode", 200).build();
+    for (int i = 0; i < tasks; i++) {
+      workInfos.add(
+          i % 10 == 0
+              ? running(UUID.randomUUID(), 0)
+              : new WorkInfo(
+                  UUID.randomUUID(),
+                  WorkInfo.State.SUCCEEDED,
+                  output,
+                  Collections.emptyList(),
+                  Data.EMPTY,
+                  1));
+    }
+
+    observer.onChanged(workInfos);
+  }
+
+  @Benchmark
+  public void onChanged() {
+    tick++;
+    int index = (tick * 10) % tasks;
+    workInfos.set(index, running(workInfos.get(index).getId(), 1 + tick % 99));
+    observer.onChanged(workInfos);
+  }
+
+  private static WorkInfo running(UUID id, int progress) {
+    Data data =
+        new Data.Builder()
+            .putInt("status", UploadStatus.RUNNING)
+            .putInt("progress", progress)
+            .build();
+    return new WorkInfo(id, WorkInfo.State.RUNNING, Data.EMPTY, Collections.emptyList(), data, 0);
+  }
+
+  private static class ConsumingListener implements StatusListener {
+    private final Blackhole blackhole;
+
+    ConsumingListener(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public void onEnqueued(String id) {
+      blackhole.consume(id);
+    }
+
+    @Override
+    public void onUpdateProgress(
+        String id,
+        int status,
+        int progress,
+        long bytesSent,
+        long totalBytes,
+        long bytesPerSecond,
+        long timeRemaining) {
+      blackhole.consume(progress);
+      blackhole.consume(bytesPerSecond);
+    }
+
+    @Override
+    public void onFailed(
+        String id,
+        int status,
+        int statusCode,
+        String code,
+        String message,
+        String[] details,
+        Map<String, Long> metrics) {
+      blackhole.consume(id);
+    }
+
+    @Override
+    public void onCompleted(
+        String id,
+        int status,
+        int statusCode,
+        String response,
+        String responseFile,
+        boolean responseTruncated,
+        boolean deduplicated,
+        Map<String, String> headers,
+        Map<String, Long> metrics) {
+      blackhole.consume(id);
+    }
+
+    @Override
+    public void onWorkPruned() {}
+  }
+}
@@ -0,0 +1,86 @@
+package com.bluechilli.flutteruploader.benchmark;
+
+import android.content.Context;
+import com.bluechilli.flutteruploader.FileItem;
+import com.bluechilli.flutteruploader.RetryPolicy;
+import com.bluechilli.flutteruploader.UploadTask;
+import com.bluechilli.flutteruploader.UploadTaskStore;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The task store is written once when a task is enqueued and read every time its worker starts,
+ * including every retry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UploadTaskStoreBenchmark {
+  @Param({"1", "20"})
+  public int entries;
+
+  private File directory;
+  private UploadTaskStore store;
+  private UploadTask task;
+
+  @Setup
+  public void setUp() throws IOException {
+    Map<String, String> headers = new LinkedHashMap<>();
+    Map<String, String> parameters = new LinkedHashMap<>();
+    List<FileItem> files = new ArrayList<>();
+    for (int i = 0; i < entries; i++) {
+      headers.put("X-Header-" + i, "value-" + i);
+      parameters.put("field" + i, "value-" + i);
+      files.add(new FileItem("/data/user/0/app/cache/file" + i + ".jpg", "file" + i));
+    }
+
+    task =
+        new UploadTask(
+            "https://example.com/upload",
+            "POST",
+            files,
+            headers,
+            parameters,
+            3600,
+            false,
+            "tag",
+            true);
+    task.setRetryPolicy(RetryPolicy.withMaxRetries(3));
+
+    directory = Files.createTempDirectory("flutter_uploader").toFile();
+    store = new UploadTaskStore(new Context(directory));
+    store.save("stored", task);
+  }
+
+  @TearDown
+  public void tearDown() {
+    store.retainAll(new ArrayList<>());
+  }
+
+  @Benchmark
+  public UploadTask load() throws IOException {
+    return store.load("stored");
+  }
+
+  /** Includes the fsync of the file, as on a device. */
+  @Benchmark
+  public UploadTask save() throws IOException {
+    store.save("saved", task);
+    return task;
+  }
+}
@@ -0,0 +1,16 @@
+package android.content;
+
+import java.io.File;
+
+/** Only provides the directory which {@code UploadTaskStore} keeps its files in. */
+public class Context {
+  private final File noBackupFilesDir;
+
+  public Context(File noBackupFilesDir) {
+    this.noBackupFilesDir = noBackupFilesDir;
+  }
+
+  public File getNoBackupFilesDir() {
+    return noBackupFilesDir;
+  }
+}
@@ -0,0 +1,18 @@
+package android.net;
+
+public final class Uri {
+  private final String uriString;
+
+  private Uri(String uriString) {
+    this.uriString = uriString;
+  }
+
+  public static Uri parse(String uriString) {
+    return new Uri(uriString);
+  }
+
+  @Override
+  public String toString() {
+    return uriString;
+  }
+}
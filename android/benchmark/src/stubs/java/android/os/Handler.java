@@ -0,0 +1,16 @@
+package android.os;
+
+/** Never runs posted callbacks, benchmarks flush explicitly where needed. */
+public class Handler {
+  public Handler(Looper looper) {}
+
+  public final boolean post(Runnable r) {
+    return true;
+  }
+
+  public final boolean postDelayed(Runnable r, long delayMillis) {
+    return true;
+  }
+
+  public final void removeCallbacks(Runnable r) {}
+}
@@ -0,0 +1,9 @@
+package android.os;
+
+public final class Looper {
+  private static final Looper mainLooper = new Looper();
+
+  public static Looper getMainLooper() {
+    return mainLooper;
+  }
+}
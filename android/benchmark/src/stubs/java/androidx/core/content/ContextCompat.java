@@ -0,0 +1,10 @@
+package androidx.core.content;
+
+import android.content.Context;
+import java.io.File;
+
+public final class ContextCompat {
+  public static File getNoBackupFilesDir(Context context) {
+    return context.getNoBackupFilesDir();
+  }
+}
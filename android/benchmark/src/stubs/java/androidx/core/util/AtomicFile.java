@@ -0,0 +1,54 @@
+package androidx.core.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes through a ".new" file which replaces the base file once it is synced, like the AndroidX
+ * class, so the measured saves include the same fsync and rename.
+ */
+public class AtomicFile {
+  private final File baseName;
+  private final File newName;
+
+  public AtomicFile(File baseName) {
+    this.baseName = baseName;
+    this.newName = new File(baseName.getPath() + ".new");
+  }
+
+  public FileOutputStream startWrite() throws IOException {
+    return new FileOutputStream(newName);
+  }
+
+  public void finishWrite(FileOutputStream str) {
+    try {
+      str.getFD().sync();
+      str.close();
+    } catch (IOException e) {
+      return;
+    }
+    if (!newName.renameTo(baseName)) {
+      newName.delete();
+    }
+  }
+
+  public void failWrite(FileOutputStream str) {
+    try {
+      str.close();
+    } catch (IOException ignored) {
+    }
+    newName.delete();
+  }
+
+  public FileInputStream openRead() throws FileNotFoundException {
+    return new FileInputStream(baseName);
+  }
+
+  public void delete() {
+    baseName.delete();
+    newName.delete();
+  }
+}
@@ -0,0 +1,107 @@
+package androidx.work;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/** A map backed replacement of the WorkManager class, with the same equality semantics. */
+public final class Data {
+  public static final Data EMPTY = new Builder().build();
+
+  private final Map<String, Object> values;
+
+  Data(Map<String, Object> values) {
+    this.values = new HashMap<>(values);
+  }
+
+  public int getInt(String key, int defaultValue) {
+    Object value = values.get(key);
+    return value instanceof Integer ? (Integer) value : defaultValue;
+  }
+
+  public long getLong(String key, long defaultValue) {
+    Object value = values.get(key);
+    return value instanceof Long ? (Long) value : defaultValue;
+  }
+
+  public boolean getBoolean(String key, boolean defaultValue) {
+    Object value = values.get(key);
+    return value instanceof Boolean ? (Boolean) value : defaultValue;
+  }
+
+  public String getString(String key) {
+    Object value = values.get(key);
+    return value instanceof String ? (String) value : null;
+  }
+
+  public String[] getStringArray(String key) {
+    Object value = values.get(key);
+    return value instanceof String[] ? (String[]) value : null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Data)) {
+      return false;
+    }
+
+    Map<String, Object> other = ((Data) o).values;
+    if (!values.keySet().equals(other.keySet())) {
+      return false;
+    }
+
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      Object value = entry.getValue();
+      Object otherValue = other.get(entry.getKey());
+      if (value instanceof Object[] && otherValue instanceof Object[]) {
+        if (!Arrays.deepEquals((Object[]) value, (Object[]) otherValue)) {
+          return false;
+        }
+      } else if (value == null ? otherValue != null : !value.equals(otherValue)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return values.keySet().hashCode();
+  }
+
+  public static final class Builder {
+    private final Map<String, Object> values = new HashMap<>();
+
+    public Builder putInt(String key, int value) {
+      values.put(key, value);
+      return this;
+    }
+
+    public Builder putLong(String key, long value) {
+      values.put(key, value);
+      return this;
+    }
+
+    public Builder putBoolean(String key, boolean value) {
+      values.put(key, value);
+      return this;
+    }
+
+    public Builder putString(String key, String value) {
+      values.put(key, value);
+      return this;
+    }
+
+    public Builder putStringArray(String key, String[] value) {
+      values.put(key, value);
+      return this;
+    }
+
+    public Data build() {
+      return new Data(values);
+    }
+  }
+}
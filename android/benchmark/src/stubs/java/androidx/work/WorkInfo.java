@@ -0,0 +1,63 @@
+package androidx.work;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public final class WorkInfo {
+  public enum State {
+    ENQUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    BLOCKED,
+    CANCELLED
+  }
+
+  private final UUID id;
+  private final State state;
+  private final Data outputData;
+  private final Set<String> tags;
+  private final Data progress;
+  private final int runAttemptCount;
+
+  public WorkInfo(
+      UUID id,
+      State state,
+      Data outputData,
+      List<String> tags,
+      Data progress,
+      int runAttemptCount) {
+    this.id = id;
+    this.state = state;
+    this.outputData = outputData;
+    this.tags = new HashSet<>(tags);
+    this.progress = progress;
+    this.runAttemptCount = runAttemptCount;
+  }
+
+  public UUID getId() {
+    return id;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public Data getOutputData() {
+    return outputData;
+  }
+
+  public Set<String> getTags() {
+    return tags;
+  }
+
+  public Data getProgress() {
+    return progress;
+  }
+
+  public int getRunAttemptCount() {
+    return runAttemptCount;
+  }
+}
@@ -0,0 +1,174 @@
+package com.bluechilli.flutteruploader;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.core.util.Consumer;
+import io.flutter.FlutterInjector;
+import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.embedding.engine.dart.DartExecutor;
+import io.flutter.embedding.engine.loader.FlutterLoader;
+import io.flutter.view.FlutterCallbackInformation;
+
+/**
+ * Owns the {@link FlutterEngine} which runs the background handler registered with {@code
+ * setBackgroundHandler}.
+ *
+ * <p>The engine is started when uploads are enqueued or a worker starts, and is shared by all
+ * workers. Once no worker has used it for {@code ENGINE_IDLE_TIMEOUT_IN_SECONDS}, it is destroyed
+ * to give its memory back. All engine calls happen on the main thread.
+ *
+ * <p>The time it took to start the engine is reported to the worker whose {@link #acquire} started
+ * it, which adds it to the metrics of its upload.
+ */
+public class BackgroundEngineManager {
+  private static final String TAG = BackgroundEngineManager.class.getSimpleName();
+
+  private static BackgroundEngineManager instance = null;
+
+  private final Context context;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final long idleTimeoutMillis;
+  private final EngineStarter starter;
+  private final Runnable idleTeardown = this::stopEngine;
+
+  @Nullable private Engine engine;
+  private int activeWorkers = 0;
+
+  public static synchronized BackgroundEngineManager getInstance(Context context) {
+    if (instance == null) {
+      instance =
+          new BackgroundEngineManager(
+              context.getApplicationContext(),
+              FlutterUploaderInitializer.getEngineIdleTimeout(context) * 1000L,
+              EngineStarter.FLUTTER);
+    }
+    return instance;
+  }
+
+  BackgroundEngineManager(Context context, long idleTimeoutMillis, EngineStarter starter) {
+    this.context = context;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.starter = starter;
+  }
+
+  /** Starts the engine ahead of the workers, e.g. when uploads are enqueued. */
+  public void warmUp() {
+    handler.post(
+        () -> {
+          startEngine();
+          scheduleTeardownIfIdle();
+        });
+  }
+
+  /**
+   * Keeps the engine running until the worker calls {@link #release()}. If this call starts the
+   * engine, {@code onStarted} receives the time it took in milliseconds, on the main thread.
+   */
+  public void acquire(@Nullable Consumer<Long> onStarted) {
+    handler.post(
+        () -> {
+          activeWorkers++;
+          handler.removeCallbacks(idleTeardown);
+          long startMillis = startEngine();
+          if (startMillis >= 0 && onStarted != null) {
+            onStarted.accept(startMillis);
+          }
+        });
+  }
+
+  public void release() {
+    handler.post(
+        () -> {
+          activeWorkers = Math.max(0, activeWorkers - 1);
+          scheduleTeardownIfIdle();
+        });
+  }
+
+  private void scheduleTeardownIfIdle() {
+    if (activeWorkers == 0 && engine != null) {
+      handler.removeCallbacks(idleTeardown);
+      handler.postDelayed(idleTeardown, idleTimeoutMillis);
+    }
+  }
+
+  /** Starts the engine, returns the time it took or -1 if it was running or is not needed. */
+  private long startEngine() {
+    if (engine != null) {
+      return -1;
+    }
+
+    long start = SystemClock.elapsedRealtime();
+    engine = starter.start(context);
+    if (engine == null) {
+      return -1;
+    }
+
+    long startMillis = SystemClock.elapsedRealtime() - start;
+    Log.i(TAG, "Started background engine in " + startMillis + "ms");
+    return startMillis;
+  }
+
+  private void stopEngine() {
+    if (engine == null || activeWorkers > 0) {
+      return;
+    }
+
+    Log.d(TAG, "Destroying idle background engine.");
+
+    try {
+      engine.destroy();
+    } catch (Throwable e) {
+      Log.e(TAG, "Can not destroy engine", e);
+    }
+    engine = null;
+  }
+
+  /** A running engine. */
+  interface Engine {
+    void destroy();
+  }
+
+  /** Starts the engine which runs the background handler, replaced in tests. */
+  interface EngineStarter {
+    EngineStarter FLUTTER = BackgroundEngineManager::startFlutterEngine;
+
+    /** Returns the started engine, or null if there is no background handler. */
+    @Nullable
+    Engine start(Context context);
+  }
+
+  @Nullable
+  private static Engine startFlutterEngine(Context context) {
+    long callbackHandle = SharedPreferenceHelper.getCallbackHandle(context);
+
+    Log.d(TAG, "callbackHandle: " + callbackHandle);
+
+    if (callbackHandle == -1L) {
+      return null;
+    }
+
+    FlutterCallbackInformation callbackInfo =
+        FlutterCallbackInformation.lookupCallbackInformation(callbackHandle);
+    if (callbackInfo == null) {
+      Log.e(TAG, "Can not find background handler for callbackHandle: " + callbackHandle);
+      return null;
+    }
+
+    FlutterEngine engine = new FlutterEngine(context);
+    FlutterLoader flutterLoader = FlutterInjector.instance().flutterLoader();
+    flutterLoader.ensureInitializationComplete(context, null);
+
+    String dartBundlePath = flutterLoader.findAppBundlePath();
+
+    engine
+        .getDartExecutor()
+        .executeDartCallback(
+            new DartExecutor.DartCallback(context.getAssets(), dartBundlePath, callbackInfo));
+
+    return engine::destroy;
+  }
+}
@@ -0,0 +1,228 @@
+package com.bluechilli.flutteruploader;
+
+import androidx.annotation.Nullable;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A token bucket which limits the number of bytes sent per second.
+ *
+ * <p>There is one global limiter shared by all uploads, and one limiter per running task. Sending
+ * more bytes than the bucket holds is allowed, but the following writes wait until the debt is
+ * paid off. Large writes are taken in slices of at most the burst size, so a change of the rate or
+ * a cancelled task applies before the whole write was paid for. A rate of 0 disables the limit.
+ */
+public class BandwidthLimiter {
+  private static final long MIN_BURST_BYTES = 16 * 1024;
+
+  private static final BandwidthLimiter global = new BandwidthLimiter(0);
+  private static final ConcurrentMap<String, BandwidthLimiter> taskLimiters =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, Long> pendingTaskLimits = new ConcurrentHashMap<>();
+
+  private static long globalLimit = 0;
+  private static long foregroundLimit = 0;
+  private static boolean foreground = false;
+
+  private final Clock clock;
+  private long bytesPerSecond;
+  private double tokens = 0;
+  private long lastRefill;
+  private volatile boolean closed = false;
+
+  BandwidthLimiter(long bytesPerSecond) {
+    this(bytesPerSecond, Clock.SYSTEM);
+  }
+
+  BandwidthLimiter(long bytesPerSecond, Clock clock) {
+    this.clock = clock;
+    this.bytesPerSecond = Math.max(0, bytesPerSecond);
+    this.lastRefill = clock.nanoTime();
+  }
+
+  public static BandwidthLimiter getGlobal() {
+    return global;
+  }
+
+  /**
+   * Sets the limit shared by all uploads, and a limit which applies on top of it while the app is
+   * in the foreground.
+   */
+  public static synchronized void setGlobalLimits(
+      long bytesPerSecond, long foregroundBytesPerSecond) {
+    globalLimit = Math.max(0, bytesPerSecond);
+    foregroundLimit = Math.max(0, foregroundBytesPerSecond);
+    updateGlobalRate();
+  }
+
+  static synchronized void setForeground(boolean isForeground) {
+    foreground = isForeground;
+    updateGlobalRate();
+  }
+
+  private static void updateGlobalRate() {
+    long rate = globalLimit;
+    if (foreground && foregroundLimit > 0) {
+      rate = rate > 0 ? Math.min(rate, foregroundLimit) : foregroundLimit;
+    }
+    global.setRate(rate);
+  }
+
+  /**
+   * Sets the limit of a single task. Applies when the task starts, if it is not running yet. The
+   * pending limit is dropped by {@link #removePendingTaskLimit} once the task is cancelled.
+   */
+  public static void setTaskLimit(String taskId, long bytesPerSecond) {
+    BandwidthLimiter limiter = taskLimiters.get(taskId);
+    if (limiter == null) {
+      pendingTaskLimits.put(taskId, bytesPerSecond);
+
+      // The task may have started in the meantime, without seeing the pending limit.
+      limiter = taskLimiters.get(taskId);
+      if (limiter == null) {
+        return;
+      }
+      pendingTaskLimits.remove(taskId);
+    }
+    limiter.setRate(bytesPerSecond);
+  }
+
+  static void removePendingTaskLimit(String taskId) {
+    pendingTaskLimits.remove(taskId);
+  }
+
+  static void removePendingTaskLimits() {
+    pendingTaskLimits.clear();
+  }
+
+  /**
+   * Creates the limiter of a task which starts running. A limit set with {@link #setTaskLimit}
+   * before takes precedence over {@code bytesPerSecond}.
+   */
+  static void register(String taskId, long bytesPerSecond) {
+    Long pending = pendingTaskLimits.remove(taskId);
+    taskLimiters.putIfAbsent(
+        taskId, new BandwidthLimiter(pending != null ? pending : bytesPerSecond));
+  }
+
+  /**
+   * Removes the limiter of a task which stopped running. Writes of the task which still wait for
+   * bandwidth, on its own or on the global limiter, fail right away.
+   */
+  static void unregister(String taskId) {
+    BandwidthLimiter limiter = taskLimiters.remove(taskId);
+    if (limiter != null) {
+      limiter.close();
+      global.wakeUp();
+    }
+  }
+
+  @Nullable
+  static BandwidthLimiter getTaskLimiter(String taskId) {
+    return taskLimiters.get(taskId);
+  }
+
+  public synchronized void setRate(long bytesPerSecond) {
+    refill();
+    this.bytesPerSecond = Math.max(0, bytesPerSecond);
+    notifyAll();
+  }
+
+  synchronized long getRate() {
+    return bytesPerSecond;
+  }
+
+  /**
+   * Returns the most bytes which can be sent at once without exceeding the rate, or {@link
+   * Long#MAX_VALUE} if there is no limit.
+   */
+  public synchronized long getBurstBytes() {
+    return bytesPerSecond > 0 ? getBurst() : Long.MAX_VALUE;
+  }
+
+  /** Blocks until sending {@code byteCount} bytes does not exceed the rate anymore. */
+  public void acquire(long byteCount) throws InterruptedIOException {
+    acquire(byteCount, null);
+  }
+
+  /**
+   * Like {@link #acquire(long)}, but also gives up once the limiter of the task {@code owner} is
+   * closed.
+   */
+  public synchronized void acquire(long byteCount, @Nullable BandwidthLimiter owner)
+      throws InterruptedIOException {
+    long remaining = byteCount;
+
+    try {
+      while (remaining > 0 && bytesPerSecond > 0) {
+        checkOpen(owner);
+        refill();
+        long slice = Math.min(remaining, getBurst());
+        tokens -= slice;
+        remaining -= slice;
+
+        while (bytesPerSecond > 0 && tokens < 0) {
+          checkOpen(owner);
+          clock.await(this, Math.max(1, (long) Math.ceil(-tokens * 1000 / bytesPerSecond)));
+          refill();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+    }
+  }
+
+  private void checkOpen(@Nullable BandwidthLimiter owner) throws InterruptedIOException {
+    if (closed || (owner != null && owner.closed)) {
+      throw new InterruptedIOException("Upload was cancelled while waiting for bandwidth");
+    }
+  }
+
+  private synchronized void close() {
+    closed = true;
+    notifyAll();
+  }
+
+  private synchronized void wakeUp() {
+    notifyAll();
+  }
+
+  private long getBurst() {
+    return Math.max(MIN_BURST_BYTES, bytesPerSecond / 4);
+  }
+
+  private void refill() {
+    final long now = clock.nanoTime();
+
+    if (bytesPerSecond <= 0) {
+      tokens = 0;
+    } else {
+      tokens = Math.min(getBurst(), tokens + (now - lastRefill) * bytesPerSecond / 1e9);
+    }
+
+    lastRefill = now;
+  }
+
+  /** The time source of a limiter, replaced in tests. */
+  interface Clock {
+    Clock SYSTEM =
+        new Clock() {
+          @Override
+          public long nanoTime() {
+            return System.nanoTime();
+          }
+
+          @Override
+          public void await(Object lock, long millis) throws InterruptedException {
+            lock.wait(millis);
+          }
+        };
+
+    long nanoTime();
+
+    /** Waits at most {@code millis} for a notification of {@code lock}, whose monitor is held. */
+    void await(Object lock, long millis) throws InterruptedException;
+  }
+}
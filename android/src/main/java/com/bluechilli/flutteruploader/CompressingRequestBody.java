@@ -0,0 +1,76 @@
+package com.bluechilli.flutteruploader;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.DeflaterSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
+
+/**
+ * Compresses another {@link RequestBody} while it is written to the network.
+ *
+ * <p>Nothing is buffered on disk, so the compressed length is unknown upfront and the body is sent
+ * with chunked transfer encoding. Wrap the inner body in a {@link CountingRequestBody} to report
+ * progress in uncompressed bytes.
+ */
+public class CompressingRequestBody extends RequestBody {
+  public static final String GZIP = "gzip";
+  public static final String DEFLATE = "deflate";
+
+  private final RequestBody body;
+  private final String encoding;
+
+  public CompressingRequestBody(RequestBody body, String encoding) {
+    if (!GZIP.equals(encoding) && !DEFLATE.equals(encoding)) {
+      throw new IllegalArgumentException("Unsupported content encoding: " + encoding);
+    }
+
+    this.body = body;
+    this.encoding = encoding;
+  }
+
+  /** The value of the {@code Content-Encoding} header for this body. */
+  public String getEncoding() {
+    return encoding;
+  }
+
+  @Nullable
+  @Override
+  public MediaType contentType() {
+    return body.contentType();
+  }
+
+  @Override
+  public long contentLength() {
+    return -1;
+  }
+
+  @Override
+  public void writeTo(@NonNull BufferedSink sink) throws IOException {
+    Deflater deflater = null;
+    Sink compressingSink;
+
+    if (GZIP.equals(encoding)) {
+      compressingSink = new GzipSink(sink);
+    } else {
+      deflater = new Deflater();
+      compressingSink = new DeflaterSink(sink, deflater);
+    }
+
+    try {
+      BufferedSink bufferedSink = Okio.buffer(compressingSink);
+      body.writeTo(bufferedSink);
+      bufferedSink.close();
+    } finally {
+      if (deflater != null) {
+        deflater.end();
+      }
+    }
+  }
+}
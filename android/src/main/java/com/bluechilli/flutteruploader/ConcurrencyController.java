@@ -0,0 +1,128 @@
+package com.bluechilli.flutteruploader;
+
+import android.util.Log;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts the number of concurrent uploads to the throughput the network delivers.
+ *
+ * <p>The limit follows an AIMD scheme. It grows by one while uploads are waiting for a slot and the
+ * aggregate throughput keeps improving, and shrinks by one when the last increase did not pay off
+ * or a single upload takes much longer per byte than the fastest ones. Network errors cut the limit
+ * by 30%. With {@code minLimit == maxLimit} the limit is fixed.
+ */
+public class ConcurrencyController {
+  private static final String TAG = ConcurrencyController.class.getSimpleName();
+
+  static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(2);
+  static final long MIN_LATENCY_SAMPLE_BYTES = 64 * 1024;
+  static final double DECREASE_FACTOR = 0.7;
+  static final double THROUGHPUT_GAIN = 1.1;
+  static final double LATENCY_TOLERANCE = 3;
+  static final double BASELINE_DECAY = 1.02;
+  static final int HOLD_WINDOWS = 5;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private int limit;
+
+  private long windowStart;
+  private long windowBytes = 0;
+  private double lastThroughput = 0;
+  private boolean probing = false;
+  private int holdWindows = 0;
+  private double baselineNanosPerByte = 0;
+
+  public ConcurrencyController(int minLimit, int maxLimit, int initialLimit) {
+    this.minLimit = Math.max(1, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+    this.windowStart = System.nanoTime();
+  }
+
+  public synchronized int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Records a finished upload.
+   *
+   * @param bytes the number of bytes the upload sent
+   * @param durationNanos how long the upload ran
+   * @param networkError whether the upload failed because of the network
+   * @param saturated whether uploads are waiting for a slot
+   * @param now the current {@link System#nanoTime()}
+   */
+  public synchronized void onUploadFinished(
+      long bytes, long durationNanos, boolean networkError, boolean saturated, long now) {
+    if (minLimit == maxLimit) {
+      return;
+    }
+
+    if (networkError) {
+      setLimit((int) (limit * DECREASE_FACTOR), "network error");
+      resetWindow(now);
+      lastThroughput = 0;
+      probing = false;
+      holdWindows = HOLD_WINDOWS;
+      return;
+    }
+
+    windowBytes += bytes;
+
+    if (bytes >= MIN_LATENCY_SAMPLE_BYTES && durationNanos > 0) {
+      double nanosPerByte = (double) durationNanos / bytes;
+      if (baselineNanosPerByte == 0 || nanosPerByte < baselineNanosPerByte) {
+        baselineNanosPerByte = nanosPerByte;
+      } else {
+        // Follows the network when it becomes slower for good.
+        baselineNanosPerByte *= BASELINE_DECAY;
+
+        if (nanosPerByte > baselineNanosPerByte * LATENCY_TOLERANCE) {
+          setLimit(limit - 1, "latency");
+          resetWindow(now);
+          probing = false;
+          holdWindows = HOLD_WINDOWS;
+          return;
+        }
+      }
+    }
+
+    final long elapsed = now - windowStart;
+    if (elapsed < WINDOW_NANOS) {
+      return;
+    }
+
+    final double throughput = windowBytes * 1e9 / elapsed;
+    resetWindow(now);
+
+    if (probing && throughput < lastThroughput * THROUGHPUT_GAIN) {
+      setLimit(limit - 1, "no throughput gain");
+      probing = false;
+      holdWindows = HOLD_WINDOWS;
+    } else if (holdWindows > 0) {
+      holdWindows--;
+      probing = false;
+    } else if (saturated && limit < maxLimit) {
+      setLimit(limit + 1, "probing");
+      probing = true;
+    } else {
+      probing = false;
+    }
+
+    lastThroughput = throughput;
+  }
+
+  private void resetWindow(long now) {
+    windowStart = now;
+    windowBytes = 0;
+  }
+
+  private void setLimit(int newLimit, String reason) {
+    newLimit = Math.min(Math.max(newLimit, minLimit), maxLimit);
+    if (newLimit != limit) {
+      Log.d(TAG, "Concurrency " + limit + " -> " + newLimit + " (" + reason + ")");
+      limit = newLimit;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package com.bluechilli.flutteruploader;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * A request body which streams a {@code content://} URI, e.g. a file picked from the gallery or
+ * through the storage access framework, straight from its {@link ContentResolver}.
+ *
+ * <p>Such files do not need to be copied into the app first. The size is taken from the {@link
+ * OpenableColumns} of the provider, or from its file descriptor if the provider does not know it.
+ * If neither does, the body is sent with chunked transfer encoding.
+ */
+public class ContentUriRequestBody extends RequestBody {
+  private static final String TAG = ContentUriRequestBody.class.getSimpleName();
+  private static final String[] PROJECTION = {OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE};
+
+  private final ContentResolver resolver;
+  private final Uri uri;
+  @Nullable private final MediaType contentType;
+  private final long contentLength;
+  private final String displayName;
+
+  private ContentUriRequestBody(
+      ContentResolver resolver,
+      Uri uri,
+      @Nullable MediaType contentType,
+      long contentLength,
+      String displayName) {
+    this.resolver = resolver;
+    this.uri = uri;
+    this.contentType = contentType;
+    this.contentLength = contentLength;
+    this.displayName = displayName;
+  }
+
+  public static boolean isContentUri(@Nullable String path) {
+    return path != null && path.startsWith(ContentResolver.SCHEME_CONTENT + ":");
+  }
+
+  /**
+   * Creates a body for {@code uri}, or returns null if the content does not exist.
+   *
+   * @throws SecurityException if the app may not read {@code uri}, e.g. because it was granted
+   *     temporarily and the grant expired when the app process ended.
+   */
+  @Nullable
+  public static ContentUriRequestBody create(ContentResolver resolver, Uri uri) {
+    String displayName = null;
+    long size = -1;
+
+    try {
+      Cursor cursor = resolver.query(uri, PROJECTION, null, null, null);
+      if (cursor == null) {
+        Log.d(TAG, "Content not found: " + uri);
+        return null;
+      }
+
+      try {
+        if (!cursor.moveToFirst()) {
+          Log.d(TAG, "Content not found: " + uri);
+          return null;
+        }
+
+        int nameIndex = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+        if (nameIndex >= 0 && !cursor.isNull(nameIndex)) {
+          displayName = cursor.getString(nameIndex);
+        }
+
+        int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+        if (sizeIndex >= 0 && !cursor.isNull(sizeIndex)) {
+          size = cursor.getLong(sizeIndex);
+        }
+      } finally {
+        cursor.close();
+      }
+
+      if (size < 0) {
+        size = getStatSize(resolver, uri);
+      }
+    } catch (IllegalArgumentException | FileNotFoundException e) {
+      Log.d(TAG, "Can not access " + uri, e);
+      return null;
+    }
+
+    String type = resolver.getType(uri);
+    return new ContentUriRequestBody(
+        resolver,
+        uri,
+        MediaType.parse(type != null ? type : "application/octet-stream"),
+        size,
+        displayName != null ? displayName : String.valueOf(uri.getLastPathSegment()));
+  }
+
+  private static long getStatSize(ContentResolver resolver, Uri uri) throws FileNotFoundException {
+    ParcelFileDescriptor descriptor = resolver.openFileDescriptor(uri, "r");
+    if (descriptor == null) {
+      return -1;
+    }
+
+    try {
+      return descriptor.getStatSize();
+    } finally {
+      try {
+        descriptor.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+
+  /** The name of the content, used as the file name of multipart uploads. */
+  public String getDisplayName() {
+    return displayName;
+  }
+
+  @Nullable
+  @Override
+  public MediaType contentType() {
+    return contentType;
+  }
+
+  @Override
+  public long contentLength() {
+    return contentLength;
+  }
+
+  @Override
+  public void writeTo(@NonNull BufferedSink sink) throws IOException {
+    InputStream in;
+    try {
+      in = resolver.openInputStream(uri);
+    } catch (SecurityException e) {
+      // OkHttp does not expect runtime exceptions from a body and would crash its dispatcher.
+      throw new IOException("Permission denied for " + uri, e);
+    }
+    if (in == null) {
+      throw new FileNotFoundException("Can not open " + uri);
+    }
+
+    try (Source source = Okio.source(in)) {
+      sink.writeAll(source);
+    }
+  }
+}
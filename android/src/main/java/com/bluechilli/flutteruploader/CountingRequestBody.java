@@ -1,6 +1,7 @@
 package com.bluechilli.flutteruploader;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import java.io.IOException;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
@@ -15,12 +16,24 @@ public class CountingRequestBody extends RequestBody {
   protected final RequestBody _body;
   protected final CountProgressListener _listener;
   protected final String _taskId;
+  protected final ProgressCoalescer _coalescer;
   protected CountingSink _countingSink;
+  @Nullable private BandwidthLimiter _taskLimiter;
+  private boolean _taskLimiterResolved = false;
 
   public CountingRequestBody(RequestBody body, String taskId, CountProgressListener listener) {
+    this(body, taskId, listener, ProgressCoalescer.unthrottled());
+  }
+
+  public CountingRequestBody(
+      RequestBody body,
+      String taskId,
+      CountProgressListener listener,
+      ProgressCoalescer coalescer) {
     _body = body;
     _taskId = taskId;
     _listener = listener;
+    _coalescer = coalescer;
   }
 
   @Override
@@ -42,16 +55,56 @@ public class CountingRequestBody extends RequestBody {
 
       bufferedSink.flush();
     } catch (IOException ex) {
-      sendError(ex);
+      if (_countingSink == null || !_countingSink._failed) {
+        sendError(ex);
+      }
+      throw ex;
     }
   }
 
   public void sendProgress(long bytesWritten, long totalContentLength) {
-    if (_listener != null) {
+    if (_listener != null && _coalescer.shouldEmit(bytesWritten, totalContentLength)) {
       _listener.OnProgress(_taskId, bytesWritten, totalContentLength);
     }
   }
 
+  /**
+   * Waits until the global and the per-task {@link BandwidthLimiter} allow {@code byteCount} more
+   * bytes to be sent.
+   */
+  protected void throttle(long byteCount) throws IOException {
+    BandwidthLimiter taskLimiter = getTaskLimiter();
+    BandwidthLimiter.getGlobal().acquire(byteCount, taskLimiter);
+
+    if (taskLimiter != null) {
+      taskLimiter.acquire(byteCount);
+    }
+  }
+
+  /** Returns the most bytes which should be passed to {@link #throttle} at once. */
+  protected long getThrottleSlice() {
+    long slice = BandwidthLimiter.getGlobal().getBurstBytes();
+
+    BandwidthLimiter taskLimiter = getTaskLimiter();
+    if (taskLimiter != null) {
+      slice = Math.min(slice, taskLimiter.getBurstBytes());
+    }
+    return slice;
+  }
+
+  /**
+   * Looks up the limiter of the task once. After the task was cancelled, its closed limiter keeps
+   * failing the writes, instead of a lookup finding no limiter and waiting for the global one.
+   */
+  @Nullable
+  private BandwidthLimiter getTaskLimiter() {
+    if (!_taskLimiterResolved) {
+      _taskLimiter = BandwidthLimiter.getTaskLimiter(_taskId);
+      _taskLimiterResolved = true;
+    }
+    return _taskLimiter;
+  }
+
   public void sendError(Exception ex) {
     if (_listener != null) {
       _listener.OnError(_taskId, "upload_task_error", ex.toString());
@@ -60,6 +113,7 @@ public class CountingRequestBody extends RequestBody {
 
   protected static class CountingSink extends ForwardingSink {
     private long _bytesWritten;
+    private boolean _failed = false;
     private final CountingRequestBody _parent;
 
     public CountingSink(CountingRequestBody parent, Sink sink) {
@@ -70,6 +124,10 @@ public class CountingRequestBody extends RequestBody {
     @Override
     public void write(@NonNull Buffer source, long byteCount) throws IOException {
       try {
+        if (_parent != null) {
+          _parent.throttle(byteCount);
+        }
+
         super.write(source, byteCount);
 
         _bytesWritten += byteCount;
@@ -78,9 +136,11 @@ public class CountingRequestBody extends RequestBody {
           _parent.sendProgress(_bytesWritten, _parent.contentLength());
         }
       } catch (IOException ex) {
+        _failed = true;
         if (_parent != null) {
           _parent.sendError(ex);
         }
+        throw ex;
       }
     }
   }
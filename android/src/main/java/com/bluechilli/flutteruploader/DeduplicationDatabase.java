@@ -0,0 +1,138 @@
+package com.bluechilli.flutteruploader;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import androidx.annotation.Nullable;
+
+/**
+ * Stores the cached file hashes and the uploaded content keys of the {@link UploadDeduplicator}.
+ *
+ * <p>Both tables are bounded. Once a table holds more rows than its maximum, the least recently
+ * used ones are removed, so a long running app does not keep every upload it ever made.
+ */
+public class DeduplicationDatabase extends SQLiteOpenHelper {
+  private static final String DATABASE_NAME = "flutter_uploader_deduplication.db";
+  private static final int DATABASE_VERSION = 1;
+  private static final int DEFAULT_MAX_HASHES = 1000;
+  private static final int DEFAULT_MAX_UPLOADED = 10000;
+
+  private static final String TABLE_HASHES = "hashes";
+  private static final String TABLE_UPLOADED = "uploaded";
+
+  private static DeduplicationDatabase instance;
+
+  private final int maxHashes;
+  private final int maxUploaded;
+
+  public static synchronized DeduplicationDatabase getInstance(Context context) {
+    if (instance == null) {
+      instance =
+          new DeduplicationDatabase(
+              context.getApplicationContext(),
+              DATABASE_NAME,
+              DEFAULT_MAX_HASHES,
+              DEFAULT_MAX_UPLOADED);
+    }
+    return instance;
+  }
+
+  /** Creates a database with the given bounds. A null {@code name} keeps it in memory. */
+  DeduplicationDatabase(Context context, @Nullable String name, int maxHashes, int maxUploaded) {
+    super(context, name, null, DATABASE_VERSION);
+    this.maxHashes = maxHashes;
+    this.maxUploaded = maxUploaded;
+  }
+
+  @Override
+  public void onCreate(SQLiteDatabase db) {
+    db.execSQL(
+        "CREATE TABLE "
+            + TABLE_HASHES
+            + " (path TEXT PRIMARY KEY, size INTEGER NOT NULL, modified INTEGER NOT NULL,"
+            + " hash TEXT NOT NULL, used INTEGER NOT NULL)");
+    db.execSQL(
+        "CREATE TABLE " + TABLE_UPLOADED + " (key TEXT PRIMARY KEY, used INTEGER NOT NULL)");
+  }
+
+  @Override
+  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {}
+
+  /**
+   * Returns the cached hash of the file at {@code path}, or null if there is none or the file
+   * changed its size or modification time since.
+   */
+  @Nullable
+  public String getHash(String path, long size, long modified) {
+    SQLiteDatabase db = getWritableDatabase();
+    String hash = null;
+
+    try (Cursor cursor =
+        db.query(
+            TABLE_HASHES,
+            new String[] {"hash"},
+            "path = ? AND size = ? AND modified = ?",
+            new String[] {path, String.valueOf(size), String.valueOf(modified)},
+            null,
+            null,
+            null)) {
+      if (cursor.moveToFirst()) {
+        hash = cursor.getString(0);
+      }
+    }
+
+    if (hash != null) {
+      touch(db, TABLE_HASHES, "path", path);
+    }
+    return hash;
+  }
+
+  public void putHash(String path, long size, long modified, String hash) {
+    ContentValues values = new ContentValues();
+    values.put("path", path);
+    values.put("size", size);
+    values.put("modified", modified);
+    values.put("hash", hash);
+    values.put("used", System.currentTimeMillis());
+
+    SQLiteDatabase db = getWritableDatabase();
+    db.insertWithOnConflict(TABLE_HASHES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    trim(db, TABLE_HASHES, maxHashes);
+  }
+
+  public boolean isUploaded(String key) {
+    SQLiteDatabase db = getWritableDatabase();
+    return touch(db, TABLE_UPLOADED, "key", key);
+  }
+
+  public void markUploaded(String key) {
+    ContentValues values = new ContentValues();
+    values.put("key", key);
+    values.put("used", System.currentTimeMillis());
+
+    SQLiteDatabase db = getWritableDatabase();
+    db.insertWithOnConflict(TABLE_UPLOADED, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    trim(db, TABLE_UPLOADED, maxUploaded);
+  }
+
+  /** Marks the row as used just now, returns whether it exists. */
+  private static boolean touch(SQLiteDatabase db, String table, String column, String value) {
+    ContentValues values = new ContentValues();
+    values.put("used", System.currentTimeMillis());
+    return db.update(table, values, column + " = ?", new String[] {value}) > 0;
+  }
+
+  /** Removes the least recently used rows of {@code table} beyond the first {@code max}. */
+  private static void trim(SQLiteDatabase db, String table, int max) {
+    db.execSQL(
+        "DELETE FROM "
+            + table
+            + " WHERE rowid IN (SELECT rowid FROM "
+            + table
+            + " ORDER BY used DESC, rowid DESC LIMIT -1 OFFSET "
+            + max
+            + ")");
+  }
+}
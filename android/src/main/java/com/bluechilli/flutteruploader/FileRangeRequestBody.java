@@ -0,0 +1,49 @@
+package com.bluechilli.flutteruploader;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/** A {@link RequestBody} which sends {@code length} bytes of a file, starting at {@code offset}. */
+public class FileRangeRequestBody extends RequestBody {
+  private final File file;
+  private final long offset;
+  private final long length;
+  @Nullable private final MediaType contentType;
+
+  public FileRangeRequestBody(
+      File file, long offset, long length, @Nullable MediaType contentType) {
+    this.file = file;
+    this.offset = offset;
+    this.length = length;
+    this.contentType = contentType;
+  }
+
+  @Nullable
+  @Override
+  public MediaType contentType() {
+    return contentType;
+  }
+
+  @Override
+  public long contentLength() {
+    return length;
+  }
+
+  @Override
+  public void writeTo(@NonNull BufferedSink sink) throws IOException {
+    try (FileInputStream inputStream = new FileInputStream(file)) {
+      inputStream.getChannel().position(offset);
+
+      Source source = Okio.source(inputStream);
+      sink.write(source, length);
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package com.bluechilli.flutteruploader;
 
+import android.app.Activity;
+import android.app.Application;
 import android.content.ComponentName;
 import android.content.ContentProvider;
 import android.content.ContentValues;
@@ -20,7 +22,27 @@ public class FlutterUploaderInitializer extends ContentProvider {
 
   private static final String TAG = "UploaderInitializer";
   private static final int DEFAULT_MAX_CONCURRENT_TASKS = 3;
+  private static final int DEFAULT_ADAPTIVE_MIN_CONCURRENT_TASKS = 1;
+  private static final int DEFAULT_ADAPTIVE_MAX_CONCURRENT_TASKS = 0;
   private static final int DEFAULT_UPLOAD_CONNECTION_TIMEOUT = 3600;
+  private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+  private static final int DEFAULT_KEEP_ALIVE_DURATION = 300;
+  private static final int DEFAULT_PROGRESS_MIN_BYTES = 0;
+  private static final int DEFAULT_PROGRESS_MIN_PERCENT = 1;
+  private static final int DEFAULT_PROGRESS_MIN_INTERVAL = 250;
+  private static final int DEFAULT_RESPONSE_IN_MEMORY_THRESHOLD = 8 * 1024;
+  private static final int DEFAULT_RESPONSE_MAX_BYTES = 10 * 1024 * 1024;
+  private static final int DEFAULT_ENGINE_IDLE_TIMEOUT = 30;
+  private static final int DEFAULT_EVENT_CACHE_MAX_ENTRIES = 1000;
+  private static final int DEFAULT_EVENT_CACHE_TTL = 24 * 60 * 60;
+  private static final int DEFAULT_FILE_READ_CHUNK_SIZE = 256 * 1024;
+  private static final int DEFAULT_BANDWIDTH_LIMIT = 0;
+  private static final int DEFAULT_FOREGROUND_BANDWIDTH_LIMIT = 0;
+  private static final int DEFAULT_MAX_RETRIES = 0;
+  private static final boolean DEFAULT_ASYNC_UPLOADS = false;
+  private static final int DEFAULT_MAX_UPLOADS_IN_FLIGHT = 16;
+
+  @Nullable private static volatile Bundle metadata;
 
   @Override
   public boolean onCreate() {
@@ -30,6 +52,13 @@ public class FlutterUploaderInitializer extends ContentProvider {
         new Configuration.Builder()
             .setExecutor(Executors.newFixedThreadPool(maximumConcurrentTask))
             .build());
+
+    BandwidthLimiter.setGlobalLimits(
+        getBandwidthLimit(getContext()), getForegroundBandwidthLimit(getContext()));
+    if (getContext().getApplicationContext() instanceof Application) {
+      ((Application) getContext().getApplicationContext())
+          .registerActivityLifecycleCallbacks(new ForegroundTracker());
+    }
     return true;
   }
 
@@ -71,29 +100,137 @@ public class FlutterUploaderInitializer extends ContentProvider {
   }
 
   public static int getMaxConcurrentTaskMetadata(Context context) {
-    try {
-      ProviderInfo pi =
-          context
-              .getPackageManager()
-              .getProviderInfo(
-                  new ComponentName(
-                      context, "com.bluechilli.flutteruploader.FlutterUploaderInitializer"),
-                  PackageManager.GET_META_DATA);
-      Bundle bundle = pi.metaData;
-      int max =
-          bundle.getInt(
-              "com.bluechilli.flutteruploader.MAX_CONCURRENT_TASKS", DEFAULT_MAX_CONCURRENT_TASKS);
-      Log.d(TAG, "MAX_CONCURRENT_TASKS = " + max);
-      return max;
-    } catch (PackageManager.NameNotFoundException e) {
-      Log.e(TAG, "Failed to load meta-data, NameNotFound: " + e.getMessage());
-    } catch (NullPointerException e) {
-      Log.e(TAG, "Failed to load meta-data, NullPointer: " + e.getMessage());
+    return getIntMetadata(context, "MAX_CONCURRENT_TASKS", DEFAULT_MAX_CONCURRENT_TASKS);
+  }
+
+  /** The lower bound of adaptive concurrency. */
+  public static int getAdaptiveMinConcurrentTasks(Context context) {
+    return getIntMetadata(
+        context, "ADAPTIVE_MIN_CONCURRENT_TASKS", DEFAULT_ADAPTIVE_MIN_CONCURRENT_TASKS);
+  }
+
+  /** The upper bound of adaptive concurrency, or 0 if the number of uploads is fixed. */
+  public static int getAdaptiveMaxConcurrentTasks(Context context) {
+    return getIntMetadata(
+        context, "ADAPTIVE_MAX_CONCURRENT_TASKS", DEFAULT_ADAPTIVE_MAX_CONCURRENT_TASKS);
+  }
+
+  /** The most uploads which can ever run at the same time, adaptive or not. */
+  public static int getUploadThreadCount(Context context) {
+    return Math.max(getMaxConcurrentTaskMetadata(context), getAdaptiveMaxConcurrentTasks(context));
+  }
+
+  /**
+   * The most uploads which may run at the same time. With {@link #isAsyncUploads} this is more than
+   * the number of upload threads, since enqueued uploads do not occupy one.
+   */
+  public static int getMaxUploadsInFlight(Context context) {
+    if (!isAsyncUploads(context)) {
+      return getUploadThreadCount(context);
     }
-    return DEFAULT_MAX_CONCURRENT_TASKS;
+    return Math.max(
+        getUploadThreadCount(context),
+        getIntMetadata(context, "MAX_UPLOADS_IN_FLIGHT", DEFAULT_MAX_UPLOADS_IN_FLIGHT));
+  }
+
+  public static int getMaxConcurrentTasksPerHost(Context context) {
+    return getIntMetadata(context, "MAX_CONCURRENT_TASKS_PER_HOST", getMaxUploadsInFlight(context));
   }
 
   public static int getConnectionTimeout(Context context) {
+    return getIntMetadata(
+        context, "UPLOAD_CONNECTION_TIMEOUT_IN_SECONDS", DEFAULT_UPLOAD_CONNECTION_TIMEOUT);
+  }
+
+  public static int getMaxIdleConnections(Context context) {
+    return getIntMetadata(context, "MAX_IDLE_CONNECTIONS", DEFAULT_MAX_IDLE_CONNECTIONS);
+  }
+
+  public static int getKeepAliveDuration(Context context) {
+    return getIntMetadata(context, "KEEP_ALIVE_DURATION_IN_SECONDS", DEFAULT_KEEP_ALIVE_DURATION);
+  }
+
+  public static int getProgressMinBytes(Context context) {
+    return getIntMetadata(context, "PROGRESS_MIN_BYTES", DEFAULT_PROGRESS_MIN_BYTES);
+  }
+
+  public static int getProgressMinPercent(Context context) {
+    return getIntMetadata(context, "PROGRESS_MIN_PERCENT", DEFAULT_PROGRESS_MIN_PERCENT);
+  }
+
+  public static int getProgressMinInterval(Context context) {
+    return getIntMetadata(
+        context, "PROGRESS_MIN_INTERVAL_IN_MILLISECONDS", DEFAULT_PROGRESS_MIN_INTERVAL);
+  }
+
+  public static int getResponseInMemoryThreshold(Context context) {
+    return getIntMetadata(
+        context, "RESPONSE_IN_MEMORY_THRESHOLD_IN_BYTES", DEFAULT_RESPONSE_IN_MEMORY_THRESHOLD);
+  }
+
+  public static int getResponseMaxBytes(Context context) {
+    return getIntMetadata(context, "RESPONSE_MAX_BYTES", DEFAULT_RESPONSE_MAX_BYTES);
+  }
+
+  public static int getEngineIdleTimeout(Context context) {
+    return getIntMetadata(context, "ENGINE_IDLE_TIMEOUT_IN_SECONDS", DEFAULT_ENGINE_IDLE_TIMEOUT);
+  }
+
+  public static int getEventCacheMaxEntries(Context context) {
+    return getIntMetadata(context, "EVENT_CACHE_MAX_ENTRIES", DEFAULT_EVENT_CACHE_MAX_ENTRIES);
+  }
+
+  public static int getEventCacheTtl(Context context) {
+    return getIntMetadata(context, "EVENT_CACHE_TTL_IN_SECONDS", DEFAULT_EVENT_CACHE_TTL);
+  }
+
+  public static int getFileReadChunkSize(Context context) {
+    return getIntMetadata(context, "FILE_READ_CHUNK_SIZE_IN_BYTES", DEFAULT_FILE_READ_CHUNK_SIZE);
+  }
+
+  public static int getBandwidthLimit(Context context) {
+    return getIntMetadata(context, "BANDWIDTH_LIMIT_IN_BYTES_PER_SECOND", DEFAULT_BANDWIDTH_LIMIT);
+  }
+
+  public static int getForegroundBandwidthLimit(Context context) {
+    return getIntMetadata(
+        context,
+        "FOREGROUND_BANDWIDTH_LIMIT_IN_BYTES_PER_SECOND",
+        DEFAULT_FOREGROUND_BANDWIDTH_LIMIT);
+  }
+
+  public static int getMaxRetries(Context context) {
+    return getIntMetadata(context, "MAX_RETRIES", DEFAULT_MAX_RETRIES);
+  }
+
+  public static boolean isAsyncUploads(Context context) {
+    return getBooleanMetadata(context, "ASYNC_UPLOADS", DEFAULT_ASYNC_UPLOADS);
+  }
+
+  private static int getIntMetadata(Context context, String name, int defaultValue) {
+    return getMetadata(context).getInt("com.bluechilli.flutteruploader." + name, defaultValue);
+  }
+
+  private static boolean getBooleanMetadata(Context context, String name, boolean defaultValue) {
+    return getMetadata(context).getBoolean("com.bluechilli.flutteruploader." + name, defaultValue);
+  }
+
+  /**
+   * Returns the meta-data of this provider. It cannot change while the process runs, so it is read
+   * from the package manager only once.
+   */
+  @NonNull
+  private static Bundle getMetadata(Context context) {
+    Bundle bundle = metadata;
+    if (bundle == null) {
+      bundle = loadMetadata(context);
+      metadata = bundle;
+    }
+    return bundle;
+  }
+
+  @NonNull
+  private static Bundle loadMetadata(Context context) {
     try {
       ProviderInfo pi =
           context
@@ -102,19 +239,50 @@ public class FlutterUploaderInitializer extends ContentProvider {
                   new ComponentName(
                       context, "com.bluechilli.flutteruploader.FlutterUploaderInitializer"),
                   PackageManager.GET_META_DATA);
-      Bundle bundle = pi.metaData;
-      int max =
-          bundle.getInt(
-              "com.bluechilli.flutteruploader.UPLOAD_CONNECTION_TIMEOUT_IN_SECONDS",
-              DEFAULT_UPLOAD_CONNECTION_TIMEOUT);
-      Log.d(TAG, "UPLOAD_CONNECTION_TIMEOUT_IN_SECONDS = " + max);
-      return max;
+      if (pi.metaData != null) {
+        Log.d(TAG, "meta-data = " + pi.metaData);
+        return pi.metaData;
+      }
     } catch (PackageManager.NameNotFoundException e) {
       Log.e(TAG, "Failed to load meta-data, NameNotFound: " + e.getMessage());
     } catch (NullPointerException e) {
       Log.e(TAG, "Failed to load meta-data, NullPointer: " + e.getMessage());
     }
 
-    return DEFAULT_UPLOAD_CONNECTION_TIMEOUT;
+    return Bundle.EMPTY;
+  }
+
+  /** Switches the {@link BandwidthLimiter} to its foreground limit while an activity is started. */
+  private static class ForegroundTracker implements Application.ActivityLifecycleCallbacks {
+    private int startedActivities = 0;
+
+    @Override
+    public void onActivityStarted(@NonNull Activity activity) {
+      if (startedActivities++ == 0) {
+        BandwidthLimiter.setForeground(true);
+      }
+    }
+
+    @Override
+    public void onActivityStopped(@NonNull Activity activity) {
+      if (startedActivities > 0 && --startedActivities == 0) {
+        BandwidthLimiter.setForeground(false);
+      }
+    }
+
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle bundle) {}
+
+    @Override
+    public void onActivityResumed(@NonNull Activity activity) {}
+
+    @Override
+    public void onActivityPaused(@NonNull Activity activity) {}
+
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle bundle) {}
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {}
   }
 }
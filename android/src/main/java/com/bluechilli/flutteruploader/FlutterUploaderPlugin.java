@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /** FlutterUploaderPlugin */
 public class FlutterUploaderPlugin implements FlutterPlugin, StatusListener {
@@ -29,18 +30,20 @@ public class FlutterUploaderPlugin implements FlutterPlugin, StatusListener {
   private static final String CHANNEL_NAME = "flutter_uploader";
   private static final String PROGRESS_EVENT_CHANNEL_NAME = "flutter_uploader/events/progress";
   private static final String RESULT_EVENT_CHANNEL_NAME = "flutter_uploader/events/result";
+  private static final String METRICS_EVENT_CHANNEL_NAME = "flutter_uploader/events/metrics";
 
   private MethodChannel channel;
   private MethodCallHandlerImpl methodCallHandler;
   private UploadObserver uploadObserver;
 
   private EventChannel progressEventChannel;
-  private final CachingStreamHandler<Map<String, Object>> progressStreamHandler =
-      new CachingStreamHandler<>();
+  private CachingStreamHandler<Map<String, Object>> progressStreamHandler;
 
   private EventChannel resultEventChannel;
-  private final CachingStreamHandler<Map<String, Object>> resultStreamHandler =
-      new CachingStreamHandler<>();
+  private CachingStreamHandler<Map<String, Object>> resultStreamHandler;
+
+  private EventChannel metricsEventChannel;
+  private CachingStreamHandler<Map<String, Object>> metricsStreamHandler;
   private LiveData<List<WorkInfo>> workInfoLiveData;
 
   public static void registerWith(Registrar registrar) {
@@ -65,9 +68,21 @@ public class FlutterUploaderPlugin implements FlutterPlugin, StatusListener {
 
   private void startListening(Context context, BinaryMessenger messenger) {
     final int timeout = FlutterUploaderInitializer.getConnectionTimeout(context);
+    final int cacheMaxEntries = FlutterUploaderInitializer.getEventCacheMaxEntries(context);
+    final long cacheTtl =
+        TimeUnit.SECONDS.toMillis(FlutterUploaderInitializer.getEventCacheTtl(context));
+
+    progressStreamHandler = new CachingStreamHandler<>(cacheMaxEntries, cacheTtl);
+    resultStreamHandler = new CachingStreamHandler<>(cacheMaxEntries, cacheTtl);
+    metricsStreamHandler = new CachingStreamHandler<>(cacheMaxEntries, cacheTtl);
 
     channel = new MethodChannel(messenger, CHANNEL_NAME);
-    methodCallHandler = new MethodCallHandlerImpl(context, timeout, this);
+    Map<String, CachingStreamHandler<?>> eventCaches = new HashMap<>();
+    eventCaches.put("progress", progressStreamHandler);
+    eventCaches.put("result", resultStreamHandler);
+    eventCaches.put("metrics", metricsStreamHandler);
+    methodCallHandler =
+        new MethodCallHandlerImpl(context, timeout, this, progressStreamHandler, eventCaches);
 
     uploadObserver = new UploadObserver(this);
     workInfoLiveData =
@@ -81,6 +96,9 @@ public class FlutterUploaderPlugin implements FlutterPlugin, StatusListener {
 
     resultEventChannel = new EventChannel(messenger, RESULT_EVENT_CHANNEL_NAME);
     resultEventChannel.setStreamHandler(resultStreamHandler);
+
+    metricsEventChannel = new EventChannel(messenger, METRICS_EVENT_CHANNEL_NAME);
+    metricsEventChannel.setStreamHandler(metricsStreamHandler);
   }
 
   private void stopListening() {
@@ -101,8 +119,12 @@ public class FlutterUploaderPlugin implements FlutterPlugin, StatusListener {
     resultEventChannel.setStreamHandler(null);
     resultEventChannel = null;
 
+    metricsEventChannel.setStreamHandler(null);
+    metricsEventChannel = null;
+
     progressStreamHandler.clear();
     resultStreamHandler.clear();
+    metricsStreamHandler.clear();
   }
 
   @Override
@@ -115,13 +137,28 @@ public class FlutterUploaderPlugin implements FlutterPlugin, StatusListener {
   }
 
   @Override
-  public void onUpdateProgress(String id, int status, int progress) {
+  public void onUpdateProgress(
+      String id,
+      int status,
+      int progress,
+      long bytesSent,
+      long totalBytes,
+      long bytesPerSecond,
+      long timeRemaining) {
     final Map<String, Object> args = new HashMap<>();
     args.put("taskId", id);
     args.put("status", status);
     args.put("progress", progress);
-
-    progressStreamHandler.add(id, args);
+    args.put("bytesSent", bytesSent);
+    args.put("totalBytes", totalBytes);
+    args.put("bytesPerSecond", bytesPerSecond);
+    args.put("timeRemaining", timeRemaining);
+
+    boolean terminal =
+        status == UploadStatus.COMPLETE
+            || status == UploadStatus.FAILED
+            || status == UploadStatus.CANCELED;
+    progressStreamHandler.add(id, args, terminal);
   }
 
   @Override
@@ -131,7 +168,8 @@ public class FlutterUploaderPlugin implements FlutterPlugin, StatusListener {
       int statusCode,
       String code,
       String message,
-      @Nullable String[] details) {
+      @Nullable String[] details,
+      @Nullable Map<String, Long> metrics) {
     Map<String, Object> args = new HashMap<>();
     args.put("taskId", id);
     args.put("status", status);
@@ -143,8 +181,10 @@ public class FlutterUploaderPlugin implements FlutterPlugin, StatusListener {
         details != null
             ? new ArrayList<>(Arrays.asList(details))
             : Collections.<String>emptyList());
+    args.put("metrics", metrics);
 
-    resultStreamHandler.add(id, args);
+    resultStreamHandler.add(id, args, true);
+    addMetrics(id, metrics);
   }
 
   @Override
@@ -152,21 +192,42 @@ public class FlutterUploaderPlugin implements FlutterPlugin, StatusListener {
       String id,
       int status,
       int statusCode,
-      String response,
-      @Nullable Map<String, String> headers) {
+      @Nullable String response,
+      @Nullable String responseFile,
+      boolean responseTruncated,
+      boolean deduplicated,
+      @Nullable Map<String, String> headers,
+      @Nullable Map<String, Long> metrics) {
     Map<String, Object> args = new HashMap<>();
     args.put("taskId", id);
     args.put("status", status);
     args.put("statusCode", statusCode);
     args.put("message", response);
+    args.put("responseFile", responseFile);
+    args.put("responseTruncated", responseTruncated);
+    args.put("deduplicated", deduplicated);
     args.put("headers", headers != null ? headers : Collections.<String, Object>emptyMap());
+    args.put("metrics", metrics);
 
-    resultStreamHandler.add(id, args);
+    resultStreamHandler.add(id, args, true);
+    addMetrics(id, metrics);
+  }
+
+  private void addMetrics(String id, @Nullable Map<String, Long> metrics) {
+    if (metrics == null) {
+      return;
+    }
+
+    Map<String, Object> args = new HashMap<>(metrics);
+    args.put("taskId", id);
+
+    metricsStreamHandler.add(id, args, true);
   }
 
   @Override
   public void onWorkPruned() {
     progressStreamHandler.clear();
     resultStreamHandler.clear();
+    metricsStreamHandler.clear();
   }
 }
@@ -0,0 +1,69 @@
+package com.bluechilli.flutteruploader;
+
+import android.content.Context;
+import android.util.Log;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Process-wide registry of {@link OkHttpClient}s used by {@link UploadWorker}.
+ *
+ * <p>All clients are derived from a single base client via {@link OkHttpClient#newBuilder()}, so
+ * they share one {@link ConnectionPool} and dispatcher. Uploads to the same host can therefore
+ * reuse kept-alive connections, TLS sessions and HTTP/2 streams instead of paying for a new
+ * handshake on every task.
+ */
+public class HttpClientRegistry {
+  private static final String TAG = HttpClientRegistry.class.getSimpleName();
+
+  private static OkHttpClient baseClient = null;
+  private static final Map<Integer, OkHttpClient> clients = new HashMap<>();
+
+  /** Returns the shared client for the given timeout (in seconds). */
+  public static synchronized OkHttpClient getClient(Context context, int timeout) {
+    OkHttpClient client = clients.get(timeout);
+    if (client == null) {
+      client =
+          getBaseClient(context)
+              .newBuilder()
+              .connectTimeout((long) timeout, TimeUnit.SECONDS)
+              .writeTimeout((long) timeout, TimeUnit.SECONDS)
+              .readTimeout((long) timeout, TimeUnit.SECONDS)
+              .build();
+      clients.put(timeout, client);
+    }
+    return client;
+  }
+
+  private static OkHttpClient getBaseClient(Context context) {
+    if (baseClient == null) {
+      final int maxIdleConnections = FlutterUploaderInitializer.getMaxIdleConnections(context);
+      final int keepAliveDuration = FlutterUploaderInitializer.getKeepAliveDuration(context);
+
+      Log.d(
+          TAG,
+          "Creating connection pool, maxIdleConnections: "
+              + maxIdleConnections
+              + ", keepAliveDuration: "
+              + keepAliveDuration);
+
+      // The UploadScheduler already limits concurrent uploads, also those enqueued asynchronously.
+      Dispatcher dispatcher = new Dispatcher();
+      dispatcher.setMaxRequests(Integer.MAX_VALUE);
+      dispatcher.setMaxRequestsPerHost(Integer.MAX_VALUE);
+
+      baseClient =
+          new OkHttpClient.Builder()
+              .dispatcher(dispatcher)
+              .connectionPool(
+                  new ConnectionPool(maxIdleConnections, keepAliveDuration, TimeUnit.SECONDS))
+              .eventListenerFactory(UploadMetrics.FACTORY)
+              .build();
+    }
+    return baseClient;
+  }
+}
@@ -1,32 +1,40 @@
 package com.bluechilli.flutteruploader;
 
 import android.content.Context;
+import android.util.Log;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
+import androidx.core.util.Consumer;
 import androidx.work.BackoffPolicy;
 import androidx.work.Constraints;
 import androidx.work.Data;
 import androidx.work.NetworkType;
 import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
 import androidx.work.WorkRequest;
+import com.bluechilli.flutteruploader.plugin.CachingStreamHandler;
 import com.bluechilli.flutteruploader.plugin.StatusListener;
-import com.google.gson.Gson;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class MethodCallHandlerImpl implements MethodCallHandler {
+  private static final String TAG = MethodCallHandlerImpl.class.getSimpleName();
 
   /** The generic {@link WorkManager} tag which matches any upload. */
   public static final String FLUTTER_UPLOAD_WORK_TAG = "flutter_upload_task";
@@ -37,16 +45,30 @@ public class MethodCallHandlerImpl implements MethodCallHandler {
 
   @NonNull private final StatusListener statusListener;
 
+  @NonNull private final CachingStreamHandler<?> progressStreamHandler;
+
+  // The caches of all event channels, by the name of their stream.
+  @NonNull private final Map<String, CachingStreamHandler<?>> eventCaches;
+
   private final Executor workManagerExecutor = Executors.newSingleThreadExecutor();
   private final Executor mainExecutor;
 
   private static final List<String> VALID_HTTP_METHODS = Arrays.asList("POST", "PUT", "PATCH");
-
-  MethodCallHandlerImpl(Context context, int timeout, @NonNull StatusListener listener) {
+  private static final List<String> VALID_COMPRESSIONS =
+      Arrays.asList(CompressingRequestBody.GZIP, CompressingRequestBody.DEFLATE);
+
+  MethodCallHandlerImpl(
+      Context context,
+      int timeout,
+      @NonNull StatusListener listener,
+      @NonNull CachingStreamHandler<?> progressStreamHandler,
+      @NonNull Map<String, CachingStreamHandler<?>> eventCaches) {
     mainExecutor = ContextCompat.getMainExecutor(context);
     this.context = context;
     this.connectionTimeout = timeout;
     this.statusListener = listener;
+    this.progressStreamHandler = progressStreamHandler;
+    this.eventCaches = eventCaches;
   }
 
   @Override
@@ -56,10 +78,13 @@ public class MethodCallHandlerImpl implements MethodCallHandler {
         setBackgroundHandler(call, result);
         break;
       case "enqueue":
+      case "enqueueBinary":
+      case "enqueueResumable":
+      case "enqueueParallel":
         enqueue(call, result);
         break;
-      case "enqueueBinary":
-        enqueueBinary(call, result);
+      case "enqueueAll":
+        enqueueAll(call, result);
         break;
       case "cancel":
         cancel(call, result);
@@ -70,6 +95,15 @@ public class MethodCallHandlerImpl implements MethodCallHandler {
       case "clearUploads":
         clearUploads(call, result);
         break;
+      case "setProgressBatching":
+        setProgressBatching(call, result);
+        break;
+      case "setBandwidthLimit":
+        setBandwidthLimit(call, result);
+        break;
+      case "getEventCacheStats":
+        getEventCacheStats(call, result);
+        break;
       default:
         result.notImplemented();
         break;
@@ -86,16 +120,97 @@ public class MethodCallHandlerImpl implements MethodCallHandler {
   }
 
   private void enqueue(MethodCall call, MethodChannel.Result result) {
+    UploadTask task = parseUpload(call, result);
+    if (task != null) {
+      enqueueTask(task, result);
+    }
+  }
+
+  /**
+   * Enqueues a list of uploads in a single {@link WorkManager} transaction and replies with the
+   * list of task ids. Every entry holds the arguments of the corresponding single enqueue call,
+   * with the name of that call stored in {@code type}.
+   */
+  private void enqueueAll(MethodCall call, MethodChannel.Result result) {
+    List<Map<String, Object>> uploads = call.argument("uploads");
+
+    if (uploads == null) {
+      result.error("invalid_call", "Invalid call parameters passed", null);
+      return;
+    }
+
+    if (uploads.isEmpty()) {
+      result.success(Collections.emptyList());
+      return;
+    }
+
+    List<UploadTask> tasks = new ArrayList<>(uploads.size());
+
+    for (Map<String, Object> upload : uploads) {
+      Object type = upload.get("type");
+      UploadTask task =
+          parseUpload(new MethodCall(type instanceof String ? (String) type : "", upload), result);
+      if (task == null) {
+        return;
+      }
+
+      tasks.add(task);
+    }
+
+    enqueueTasks(tasks, result, result::success);
+  }
+
+  /** Parses the arguments of an enqueue call, reporting invalid arguments to {@code result}. */
+  @Nullable
+  private UploadTask parseUpload(MethodCall call, MethodChannel.Result result) {
+    UploadTask task;
+
+    switch (call.method) {
+      case "enqueue":
+        task = parseMultipartUpload(call, result);
+        break;
+      case "enqueueBinary":
+        task = parseBinaryUpload(call, result);
+        break;
+      case "enqueueResumable":
+        task = parseResumableUpload(call, result);
+        break;
+      case "enqueueParallel":
+        task = parseParallelUpload(call, result);
+        break;
+      default:
+        result.error("invalid_type", "Unknown upload type: " + call.method, null);
+        return null;
+    }
+
+    if (task != null) {
+      task.setPriority(UploadPriority.fromName(call.argument("priority")));
+
+      Number bandwidthLimit = call.argument("bandwidthLimit");
+      if (bandwidthLimit != null) {
+        task.setBandwidthLimit(bandwidthLimit.longValue());
+      }
+
+      task.setRetryPolicy(parseRetryPolicy(call.argument("retryPolicy")));
+    }
+
+    return task;
+  }
+
+  @Nullable
+  private UploadTask parseMultipartUpload(MethodCall call, MethodChannel.Result result) {
     String url = call.argument("url");
     String method = call.argument("method");
     List<Map<String, String>> files = call.argument("files");
+    String compression = call.argument("compression");
+    String preflight = call.argument("preflight");
     Map<String, String> parameters = call.argument("data");
     Map<String, String> headers = call.argument("headers");
     String tag = call.argument("tag");
     Boolean allowCellular = call.argument("allowCellular");
     if (allowCellular == null) {
       result.error("invalid_flag", "allowCellular must be set", null);
-      return;
+      return null;
     }
 
     if (method == null) {
@@ -104,12 +219,23 @@ public class MethodCallHandlerImpl implements MethodCallHandler {
 
     if (files == null || files.isEmpty()) {
       result.error("invalid_call", "Invalid call parameters passed", null);
-      return;
+      return null;
     }
 
     if (!VALID_HTTP_METHODS.contains(method.toUpperCase())) {
       result.error("invalid_method", "Method must be either POST | PUT | PATCH", null);
-      return;
+      return null;
+    }
+
+    if (compression != null && !VALID_COMPRESSIONS.contains(compression)) {
+      result.error("invalid_compression", "Compression must be either gzip | deflate", null);
+      return null;
+    }
+
+    if (preflight != null && !UploadPreflight.VALUES.contains(preflight)) {
+      result.error(
+          "invalid_preflight", "Preflight must be either expectContinue | head | options", null);
+      return null;
     }
 
     List<FileItem> items = new ArrayList<>();
@@ -118,45 +244,32 @@ public class MethodCallHandlerImpl implements MethodCallHandler {
       items.add(FileItem.fromJson(file));
     }
 
-    WorkRequest request =
-        buildRequest(
-            new UploadTask(
-                url,
-                method,
-                items,
-                headers,
-                parameters,
-                connectionTimeout,
-                false,
-                tag,
-                allowCellular));
+    UploadTask task =
+        new UploadTask(
+            url, method, items, headers, parameters, connectionTimeout, false, tag, allowCellular);
+    task.setCompression(compression);
+    task.setPreflight(preflight);
+    task.setDeduplicate(Boolean.TRUE.equals(call.argument("deduplicate")));
+    task.setDeduplicationScope(call.argument("deduplicationScope"));
+    applyProgressThrottle(task, call.argument("progressThrottle"));
 
-    WorkManager.getInstance(context)
-        .enqueue(request)
-        .getResult()
-        .addListener(
-            () -> {
-              String taskId = request.getId().toString();
-              mainExecutor.execute(
-                  () -> {
-                    result.success(taskId);
-                    statusListener.onUpdateProgress(taskId, UploadStatus.ENQUEUED, 0);
-                  });
-            },
-            workManagerExecutor);
+    return task;
   }
 
-  private void enqueueBinary(MethodCall call, MethodChannel.Result result) {
+  @Nullable
+  private UploadTask parseBinaryUpload(MethodCall call, MethodChannel.Result result) {
     String url = call.argument("url");
     String method = call.argument("method");
     String path = call.argument("path");
+    String compression = call.argument("compression");
+    String preflight = call.argument("preflight");
     Map<String, String> headers = call.argument("headers");
     String tag = call.argument("tag");
     Boolean allowCellular = call.argument("allowCellular");
 
     if (allowCellular == null) {
       result.error("invalid_flag", "allowCellular must be set", null);
-      return;
+      return null;
     }
 
     if (method == null) {
@@ -165,105 +278,356 @@ public class MethodCallHandlerImpl implements MethodCallHandler {
 
     if (path == null) {
       result.error("invalid_call", "Invalid call parameters passed", null);
-      return;
+      return null;
     }
 
     if (!VALID_HTTP_METHODS.contains(method.toUpperCase())) {
       result.error("invalid_method", "Method must be either POST | PUT | PATCH", null);
-      return;
+      return null;
     }
 
-    WorkRequest request =
-        buildRequest(
-            new UploadTask(
-                url,
-                method,
-                Collections.singletonList(new FileItem(path)),
-                headers,
-                Collections.emptyMap(),
-                connectionTimeout,
-                true,
-                tag,
-                allowCellular));
+    if (compression != null && !VALID_COMPRESSIONS.contains(compression)) {
+      result.error("invalid_compression", "Compression must be either gzip | deflate", null);
+      return null;
+    }
 
-    WorkManager.getInstance(context)
-        .enqueue(request)
-        .getResult()
-        .addListener(
-            () -> {
-              String taskId = request.getId().toString();
-              mainExecutor.execute(
-                  () -> {
-                    result.success(taskId);
-                    statusListener.onUpdateProgress(taskId, UploadStatus.ENQUEUED, 0);
-                  });
-            },
-            workManagerExecutor);
+    if (preflight != null && !UploadPreflight.VALUES.contains(preflight)) {
+      result.error(
+          "invalid_preflight", "Preflight must be either expectContinue | head | options", null);
+      return null;
+    }
+
+    UploadTask task =
+        new UploadTask(
+            url,
+            method,
+            Collections.singletonList(new FileItem(path)),
+            headers,
+            Collections.emptyMap(),
+            connectionTimeout,
+            true,
+            tag,
+            allowCellular);
+    task.setCompression(compression);
+    task.setPreflight(preflight);
+    task.setDeduplicate(Boolean.TRUE.equals(call.argument("deduplicate")));
+    task.setDeduplicationScope(call.argument("deduplicationScope"));
+    applyProgressThrottle(task, call.argument("progressThrottle"));
+
+    return task;
+  }
+
+  @Nullable
+  private UploadTask parseResumableUpload(MethodCall call, MethodChannel.Result result) {
+    String url = call.argument("url");
+    String path = call.argument("path");
+    Number chunkSize = call.argument("chunkSize");
+    Map<String, String> headers = call.argument("headers");
+    String tag = call.argument("tag");
+    Boolean allowCellular = call.argument("allowCellular");
+
+    if (allowCellular == null) {
+      result.error("invalid_flag", "allowCellular must be set", null);
+      return null;
+    }
+
+    if (path == null) {
+      result.error("invalid_call", "Invalid call parameters passed", null);
+      return null;
+    }
+
+    if (ContentUriRequestBody.isContentUri(path)) {
+      // Chunks are read at arbitrary offsets, which requires a file.
+      result.error("invalid_call", "content:// URIs are not supported by resumable uploads", null);
+      return null;
+    }
+
+    UploadTask task =
+        new UploadTask(
+            url,
+            "PATCH",
+            Collections.singletonList(new FileItem(path)),
+            headers,
+            Collections.emptyMap(),
+            connectionTimeout,
+            true,
+            tag,
+            allowCellular);
+    task.setResumable(chunkSize != null ? chunkSize.longValue() : 0);
+    applyProgressThrottle(task, call.argument("progressThrottle"));
+
+    return task;
+  }
+
+  @Nullable
+  private UploadTask parseParallelUpload(MethodCall call, MethodChannel.Result result) {
+    String url = call.argument("url");
+    String completeUrl = call.argument("completeUrl");
+    String path = call.argument("path");
+    Number partSize = call.argument("partSize");
+    Number maxPartsInFlight = call.argument("maxPartsInFlight");
+    Map<String, String> headers = call.argument("headers");
+    String tag = call.argument("tag");
+    Boolean allowCellular = call.argument("allowCellular");
+
+    if (allowCellular == null) {
+      result.error("invalid_flag", "allowCellular must be set", null);
+      return null;
+    }
+
+    if (path == null || completeUrl == null) {
+      result.error("invalid_call", "Invalid call parameters passed", null);
+      return null;
+    }
+
+    if (ContentUriRequestBody.isContentUri(path)) {
+      result.error("invalid_call", "content:// URIs are not supported by parallel uploads", null);
+      return null;
+    }
+
+    UploadTask task =
+        new UploadTask(
+            url,
+            "PUT",
+            Collections.singletonList(new FileItem(path)),
+            headers,
+            Collections.emptyMap(),
+            connectionTimeout,
+            true,
+            tag,
+            allowCellular);
+    task.setParallel(
+        completeUrl,
+        partSize != null ? partSize.longValue() : 0,
+        maxPartsInFlight != null ? maxPartsInFlight.intValue() : 0);
+    applyProgressThrottle(task, call.argument("progressThrottle"));
+
+    return task;
+  }
+
+  private void enqueueTask(UploadTask task, MethodChannel.Result result) {
+    enqueueTasks(
+        Collections.singletonList(task), result, taskIds -> result.success(taskIds.get(0)));
+  }
+
+  /**
+   * Writes {@code tasks} to the {@link UploadTaskStore} and enqueues them in a single {@link
+   * WorkManager} transaction. {@code onEnqueued} receives the task ids on the main thread.
+   */
+  private void enqueueTasks(
+      List<UploadTask> tasks, MethodChannel.Result result, Consumer<List<String>> onEnqueued) {
+    List<WorkRequest> requests = new ArrayList<>(tasks.size());
+    for (UploadTask task : tasks) {
+      requests.add(buildRequest(task));
+    }
+
+    // Start the background engine now, so workers do not pay for it when they start.
+    BackgroundEngineManager.getInstance(context).warmUp();
+
+    workManagerExecutor.execute(
+        () -> {
+          UploadTaskStore store = new UploadTaskStore(context);
+          List<String> taskIds = new ArrayList<>(requests.size());
+
+          try {
+            for (int i = 0; i < requests.size(); i++) {
+              String taskId = requests.get(i).getId().toString();
+              taskIds.add(taskId);
+              store.save(taskId, tasks.get(i));
+            }
+          } catch (IOException e) {
+            for (String taskId : taskIds) {
+              store.delete(taskId);
+            }
+            mainExecutor.execute(
+                () -> result.error("io_error", "Can not store upload task: " + e, null));
+            return;
+          }
+
+          WorkManager.getInstance(context)
+              .enqueue(requests)
+              .getResult()
+              .addListener(
+                  () ->
+                      mainExecutor.execute(
+                          () -> {
+                            onEnqueued.accept(taskIds);
+                            for (String taskId : taskIds) {
+                              statusListener.onUpdateProgress(
+                                  taskId, UploadStatus.ENQUEUED, 0, 0, -1, -1, -1);
+                            }
+                          }),
+                  workManagerExecutor);
+        });
   }
 
   private void cancel(MethodCall call, MethodChannel.Result result) {
     String taskId = call.argument("taskId");
+    new ResumableUploadStore(context).clear(taskId);
+    new RetryStore(context).clear(taskId);
+    BandwidthLimiter.removePendingTaskLimit(taskId);
     WorkManager.getInstance(context)
         .cancelWorkById(UUID.fromString(taskId))
         .getResult()
-        .addListener(() -> mainExecutor.execute(() -> result.success(null)), workManagerExecutor);
+        .addListener(
+            () -> {
+              new UploadTaskStore(context).delete(taskId);
+              mainExecutor.execute(() -> result.success(null));
+            },
+            workManagerExecutor);
   }
 
   private void cancelAll(MethodCall call, MethodChannel.Result result) {
+    BandwidthLimiter.removePendingTaskLimits();
     WorkManager.getInstance(context)
         .cancelAllWorkByTag(FLUTTER_UPLOAD_WORK_TAG)
         .getResult()
-        .addListener(() -> mainExecutor.execute(() -> result.success(null)), workManagerExecutor);
+        .addListener(
+            () -> {
+              pruneTaskStore();
+              mainExecutor.execute(() -> result.success(null));
+            },
+            workManagerExecutor);
   }
 
   private void clearUploads(MethodCall call, MethodChannel.Result result) {
+    final long clearedAt = System.currentTimeMillis();
+
     WorkManager.getInstance(context)
         .pruneWork()
         .getResult()
         .addListener(
             () -> {
+              pruneTaskStore();
+              ResponseSpillPolicy.deleteFiles(context, clearedAt);
               statusListener.onWorkPruned();
               mainExecutor.execute(() -> result.success(null));
             },
             workManagerExecutor);
   }
 
-  private WorkRequest buildRequest(UploadTask task) {
-    Gson gson = new Gson();
+  /** Deletes stored tasks which do not belong to unfinished work anymore. */
+  private void pruneTaskStore() {
+    List<String> taskIds = new ArrayList<>();
+
+    try {
+      for (WorkInfo info :
+          WorkManager.getInstance(context).getWorkInfosByTag(FLUTTER_UPLOAD_WORK_TAG).get()) {
+        if (!info.getState().isFinished()) {
+          taskIds.add(info.getId().toString());
+        }
+      }
+    } catch (ExecutionException | InterruptedException e) {
+      Log.w(TAG, "Can not prune upload tasks", e);
+      return;
+    }
 
-    Data.Builder dataBuilder =
-        new Data.Builder()
-            .putString(UploadWorker.ARG_URL, task.getURL())
-            .putString(UploadWorker.ARG_METHOD, task.getMethod())
-            .putInt(UploadWorker.ARG_REQUEST_TIMEOUT, task.getTimeout())
-            .putBoolean(UploadWorker.ARG_BINARY_UPLOAD, task.isBinaryUpload())
-            .putString(UploadWorker.ARG_UPLOAD_REQUEST_TAG, task.getTag());
+    new UploadTaskStore(context).retainAll(taskIds);
+    new RetryStore(context).retainAll(taskIds);
+  }
 
-    List<FileItem> files = task.getFiles();
+  private void setProgressBatching(MethodCall call, MethodChannel.Result result) {
+    Number interval = call.argument("interval");
+    progressStreamHandler.setBatchInterval(interval != null ? interval.longValue() : 0);
+    result.success(null);
+  }
 
-    String fileItemsJson = gson.toJson(files);
-    dataBuilder.putString(UploadWorker.ARG_FILES, fileItemsJson);
+  /** Replies with the number of cached events and their estimated size of every event stream. */
+  private void getEventCacheStats(MethodCall call, MethodChannel.Result result) {
+    Map<String, Object> stats = new HashMap<>();
+    for (Map.Entry<String, CachingStreamHandler<?>> entry : eventCaches.entrySet()) {
+      Map<String, Object> cache = new HashMap<>();
+      cache.put("entries", entry.getValue().size());
+      cache.put("estimatedBytes", entry.getValue().getEstimatedBytes());
+      stats.put(entry.getKey(), cache);
+    }
+    result.success(stats);
+  }
 
-    if (task.getHeaders() != null) {
-      String headersJson = gson.toJson(task.getHeaders());
-      dataBuilder.putString(UploadWorker.ARG_HEADERS, headersJson);
+  private void setBandwidthLimit(MethodCall call, MethodChannel.Result result) {
+    String taskId = call.argument("taskId");
+    Number bytesPerSecond = call.argument("bytesPerSecond");
+    long limit = bytesPerSecond != null ? bytesPerSecond.longValue() : 0;
+
+    if (taskId != null) {
+      BandwidthLimiter.setTaskLimit(taskId, limit);
+    } else {
+      Number foregroundBytesPerSecond = call.argument("foregroundBytesPerSecond");
+      BandwidthLimiter.setGlobalLimits(
+          limit, foregroundBytesPerSecond != null ? foregroundBytesPerSecond.longValue() : 0);
     }
 
-    if (task.getParameters() != null) {
-      String parametersJson = gson.toJson(task.getParameters());
-      dataBuilder.putString(UploadWorker.ARG_DATA, parametersJson);
+    result.success(null);
+  }
+
+  private void applyProgressThrottle(UploadTask task, Map<String, Number> throttle) {
+    if (throttle == null) {
+      return;
+    }
+
+    Number minBytes = throttle.get("minBytes");
+    Number minPercent = throttle.get("minPercent");
+    Number minInterval = throttle.get("minInterval");
+
+    task.setProgressThrottle(
+        minBytes != null ? minBytes.longValue() : -1,
+        minPercent != null ? minPercent.intValue() : -1,
+        minInterval != null ? minInterval.longValue() : -1);
+  }
+
+  /** Parses the policy of an upload, or returns the default of the app if there is none. */
+  @Nullable
+  private RetryPolicy parseRetryPolicy(@Nullable Map<String, Object> policy) {
+    if (policy == null) {
+      int maxRetries = FlutterUploaderInitializer.getMaxRetries(context);
+      return maxRetries > 0 ? RetryPolicy.withMaxRetries(maxRetries) : null;
+    }
+
+    Number maxRetries = (Number) policy.get("maxRetries");
+    Number initialDelay = (Number) policy.get("initialDelay");
+    Boolean respectRetryAfter = (Boolean) policy.get("respectRetryAfter");
+    List<?> retryStatusCodes = (List<?>) policy.get("retryStatusCodes");
+
+    int[] codes = null;
+    if (retryStatusCodes != null) {
+      codes = new int[retryStatusCodes.size()];
+      for (int i = 0; i < codes.length; i++) {
+        codes[i] = ((Number) retryStatusCodes.get(i)).intValue();
+      }
     }
 
+    return new RetryPolicy(
+        maxRetries != null ? maxRetries.intValue() : 0,
+        initialDelay != null ? initialDelay.longValue() : RetryPolicy.DEFAULT_INITIAL_DELAY,
+        respectRetryAfter == null || respectRetryAfter,
+        codes);
+  }
+
+  private WorkRequest buildRequest(UploadTask task) {
+    // The task itself is kept in the UploadTaskStore, see enqueueTasks. Only what the
+    // UploadScheduler needs before the task is loaded goes into the input data.
+    Data data =
+        new Data.Builder()
+            .putBoolean(UploadWorker.ARG_TASK_STORED, true)
+            .putInt(UploadWorker.ARG_PRIORITY, task.getPriority())
+            .putString(UploadWorker.ARG_HOST, task.getUri().getHost())
+            .build();
+
     Constraints constraints =
         new Constraints.Builder()
             .setRequiredNetworkType(
                 task.isAllowCellular() ? NetworkType.CONNECTED : NetworkType.UNMETERED)
             .build();
+
+    // Retries follow the backoff of WorkManager, which is at least WorkRequest.MIN_BACKOFF_MILLIS.
+    RetryPolicy retryPolicy = task.getRetryPolicy();
+    long backoffMillis = retryPolicy != null ? retryPolicy.getInitialDelayMillis() : 5000;
+
     return new OneTimeWorkRequest.Builder(UploadWorker.class)
         .setConstraints(constraints)
         .addTag(FLUTTER_UPLOAD_WORK_TAG)
-        .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 5, TimeUnit.SECONDS)
-        .setInputData(dataBuilder.build())
+        .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, backoffMillis, TimeUnit.MILLISECONDS)
+        .setInputData(data)
         .build();
   }
 }
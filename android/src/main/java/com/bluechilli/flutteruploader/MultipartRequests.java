@@ -0,0 +1,32 @@
+package com.bluechilli.flutteruploader;
+
+import androidx.annotation.Nullable;
+import java.util.Map;
+import okhttp3.MultipartBody;
+
+/** Assembles the multipart/form-data bodies of {@link UploadWorker}. */
+public class MultipartRequests {
+
+  /** Creates a form with one part per non-null entry of {@code parameters}. */
+  public static MultipartBody.Builder prepareRequest(
+      @Nullable Map<String, String> parameters, @Nullable String boundary) {
+
+    MultipartBody.Builder requestBodyBuilder =
+        boundary != null && !boundary.isEmpty()
+            ? new MultipartBody.Builder(boundary)
+            : new MultipartBody.Builder();
+
+    requestBodyBuilder.setType(MultipartBody.FORM);
+
+    if (parameters == null) return requestBodyBuilder;
+
+    for (String key : parameters.keySet()) {
+      String parameter = parameters.get(key);
+      if (parameter != null) {
+        requestBodyBuilder.addFormDataPart(key, parameter);
+      }
+    }
+
+    return requestBodyBuilder;
+  }
+}
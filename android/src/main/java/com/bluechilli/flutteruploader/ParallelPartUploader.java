@@ -0,0 +1,257 @@
+package com.bluechilli.flutteruploader;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.google.gson.Gson;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Uploads a single file as several byte ranges in parallel, modeled on S3 multipart uploads.
+ *
+ * <p>Every part is sent as {@code PUT url?partNumber=N} with a {@code Content-Range} header, and
+ * the server is expected to answer with an {@code ETag} header. Once all parts are uploaded, the
+ * part numbers and their ETags are sent as JSON to the completion URL:
+ *
+ * <pre>{"parts": [{"partNumber": 1, "etag": "..."}, ...]}</pre>
+ *
+ * <p>An empty file has no byte range to send, so only the completion request is sent, with an empty
+ * list of parts.
+ */
+public class ParallelPartUploader {
+  private static final String TAG = ParallelPartUploader.class.getSimpleName();
+  private static final MediaType JSON_CONTENT_TYPE = MediaType.parse("application/json");
+  private static final long MAX_ERROR_BODY_SIZE = 64 * 1024;
+
+  private final Call.Factory callFactory;
+  private final String taskId;
+  private final String url;
+  private final String completeUrl;
+  private final Map<String, String> headers;
+  private final File file;
+  private final MediaType contentType;
+  private final long partSize;
+  private final int maxPartsInFlight;
+  private final CountProgressListener listener;
+  private final ProgressCoalescer coalescer;
+
+  private final List<Call> calls = new ArrayList<>();
+  private boolean isCancelled = false;
+
+  public ParallelPartUploader(
+      Call.Factory callFactory,
+      String taskId,
+      String url,
+      String completeUrl,
+      Map<String, String> headers,
+      File file,
+      MediaType contentType,
+      long partSize,
+      int maxPartsInFlight,
+      CountProgressListener listener,
+      ProgressCoalescer coalescer) {
+    this.callFactory = callFactory;
+    this.taskId = taskId;
+    this.url = url;
+    this.completeUrl = completeUrl;
+    this.headers = headers;
+    this.file = file;
+    this.contentType = contentType;
+    this.partSize = partSize;
+    this.maxPartsInFlight = Math.max(1, maxPartsInFlight);
+    this.listener = listener;
+    this.coalescer = coalescer;
+  }
+
+  /**
+   * Uploads all parts and sends the completion request.
+   *
+   * @return the response of the completion request, or the response of the first part which was
+   *     rejected by the server.
+   */
+  @NonNull
+  public Response upload() throws IOException {
+    final long length = file.length();
+    final int partCount = (int) ((length + partSize - 1) / partSize);
+
+    Log.d(TAG, "Uploading " + taskId + " in " + partCount + " parts of " + partSize + " bytes");
+
+    final String[] etags = new String[partCount];
+    final AtomicLongArray partBytes = new AtomicLongArray(partCount);
+    final AtomicLong totalBytes = new AtomicLong();
+    final AtomicReference<IOException> failure = new AtomicReference<>();
+    final AtomicReference<Response> rejected = new AtomicReference<>();
+    final Semaphore inFlight = new Semaphore(maxPartsInFlight);
+
+    try {
+      for (int i = 0; i < partCount; i++) {
+        inFlight.acquire();
+
+        if (failure.get() != null || rejected.get() != null) {
+          inFlight.release();
+          break;
+        }
+
+        final int index = i;
+        final long offset = index * partSize;
+        final long size = Math.min(partSize, length - offset);
+
+        RequestBody body =
+            new CountingRequestBody(
+                new FileRangeRequestBody(file, offset, size, contentType),
+                taskId,
+                new CountProgressListener() {
+                  @Override
+                  public void OnProgress(String taskId, long bytesWritten, long contentLength) {
+                    long previous = partBytes.getAndSet(index, bytesWritten);
+                    long total = totalBytes.addAndGet(bytesWritten - previous);
+                    synchronized (coalescer) {
+                      if (coalescer.shouldEmit(total, length)) {
+                        listener.OnProgress(taskId, total, length);
+                      }
+                    }
+                  }
+
+                  @Override
+                  public void OnError(String taskId, String code, String message) {
+                    listener.OnError(taskId, code, message);
+                  }
+                });
+
+        Request request =
+            newRequestBuilder(
+                    HttpUrl.get(url)
+                        .newBuilder()
+                        .addQueryParameter("partNumber", String.valueOf(index + 1))
+                        .build()
+                        .toString())
+                .header(
+                    "Content-Range",
+                    "bytes " + offset + "-" + (offset + size - 1) + "/" + length)
+                .put(body)
+                .build();
+
+        newCall(request)
+            .enqueue(
+                new Callback() {
+                  @Override
+                  public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    failure.compareAndSet(null, e);
+                    inFlight.release();
+                  }
+
+                  @Override
+                  public void onResponse(@NonNull Call call, @NonNull Response response) {
+                    try {
+                      if (!response.isSuccessful()) {
+                        rejected.compareAndSet(null, detach(response));
+                      } else if (response.header("ETag") == null) {
+                        failure.compareAndSet(
+                            null, new ProtocolException("Missing ETag for part " + (index + 1)));
+                      } else {
+                        etags[index] = response.header("ETag");
+                      }
+                    } catch (IOException e) {
+                      failure.compareAndSet(null, e);
+                    } finally {
+                      response.close();
+                      inFlight.release();
+                    }
+                  }
+                });
+      }
+
+      // Wait for all parts which are still in flight.
+      inFlight.acquire(maxPartsInFlight);
+    } catch (InterruptedException e) {
+      cancel();
+      throw new InterruptedIOException("Interrupted while uploading parts");
+    }
+
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+
+    if (rejected.get() != null) {
+      return rejected.get();
+    }
+
+    return complete(etags);
+  }
+
+  public synchronized void cancel() {
+    isCancelled = true;
+    for (Call call : calls) {
+      call.cancel();
+    }
+  }
+
+  private Response complete(String[] etags) throws IOException {
+    List<Map<String, Object>> parts = new ArrayList<>();
+    for (int i = 0; i < etags.length; i++) {
+      Map<String, Object> part = new HashMap<>();
+      part.put("partNumber", i + 1);
+      part.put("etag", etags[i]);
+      parts.add(part);
+    }
+
+    Map<String, Object> payload = new HashMap<>();
+    payload.put("parts", parts);
+
+    Request request =
+        newRequestBuilder(completeUrl)
+            .post(RequestBody.create(new Gson().toJson(payload), JSON_CONTENT_TYPE))
+            .build();
+
+    return newCall(request).execute();
+  }
+
+  private synchronized Call newCall(Request request) throws IOException {
+    if (isCancelled) {
+      throw new IOException("Canceled");
+    }
+
+    Call call = callFactory.newCall(request);
+    calls.add(call);
+    return call;
+  }
+
+  private Request.Builder newRequestBuilder(String url) {
+    Request.Builder builder = new Request.Builder().url(url).header("Accept", "*/*");
+
+    if (headers != null) {
+      for (String key : headers.keySet()) {
+        String header = headers.get(key);
+        if (header != null && !header.isEmpty()) {
+          builder.header(key, header);
+        }
+      }
+    }
+
+    return builder;
+  }
+
+  /** Copies a (bounded) response body, so the response can be used after the call is closed. */
+  private static Response detach(Response response) throws IOException {
+    ResponseBody body = response.peekBody(MAX_ERROR_BODY_SIZE);
+    return response.newBuilder().body(body).build();
+  }
+}
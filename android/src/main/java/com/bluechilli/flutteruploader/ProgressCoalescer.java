@@ -0,0 +1,71 @@
+package com.bluechilli.flutteruploader;
+
+/**
+ * Decides which byte count updates of a single upload are worth reporting.
+ *
+ * <p>An update is only reported once the byte delta, the percentage delta and the time since the
+ * last reported update all reach their configured minimum. The final update of an upload with a
+ * known content length is always reported, exactly once.
+ *
+ * <p>Instances are not thread-safe and are meant to be owned by a single request body.
+ */
+public class ProgressCoalescer {
+  private final long minBytes;
+  private final int minPercent;
+  private final long minIntervalNanos;
+
+  private long lastBytes = 0;
+  private int lastPercent = 0;
+  private long lastTime;
+  private boolean completed = false;
+
+  public ProgressCoalescer(long minBytes, int minPercent, long minIntervalMillis) {
+    this.minBytes = minBytes;
+    this.minPercent = minPercent;
+    this.minIntervalNanos = minIntervalMillis * 1_000_000L;
+    this.lastTime = System.nanoTime();
+  }
+
+  /** A coalescer which reports every single update. */
+  public static ProgressCoalescer unthrottled() {
+    return new ProgressCoalescer(0, 0, 0);
+  }
+
+  public boolean shouldEmit(long bytesWritten, long contentLength) {
+    if (completed) {
+      return false;
+    }
+
+    final long now = System.nanoTime();
+
+    if (contentLength > 0 && bytesWritten >= contentLength) {
+      completed = true;
+      update(bytesWritten, 100, now);
+      return true;
+    }
+
+    final int percent =
+        contentLength > 0 ? (int) Math.round(((double) bytesWritten / contentLength) * 100) : -1;
+
+    if (bytesWritten - lastBytes < minBytes) {
+      return false;
+    }
+
+    if (percent >= 0 && percent - lastPercent < minPercent) {
+      return false;
+    }
+
+    if (now - lastTime < minIntervalNanos) {
+      return false;
+    }
+
+    update(bytesWritten, percent, now);
+    return true;
+  }
+
+  private void update(long bytesWritten, int percent, long now) {
+    lastBytes = bytesWritten;
+    lastPercent = percent;
+    lastTime = now;
+  }
+}
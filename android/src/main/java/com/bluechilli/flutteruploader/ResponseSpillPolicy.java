@@ -0,0 +1,118 @@
+package com.bluechilli.flutteruploader;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Reads response bodies without holding large responses in memory.
+ *
+ * <p>Bodies up to {@code inMemoryThreshold} bytes are returned as a string. Larger bodies are
+ * streamed into a file, which stops after {@code maxBytes} bytes and marks the result as
+ * truncated.
+ *
+ * <p>Files are written to {@link #getDirectory}. They belong to the app, which reads them after the
+ * result was delivered, possibly more than once since results are replayed to new listeners.
+ * {@link #deleteFiles} removes them once the app cleared its uploads.
+ */
+public class ResponseSpillPolicy {
+  private static final String DIRECTORY = "flutter_uploader_responses";
+
+  private final long inMemoryThreshold;
+  private final long maxBytes;
+
+  public ResponseSpillPolicy(long inMemoryThreshold, long maxBytes) {
+    this.inMemoryThreshold = inMemoryThreshold;
+    this.maxBytes = Math.max(maxBytes, inMemoryThreshold);
+  }
+
+  /** Returns the directory of response files, creating it if needed. */
+  @NonNull
+  public static File getDirectory(Context context) {
+    File directory = new File(context.getCacheDir(), DIRECTORY);
+    directory.mkdirs();
+    return directory;
+  }
+
+  /**
+   * Deletes the response files which were last written before {@code writtenBefore}, in
+   * milliseconds since the epoch. Files of uploads which finished in the meantime are kept.
+   */
+  public static void deleteFiles(Context context, long writtenBefore) {
+    File[] files = new File(context.getCacheDir(), DIRECTORY).listFiles();
+    if (files == null) {
+      return;
+    }
+
+    for (File file : files) {
+      if (file.lastModified() < writtenBefore) {
+        file.delete();
+      }
+    }
+  }
+
+  /** The body of a response, either as an inline string or as a reference to a file. */
+  public static class SpilledBody {
+    @Nullable public final String inline;
+    @Nullable public final File file;
+    public final boolean truncated;
+
+    SpilledBody(@Nullable String inline, @Nullable File file, boolean truncated) {
+      this.inline = inline;
+      this.file = file;
+      this.truncated = truncated;
+    }
+  }
+
+  /** Reads {@code body}, spilling it into a new file in {@code directory} if it is too large. */
+  @NonNull
+  public SpilledBody read(ResponseBody body, File directory) throws IOException {
+    final BufferedSource source = body.source();
+
+    if (!source.request(inMemoryThreshold + 1)) {
+      return new SpilledBody(source.readString(charset(body)), null, false);
+    }
+
+    File file = File.createTempFile("flutter_uploader", null, directory);
+    long remaining = maxBytes;
+
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      while (remaining > 0) {
+        long read = source.read(sink.getBuffer(), Math.min(remaining, 8192));
+        if (read == -1) {
+          return new SpilledBody(null, file, false);
+        }
+        remaining -= read;
+        sink.emitCompleteSegments();
+      }
+    }
+
+    return new SpilledBody(null, file, !source.exhausted());
+  }
+
+  /** Reads at most {@code inMemoryThreshold} bytes of {@code body} into a string. */
+  @NonNull
+  public SpilledBody readInline(ResponseBody body) throws IOException {
+    final BufferedSource source = body.source();
+    final boolean truncated = source.request(inMemoryThreshold + 1);
+    final long size = Math.min(source.getBuffer().size(), inMemoryThreshold);
+
+    return new SpilledBody(source.getBuffer().readString(size, charset(body)), null, truncated);
+  }
+
+  private static Charset charset(ResponseBody body) {
+    MediaType contentType = body.contentType();
+    return contentType != null
+        ? contentType.charset(StandardCharsets.UTF_8)
+        : StandardCharsets.UTF_8;
+  }
+}
@@ -0,0 +1,52 @@
+package com.bluechilli.flutteruploader;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.annotation.Nullable;
+
+/**
+ * Persists the state of resumable uploads, so that a retried worker or a restarted process can
+ * continue from the last byte acknowledged by the server.
+ */
+public class ResumableUploadStore {
+  private static final String SHARED_PREFS_FILE_NAME = "flutter_uploader_resumable";
+  private static final String UPLOAD_URL_KEY_PREFIX = "url_";
+  private static final String OFFSET_KEY_PREFIX = "offset_";
+
+  private final SharedPreferences preferences;
+
+  public ResumableUploadStore(Context context) {
+    preferences = context.getSharedPreferences(SHARED_PREFS_FILE_NAME, Context.MODE_PRIVATE);
+  }
+
+  /** The upload URL returned by the server when the upload was created. */
+  @Nullable
+  public String getUploadUrl(String taskId) {
+    return preferences.getString(UPLOAD_URL_KEY_PREFIX + taskId, null);
+  }
+
+  /** The last offset acknowledged by the server. */
+  public long getOffset(String taskId) {
+    return preferences.getLong(OFFSET_KEY_PREFIX + taskId, 0);
+  }
+
+  public void saveUploadUrl(String taskId, String uploadUrl) {
+    preferences
+        .edit()
+        .putString(UPLOAD_URL_KEY_PREFIX + taskId, uploadUrl)
+        .putLong(OFFSET_KEY_PREFIX + taskId, 0)
+        .apply();
+  }
+
+  public void saveOffset(String taskId, long offset) {
+    preferences.edit().putLong(OFFSET_KEY_PREFIX + taskId, offset).apply();
+  }
+
+  public void clear(String taskId) {
+    preferences
+        .edit()
+        .remove(UPLOAD_URL_KEY_PREFIX + taskId)
+        .remove(OFFSET_KEY_PREFIX + taskId)
+        .apply();
+  }
+}
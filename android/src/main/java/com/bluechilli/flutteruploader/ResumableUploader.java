@@ -0,0 +1,251 @@
+package com.bluechilli.flutteruploader;
+
+import android.util.Base64;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Uploads a single file using the <a href="https://tus.io/protocols/resumable-upload.html">tus
+ * 1.0</a> protocol.
+ *
+ * <p>The upload URL and the last offset acknowledged by the server are checkpointed in a {@link
+ * ResumableUploadStore}. A retried or restarted task first asks the server for the current offset
+ * with a HEAD request and only sends the remaining bytes.
+ */
+public class ResumableUploader {
+  private static final String TAG = ResumableUploader.class.getSimpleName();
+  private static final String TUS_VERSION = "1.0.0";
+  private static final MediaType OFFSET_CONTENT_TYPE =
+      MediaType.parse("application/offset+octet-stream");
+  // A server which keeps disagreeing with the offset or accepts no bytes would loop forever.
+  private static final int MAX_CONFLICTS = 3;
+  private static final int MAX_STALLED_REQUESTS = 3;
+
+  private final Call.Factory callFactory;
+  private final ResumableUploadStore store;
+  private final String taskId;
+  private final String url;
+  private final Map<String, String> headers;
+  private final File file;
+  private final long chunkSize;
+  private final CountProgressListener listener;
+  private final ProgressCoalescer coalescer;
+
+  public ResumableUploader(
+      Call.Factory callFactory,
+      ResumableUploadStore store,
+      String taskId,
+      String url,
+      Map<String, String> headers,
+      File file,
+      long chunkSize,
+      CountProgressListener listener,
+      ProgressCoalescer coalescer) {
+    this.callFactory = callFactory;
+    this.store = store;
+    this.taskId = taskId;
+    this.url = url;
+    this.headers = headers;
+    this.file = file;
+    this.chunkSize = chunkSize;
+    this.listener = listener;
+    this.coalescer = coalescer;
+  }
+
+  /**
+   * Sends all remaining bytes of the file.
+   *
+   * @return the response of the last request. Unsuccessful responses are returned as well, unless
+   *     they indicate that the upload can be resumed later.
+   * @throws IOException if the upload was interrupted and should be retried.
+   */
+  @NonNull
+  public Response upload() throws IOException {
+    final long length = file.length();
+
+    String uploadUrl = store.getUploadUrl(taskId);
+    long offset = -1;
+
+    if (uploadUrl != null) {
+      offset = fetchOffset(uploadUrl);
+      Log.d(
+          TAG,
+          "Resuming "
+              + taskId
+              + " at "
+              + offset
+              + " (checkpoint: "
+              + store.getOffset(taskId)
+              + ")");
+    }
+
+    if (offset < 0) {
+      Response response = create(length);
+      if (response.code() != 201) {
+        return response;
+      }
+
+      String location = response.header("Location");
+      response.close();
+
+      HttpUrl resolved = location != null ? HttpUrl.get(url).resolve(location) : null;
+      if (resolved == null) {
+        throw new ProtocolException("Missing or invalid Location header");
+      }
+
+      uploadUrl = resolved.toString();
+      offset = 0;
+      store.saveUploadUrl(taskId, uploadUrl);
+    }
+
+    int conflicts = 0;
+    int stalled = 0;
+
+    while (true) {
+      final long remaining = length - offset;
+      final long size = chunkSize > 0 ? Math.min(chunkSize, remaining) : remaining;
+
+      Response response = patch(uploadUrl, offset, size, length);
+      if (response.code() == 409) {
+        // The server disagrees with our offset, ask again and continue from there.
+        response.close();
+        if (++conflicts > MAX_CONFLICTS) {
+          throw new ProtocolException("Offset rejected " + conflicts + " times in a row");
+        }
+
+        offset = fetchOffset(uploadUrl);
+        if (offset < 0) {
+          store.clear(taskId);
+          throw new ProtocolException("Upload no longer exists on the server");
+        }
+        continue;
+      }
+
+      if (response.code() >= 500) {
+        response.close();
+        throw new IOException("Server error " + response.code() + ", resuming later");
+      }
+
+      if (!response.isSuccessful()) {
+        return response;
+      }
+
+      conflicts = 0;
+      final long previousOffset = offset;
+      offset = parseOffset(response);
+      store.saveOffset(taskId, offset);
+
+      if (offset >= length) {
+        return response;
+      }
+
+      response.close();
+
+      if (offset > previousOffset) {
+        stalled = 0;
+      } else if (++stalled >= MAX_STALLED_REQUESTS) {
+        throw new ProtocolException("No bytes accepted in " + stalled + " requests in a row");
+      }
+    }
+  }
+
+  private Response create(long length) throws IOException {
+    Request.Builder builder =
+        newRequestBuilder(url)
+            .header("Upload-Length", String.valueOf(length))
+            .header("Upload-Metadata", "filename " + encodeMetadata(file.getName()))
+            .post(RequestBody.create(new byte[0], null));
+
+    return callFactory.newCall(builder.build()).execute();
+  }
+
+  /** Returns the offset known to the server, or -1 if the upload needs to be created again. */
+  private long fetchOffset(String uploadUrl) throws IOException {
+    Request request = newRequestBuilder(uploadUrl).head().build();
+
+    try (Response response = callFactory.newCall(request).execute()) {
+      if (response.code() >= 500) {
+        throw new IOException("Server error " + response.code() + ", resuming later");
+      }
+
+      if (!response.isSuccessful()) {
+        store.clear(taskId);
+        return -1;
+      }
+
+      return parseOffset(response);
+    }
+  }
+
+  private Response patch(String uploadUrl, long offset, long size, long length)
+      throws IOException {
+    RequestBody body =
+        new CountingRequestBody(
+            new FileRangeRequestBody(file, offset, size, OFFSET_CONTENT_TYPE),
+            taskId,
+            new CountProgressListener() {
+              @Override
+              public void OnProgress(String taskId, long bytesWritten, long contentLength) {
+                if (coalescer.shouldEmit(offset + bytesWritten, length)) {
+                  listener.OnProgress(taskId, offset + bytesWritten, length);
+                }
+              }
+
+              @Override
+              public void OnError(String taskId, String code, String message) {
+                listener.OnError(taskId, code, message);
+              }
+            });
+
+    Request request =
+        newRequestBuilder(uploadUrl)
+            .header("Upload-Offset", String.valueOf(offset))
+            .patch(body)
+            .build();
+
+    return callFactory.newCall(request).execute();
+  }
+
+  private Request.Builder newRequestBuilder(String url) {
+    Request.Builder builder = new Request.Builder().url(url);
+
+    if (headers != null) {
+      for (String key : headers.keySet()) {
+        String header = headers.get(key);
+        if (header != null && !header.isEmpty()) {
+          builder.header(key, header);
+        }
+      }
+    }
+
+    return builder.header("Tus-Resumable", TUS_VERSION);
+  }
+
+  private static long parseOffset(Response response) throws ProtocolException {
+    String offset = response.header("Upload-Offset");
+    if (offset == null) {
+      throw new ProtocolException("Missing Upload-Offset header");
+    }
+
+    try {
+      return Long.parseLong(offset);
+    } catch (NumberFormatException e) {
+      throw new ProtocolException("Invalid Upload-Offset header: " + offset);
+    }
+  }
+
+  private static String encodeMetadata(String value) {
+    return Base64.encodeToString(value.getBytes(StandardCharsets.UTF_8), Base64.NO_WRAP);
+  }
+}
@@ -0,0 +1,115 @@
+package com.bluechilli.flutteruploader;
+
+import androidx.annotation.Nullable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+/**
+ * Decides whether a failed upload is worth another attempt.
+ *
+ * <p>Timeouts, dropped connections, unknown hosts (usually a network change) and the status codes
+ * 408, 429 and 5xx are transient. Everything else, e.g. other 4xx responses or certificate errors,
+ * fails the upload for good. The attempts themselves are scheduled by the exponential backoff of
+ * WorkManager, starting at the initial delay, and are postponed further if the {@code
+ * Retry-After} of the server asks for more.
+ */
+public class RetryPolicy {
+  public static final long DEFAULT_INITIAL_DELAY = 10 * 1000;
+
+  private final int maxRetries;
+  private final long initialDelayMillis;
+  private final boolean respectRetryAfter;
+  @Nullable private final int[] retryStatusCodes;
+
+  public RetryPolicy(
+      int maxRetries,
+      long initialDelayMillis,
+      boolean respectRetryAfter,
+      @Nullable int[] retryStatusCodes) {
+    this.maxRetries = Math.max(0, maxRetries);
+    this.initialDelayMillis = Math.max(0, initialDelayMillis);
+    this.respectRetryAfter = respectRetryAfter;
+    this.retryStatusCodes = retryStatusCodes;
+  }
+
+  /** A policy with the default delay, used when only the number of retries is configured. */
+  public static RetryPolicy withMaxRetries(int maxRetries) {
+    return new RetryPolicy(maxRetries, DEFAULT_INITIAL_DELAY, true, null);
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  /** The backoff delay of WorkManager before the first retry. */
+  public long getInitialDelayMillis() {
+    return initialDelayMillis;
+  }
+
+  public boolean isRespectRetryAfter() {
+    return respectRetryAfter;
+  }
+
+  /** The status codes to retry, or null for 408, 429 and 5xx. */
+  @Nullable
+  public int[] getRetryStatusCodes() {
+    return retryStatusCodes;
+  }
+
+  public boolean isTransient(int statusCode) {
+    if (retryStatusCodes == null) {
+      return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+
+    for (int code : retryStatusCodes) {
+      if (code == statusCode) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static boolean isTransient(Exception e) {
+    if (!(e instanceof IOException)) {
+      return false;
+    }
+
+    return !(e instanceof FileNotFoundException
+        || e instanceof ProtocolException
+        || e instanceof SSLHandshakeException
+        || e instanceof SSLPeerUnverifiedException);
+  }
+
+  /**
+   * Parses a {@code Retry-After} header, given either in seconds or as an HTTP date.
+   *
+   * @return the delay in milliseconds, or -1 if the header is missing or invalid
+   */
+  public static long parseRetryAfter(@Nullable String value, long nowMillis) {
+    if (value == null || value.trim().isEmpty()) {
+      return -1;
+    }
+
+    try {
+      return Math.max(0, Long.parseLong(value.trim()) * 1000);
+    } catch (NumberFormatException ignored) {
+    }
+
+    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    try {
+      Date date = format.parse(value.trim());
+      return date != null ? Math.max(0, date.getTime() - nowMillis) : -1;
+    } catch (ParseException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.bluechilli.flutteruploader;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.util.Collection;
+
+/**
+ * Persists the number of retries and resume attempts of every upload and the earliest time of its
+ * next attempt. The run attempt count of WorkManager also counts runs which were stopped or
+ * postponed, and its backoff does not know about the {@code Retry-After} of the server.
+ */
+public class RetryStore {
+  private static final String SHARED_PREFS_FILE_NAME = "flutter_uploader_retries";
+  private static final String RETRIES_KEY_PREFIX = "retries_";
+  private static final String NOT_BEFORE_KEY_PREFIX = "notBefore_";
+  private static final String RESUMES_KEY_PREFIX = "resumes_";
+
+  private final SharedPreferences preferences;
+
+  public RetryStore(Context context) {
+    preferences = context.getSharedPreferences(SHARED_PREFS_FILE_NAME, Context.MODE_PRIVATE);
+  }
+
+  public int getRetries(String taskId) {
+    return preferences.getInt(RETRIES_KEY_PREFIX + taskId, 0);
+  }
+
+  /** The earliest time of the next attempt, in milliseconds since the epoch, or 0 for any time. */
+  public long getNotBefore(String taskId) {
+    return preferences.getLong(NOT_BEFORE_KEY_PREFIX + taskId, 0);
+  }
+
+  public void recordRetry(String taskId, long notBefore) {
+    preferences
+        .edit()
+        .putInt(RETRIES_KEY_PREFIX + taskId, getRetries(taskId) + 1)
+        .putLong(NOT_BEFORE_KEY_PREFIX + taskId, notBefore)
+        .apply();
+  }
+
+  /** The number of times a resumable upload was interrupted and continued later. */
+  public int getResumes(String taskId) {
+    return preferences.getInt(RESUMES_KEY_PREFIX + taskId, 0);
+  }
+
+  public void recordResume(String taskId) {
+    preferences.edit().putInt(RESUMES_KEY_PREFIX + taskId, getResumes(taskId) + 1).apply();
+  }
+
+  public void clear(String taskId) {
+    preferences
+        .edit()
+        .remove(RETRIES_KEY_PREFIX + taskId)
+        .remove(NOT_BEFORE_KEY_PREFIX + taskId)
+        .remove(RESUMES_KEY_PREFIX + taskId)
+        .apply();
+  }
+
+  /** Clears every upload whose id is not contained in {@code taskIds}. */
+  public void retainAll(Collection<String> taskIds) {
+    SharedPreferences.Editor editor = preferences.edit();
+    for (String key : preferences.getAll().keySet()) {
+      String taskId = key.substring(key.indexOf('_') + 1);
+      if (!taskIds.contains(taskId)) {
+        editor.remove(key);
+      }
+    }
+    editor.apply();
+  }
+}
@@ -0,0 +1,70 @@
+package com.bluechilli.flutteruploader;
+
+/**
+ * Estimates the current rate of a single upload as an exponentially weighted moving average, and
+ * the time remaining at that rate.
+ *
+ * <p>Byte counts arrive at irregular intervals, as progress updates are coalesced. Each sample is
+ * therefore weighted by the time it covers, so that the influence of older samples halves every
+ * {@code halfLifeMillis} no matter how often the estimate is updated. All methods are thread-safe.
+ */
+public class ThroughputEstimator {
+  public static final long DEFAULT_HALF_LIFE = 3000;
+
+  private final double halfLifeNanos;
+
+  private long lastBytes = -1;
+  private long lastTime;
+  // Bytes per nanosecond, or negative while unknown.
+  private double rate = -1;
+
+  public ThroughputEstimator() {
+    this(DEFAULT_HALF_LIFE);
+  }
+
+  public ThroughputEstimator(long halfLifeMillis) {
+    this.halfLifeNanos = Math.max(1, halfLifeMillis) * 1_000_000.0;
+  }
+
+  /** Adds a sample of the total number of bytes sent so far, taken at {@code nowNanos}. */
+  public synchronized void update(long bytesSent, long nowNanos) {
+    if (lastBytes < 0 || bytesSent < lastBytes) {
+      // The first sample, or the upload started over.
+      lastBytes = bytesSent;
+      lastTime = nowNanos;
+      return;
+    }
+
+    final long elapsed = nowNanos - lastTime;
+    if (elapsed <= 0) {
+      return;
+    }
+
+    final double sample = (double) (bytesSent - lastBytes) / elapsed;
+    if (rate < 0) {
+      rate = sample;
+    } else {
+      final double weight = 1 - Math.pow(2, -elapsed / halfLifeNanos);
+      rate += weight * (sample - rate);
+    }
+
+    lastBytes = bytesSent;
+    lastTime = nowNanos;
+  }
+
+  /** The estimated rate in bytes per second, or -1 if it is not known yet. */
+  public synchronized long getBytesPerSecond() {
+    return rate < 0 ? -1 : Math.round(rate * 1e9);
+  }
+
+  /**
+   * The estimated time until {@code totalBytes} are sent, in milliseconds, or -1 if it is not
+   * known.
+   */
+  public synchronized long getTimeRemainingMillis(long totalBytes) {
+    if (totalBytes <= 0 || lastBytes < 0 || rate <= 0) {
+      return -1;
+    }
+    return (long) Math.ceil(Math.max(0, totalBytes - lastBytes) / rate / 1e6);
+  }
+}
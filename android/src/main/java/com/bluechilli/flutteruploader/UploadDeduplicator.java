@@ -0,0 +1,194 @@
+package com.bluechilli.flutteruploader;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.MediaStore;
+import android.provider.OpenableColumns;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.HashingSource;
+import okio.Okio;
+
+/**
+ * Remembers which content was already uploaded successfully to which destination, so that
+ * uploading the same files again can be skipped.
+ *
+ * <p>Files are identified by their SHA-256 hash. Hashes are cached by path, size and modification
+ * time, so unchanged files are only read once. The same applies to content URIs whose provider
+ * reports their size and modification time, as documents and media files do. Other content URIs
+ * are read every time. Both the cache and the uploaded content are kept in a bounded {@link
+ * DeduplicationDatabase}.
+ */
+public class UploadDeduplicator {
+  private final DeduplicationDatabase database;
+  private final ContentResolver resolver;
+
+  public UploadDeduplicator(Context context) {
+    this(context.getContentResolver(), DeduplicationDatabase.getInstance(context));
+  }
+
+  UploadDeduplicator(ContentResolver resolver, DeduplicationDatabase database) {
+    this.resolver = resolver;
+    this.database = database;
+  }
+
+  /**
+   * Returns a key which identifies the request {@code task} would send: its method, URL, form
+   * fields and the content of its files, within its deduplication scope. Files which do not exist
+   * are skipped.
+   *
+   * <p>Headers are not part of the key, as their values change without changing the upload, e.g.
+   * a refreshed {@code Authorization} token. Uploads on behalf of different users are kept apart by
+   * their {@link UploadTask#getDeduplicationScope() scope} instead.
+   */
+  @NonNull
+  public String getKey(UploadTask task) throws IOException {
+    Buffer buffer = new Buffer();
+    buffer.writeUtf8(task.getMethod()).writeByte(' ').writeUtf8(task.getURL()).writeByte('\n');
+
+    if (task.getDeduplicationScope() != null) {
+      buffer.writeUtf8("scope: ").writeUtf8(task.getDeduplicationScope()).writeByte('\n');
+    }
+
+    if (task.getFiles() != null) {
+      for (FileItem item : task.getFiles()) {
+        if (ContentUriRequestBody.isContentUri(item.getPath())) {
+          buffer.writeUtf8(String.valueOf(item.getFieldname())).writeByte('=');
+          buffer.writeUtf8(getHash(Uri.parse(item.getPath()))).writeByte('\n');
+          continue;
+        }
+
+        File file = new File(item.getPath());
+        if (file.isFile()) {
+          buffer.writeUtf8(String.valueOf(item.getFieldname())).writeByte('=');
+          buffer.writeUtf8(getHash(file)).writeByte('\n');
+        }
+      }
+    }
+
+    if (task.getParameters() != null) {
+      for (Map.Entry<String, String> entry : new TreeMap<>(task.getParameters()).entrySet()) {
+        buffer.writeUtf8(entry.getKey()).writeByte('=');
+        buffer.writeUtf8(String.valueOf(entry.getValue())).writeByte('\n');
+      }
+    }
+
+    return buffer.sha256().hex();
+  }
+
+  public boolean isUploaded(String key) {
+    return database.isUploaded(key);
+  }
+
+  public void markUploaded(String key) {
+    database.markUploaded(key);
+  }
+
+  /** Returns the hex encoded SHA-256 hash of {@code file}. */
+  @NonNull
+  String getHash(File file) throws IOException {
+    String path = file.getAbsolutePath();
+    long size = file.length();
+    long modified = file.lastModified();
+    String cached = database.getHash(path, size, modified);
+
+    if (cached != null) {
+      return cached;
+    }
+
+    String hash;
+    HashingSource source = HashingSource.sha256(Okio.source(file));
+    try (BufferedSource bufferedSource = Okio.buffer(source)) {
+      bufferedSource.readAll(Okio.blackhole());
+      hash = source.hash().hex();
+    }
+
+    database.putHash(path, size, modified, hash);
+    return hash;
+  }
+
+  /**
+   * Returns the hex encoded SHA-256 hash of the content behind {@code uri}, which is cached if the
+   * provider reports the size and modification time of the content.
+   */
+  @NonNull
+  String getHash(Uri uri) throws IOException {
+    String path = uri.toString();
+    ContentStat stat = queryStat(uri);
+    if (stat != null) {
+      String cached = database.getHash(path, stat.size, stat.modified);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    String hash = readHash(uri);
+    if (stat != null) {
+      database.putHash(path, stat.size, stat.modified, hash);
+    }
+    return hash;
+  }
+
+  /** Returns the size and modification time of {@code uri}, or null if either is unknown. */
+  @Nullable
+  private ContentStat queryStat(Uri uri) {
+    // Documents and media files name the modification time differently, so all columns are read.
+    try (Cursor cursor = resolver.query(uri, null, null, null, null)) {
+      if (cursor == null || !cursor.moveToFirst()) {
+        return null;
+      }
+
+      int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+      int modifiedIndex = cursor.getColumnIndex(DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+      if (modifiedIndex < 0) {
+        modifiedIndex = cursor.getColumnIndex(MediaStore.MediaColumns.DATE_MODIFIED);
+      }
+      if (sizeIndex < 0
+          || modifiedIndex < 0
+          || cursor.isNull(sizeIndex)
+          || cursor.isNull(modifiedIndex)) {
+        return null;
+      }
+
+      return new ContentStat(cursor.getLong(sizeIndex), cursor.getLong(modifiedIndex));
+    } catch (RuntimeException e) {
+      // Providers may reject queries they do not expect, the content is hashed without the cache.
+      return null;
+    }
+  }
+
+  @NonNull
+  private String readHash(Uri uri) throws IOException {
+    InputStream in = resolver.openInputStream(uri);
+    if (in == null) {
+      throw new FileNotFoundException("Can not open " + uri);
+    }
+
+    HashingSource source = HashingSource.sha256(Okio.source(in));
+    try (BufferedSource bufferedSource = Okio.buffer(source)) {
+      bufferedSource.readAll(Okio.blackhole());
+      return source.hash().hex();
+    }
+  }
+
+  private static class ContentStat {
+    final long size;
+    final long modified;
+
+    ContentStat(long size, long modified) {
+      this.size = size;
+      this.modified = modified;
+    }
+  }
+}
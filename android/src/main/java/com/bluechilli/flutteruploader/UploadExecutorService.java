@@ -5,13 +5,28 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class UploadExecutorService {
+  private static final int RESPONSE_THREAD_COUNT = 2;
+
   private static ExecutorService executorService = null;
+  private static ExecutorService responseExecutorService = null;
 
+  /**
+   * Runs the uploads started by the {@link UploadScheduler}. Asynchronous uploads only occupy a
+   * thread until their request is enqueued with OkHttp, whose dispatcher then sends it.
+   */
   public static ExecutorService getExecutorService(Context context) {
     if (executorService == null) {
-      final int max = FlutterUploaderInitializer.getMaxConcurrentTaskMetadata(context);
+      final int max = FlutterUploaderInitializer.getUploadThreadCount(context);
       executorService = Executors.newFixedThreadPool(max);
     }
     return executorService;
   }
+
+  /** Processes the responses of uploads which run asynchronously, see {@link UploadWorker}. */
+  public static synchronized ExecutorService getResponseExecutorService() {
+    if (responseExecutorService == null) {
+      responseExecutorService = Executors.newFixedThreadPool(RESPONSE_THREAD_COUNT);
+    }
+    return responseExecutorService;
+  }
 }
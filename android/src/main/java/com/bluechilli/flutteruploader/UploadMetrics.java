@@ -0,0 +1,214 @@
+package com.bluechilli.flutteruploader;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Network timings of all requests made by one upload task.
+ *
+ * <p>Requests tagged with an instance of this class report their {@link EventListener} events to
+ * it, see {@link #FACTORY}. Timings of requests running in parallel are summed up.
+ */
+public class UploadMetrics {
+  /** Creates a listener for calls whose request is tagged with an {@link UploadMetrics}. */
+  public static final EventListener.Factory FACTORY =
+      call -> {
+        UploadMetrics metrics = call.request().tag(UploadMetrics.class);
+        return metrics != null ? metrics.new CallListener() : EventListener.NONE;
+      };
+
+  private long dnsNanos = 0;
+  private long connectNanos = 0;
+  private long tlsNanos = 0;
+  private long requestWriteNanos = 0;
+  private long timeToFirstByteNanos = 0;
+  private long responseReadNanos = 0;
+  private long totalNanos = 0;
+  private long bytesSent = 0;
+  private long bytesReceived = 0;
+  private long requests = 0;
+  private long connectionsReused = 0;
+
+  /** Returns a copy of {@code request} which reports its timings to this instance. */
+  public Request tag(Request request) {
+    return request.newBuilder().tag(UploadMetrics.class, this).build();
+  }
+
+  public synchronized long getRequests() {
+    return requests;
+  }
+
+  /** The metrics in milliseconds, bytes and counts, as sent to Flutter. */
+  public synchronized Map<String, Long> toMap() {
+    Map<String, Long> map = new LinkedHashMap<>();
+    map.put("dns", TimeUnit.NANOSECONDS.toMillis(dnsNanos));
+    map.put("connect", TimeUnit.NANOSECONDS.toMillis(connectNanos));
+    map.put("tls", TimeUnit.NANOSECONDS.toMillis(tlsNanos));
+    map.put("requestWrite", TimeUnit.NANOSECONDS.toMillis(requestWriteNanos));
+    map.put("timeToFirstByte", TimeUnit.NANOSECONDS.toMillis(timeToFirstByteNanos));
+    map.put("responseRead", TimeUnit.NANOSECONDS.toMillis(responseReadNanos));
+    map.put("total", TimeUnit.NANOSECONDS.toMillis(totalNanos));
+    map.put("bytesSent", bytesSent);
+    map.put("bytesReceived", bytesReceived);
+    map.put("requests", requests);
+    map.put("connectionsReused", connectionsReused);
+    return map;
+  }
+
+  private synchronized void add(CallListener call) {
+    dnsNanos += call.dnsNanos;
+    connectNanos += call.connectNanos;
+    tlsNanos += call.tlsNanos;
+    requestWriteNanos += call.requestWriteNanos;
+    timeToFirstByteNanos += call.timeToFirstByteNanos;
+    responseReadNanos += call.responseReadNanos;
+    totalNanos += call.totalNanos;
+    bytesSent += call.bytesSent;
+    bytesReceived += call.bytesReceived;
+    requests++;
+    if (call.connectionReused) {
+      connectionsReused++;
+    }
+  }
+
+  /** Collects the events of a single call and adds them up once it ended. */
+  private class CallListener extends EventListener {
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestBodyStart;
+    private long requestEnd;
+    private long responseHeadersStart;
+
+    long dnsNanos = 0;
+    long connectNanos = 0;
+    long tlsNanos = 0;
+    long requestWriteNanos = 0;
+    long timeToFirstByteNanos = 0;
+    long responseReadNanos = 0;
+    long totalNanos = 0;
+    long bytesSent = 0;
+    long bytesReceived = 0;
+    boolean connected = false;
+    boolean connectionReused = false;
+
+    @Override
+    public void callStart(@NonNull Call call) {
+      callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+      dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(
+        @NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> addresses) {
+      dnsNanos += System.nanoTime() - dnsStart;
+    }
+
+    @Override
+    public void connectStart(
+        @NonNull Call call, @NonNull InetSocketAddress address, @NonNull Proxy proxy) {
+      connected = true;
+      connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+      secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+      tlsNanos += System.nanoTime() - secureConnectStart;
+    }
+
+    @Override
+    public void connectEnd(
+        @NonNull Call call,
+        @NonNull InetSocketAddress address,
+        @NonNull Proxy proxy,
+        @Nullable Protocol protocol) {
+      connectNanos += System.nanoTime() - connectStart;
+    }
+
+    @Override
+    public void connectFailed(
+        @NonNull Call call,
+        @NonNull InetSocketAddress address,
+        @NonNull Proxy proxy,
+        @Nullable Protocol protocol,
+        @NonNull IOException e) {
+      connectNanos += System.nanoTime() - connectStart;
+    }
+
+    @Override
+    public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+      connectionReused = !connected;
+    }
+
+    @Override
+    public void requestHeadersEnd(@NonNull Call call, @NonNull Request request) {
+      requestEnd = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyStart(@NonNull Call call) {
+      requestBodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyEnd(@NonNull Call call, long byteCount) {
+      requestEnd = System.nanoTime();
+      requestWriteNanos += requestEnd - requestBodyStart;
+      bytesSent += byteCount;
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+      responseHeadersStart = System.nanoTime();
+      if (requestEnd > 0) {
+        timeToFirstByteNanos += responseHeadersStart - requestEnd;
+      }
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+      responseReadNanos += System.nanoTime() - responseHeadersStart;
+      bytesReceived += byteCount;
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+      finish();
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+      finish();
+    }
+
+    private void finish() {
+      totalNanos = System.nanoTime() - callStart;
+      add(this);
+    }
+  }
+}
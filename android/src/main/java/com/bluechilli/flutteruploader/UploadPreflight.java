@@ -0,0 +1,30 @@
+package com.bluechilli.flutteruploader;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ways to learn whether the server rejects an upload before its body is sent.
+ *
+ * <p>With {@link #EXPECT_CONTINUE}, the request carries {@code Expect: 100-continue} and OkHttp
+ * only sends the body once the server answered with {@code 100 Continue}. The server has to
+ * support this, otherwise the request waits for the whole read timeout and fails without sending
+ * the body. {@link #HEAD} and {@link #OPTIONS} send a separate request without body and with the
+ * same headers first.
+ */
+public class UploadPreflight {
+  public static final String EXPECT_CONTINUE = "expectContinue";
+  public static final String HEAD = "head";
+  public static final String OPTIONS = "options";
+
+  public static final List<String> VALUES = Arrays.asList(EXPECT_CONTINUE, HEAD, OPTIONS);
+
+  /**
+   * Returns true if the response to a HEAD or OPTIONS preflight means that the upload would fail,
+   * e.g. because of an expired token (401) or an exceeded quota (403, 413). Endpoints which do not
+   * handle the preflight method itself (404, 405) or fail to (5xx) do not stop the upload.
+   */
+  public static boolean rejectsUpload(int statusCode) {
+    return statusCode >= 400 && statusCode < 500 && statusCode != 404 && statusCode != 405;
+  }
+}
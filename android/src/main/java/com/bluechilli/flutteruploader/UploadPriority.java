@@ -0,0 +1,18 @@
+package com.bluechilli.flutteruploader;
+
+/** Priority lanes of the {@link UploadScheduler}, from highest to lowest priority. */
+public class UploadPriority {
+  public static final int INTERACTIVE = 0;
+  public static final int NORMAL = 1;
+  public static final int BULK = 2;
+
+  public static int fromName(String name) {
+    if ("interactive".equals(name)) {
+      return INTERACTIVE;
+    }
+    if ("bulk".equals(name)) {
+      return BULK;
+    }
+    return NORMAL;
+  }
+}
@@ -0,0 +1,203 @@
+package com.bluechilli.flutteruploader;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decides which of the started {@link UploadWorker}s may upload next.
+ *
+ * <p>Queued jobs are kept in one lane per {@link UploadPriority}. Whenever a slot is free, the
+ * oldest job of the highest lane starts, unless its host already runs {@code
+ * maxConcurrentTasksPerHost} uploads. In that case the next job in line that targets another host
+ * starts instead. Running uploads are never interrupted.
+ *
+ * <p>Only workers which WorkManager already started are queued here. Lanes do not change the order
+ * in which WorkManager starts work, e.g. once its constraints are met.
+ *
+ * <p>The number of slots is decided by a {@link ConcurrencyController}, which adapts it to the
+ * measured throughput if adaptive concurrency is configured. With asynchronous uploads, a slot is
+ * held until the response arrived, but the upload thread only until the request was enqueued with
+ * OkHttp. The number of slots is then {@code MAX_UPLOADS_IN_FLIGHT}, independent of the threads.
+ */
+public class UploadScheduler {
+  private static final String TAG = UploadScheduler.class.getSimpleName();
+
+  private static UploadScheduler instance = null;
+
+  private final Executor executor;
+  private final ConcurrencyController controller;
+  private final int maxConcurrentTasksPerHost;
+  private final ArrayDeque<Job>[] lanes;
+  private final Map<String, Integer> runningPerHost = new HashMap<>();
+  private int running = 0;
+
+  public static synchronized UploadScheduler getInstance(Context context) {
+    if (instance == null) {
+      instance =
+          new UploadScheduler(
+              UploadExecutorService.getExecutorService(context),
+              createController(context),
+              FlutterUploaderInitializer.getMaxConcurrentTasksPerHost(context));
+    }
+    return instance;
+  }
+
+  private static ConcurrencyController createController(Context context) {
+    final int maxConcurrentTasks = FlutterUploaderInitializer.getMaxConcurrentTaskMetadata(context);
+    final int adaptiveMax = FlutterUploaderInitializer.getAdaptiveMaxConcurrentTasks(context);
+    if (adaptiveMax <= 0) {
+      final int limit =
+          FlutterUploaderInitializer.isAsyncUploads(context)
+              ? FlutterUploaderInitializer.getMaxUploadsInFlight(context)
+              : maxConcurrentTasks;
+      return new ConcurrencyController(limit, limit, limit);
+    }
+
+    return new ConcurrencyController(
+        FlutterUploaderInitializer.getAdaptiveMinConcurrentTasks(context),
+        adaptiveMax,
+        maxConcurrentTasks);
+  }
+
+  @SuppressWarnings("unchecked")
+  UploadScheduler(
+      Executor executor, ConcurrencyController controller, int maxConcurrentTasksPerHost) {
+    this.executor = executor;
+    this.controller = controller;
+    this.maxConcurrentTasksPerHost = Math.max(1, maxConcurrentTasksPerHost);
+    this.lanes = new ArrayDeque[UploadPriority.BULK + 1];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = new ArrayDeque<>();
+    }
+  }
+
+  /**
+   * Runs {@code runnable} on the upload executor once a slot for {@code priority} and {@code host}
+   * is available. A null host is not limited per host.
+   */
+  public void submit(int priority, @Nullable String host, Runnable runnable) {
+    submitAsync(
+        priority,
+        host,
+        finished -> {
+          try {
+            runnable.run();
+          } finally {
+            finished.run();
+          }
+        });
+  }
+
+  /**
+   * Like {@link #submit}, but the slot stays occupied after {@code job} returns, until it calls
+   * the given {@code finished} callback. This lets uploads wait for the network without blocking
+   * a thread of the upload executor.
+   */
+  public synchronized void submitAsync(int priority, @Nullable String host, AsyncJob job) {
+    int lane = Math.min(Math.max(priority, UploadPriority.INTERACTIVE), UploadPriority.BULK);
+    lanes[lane].add(new Job(host, job));
+    schedule();
+  }
+
+  /**
+   * Reports the outcome of an upload to the {@link ConcurrencyController}. Must be called from the
+   * job before it finishes.
+   */
+  public synchronized void onUploadFinished(long bytes, long durationNanos, boolean networkError) {
+    boolean saturated = false;
+    for (ArrayDeque<Job> lane : lanes) {
+      saturated |= !lane.isEmpty();
+    }
+
+    controller.onUploadFinished(bytes, durationNanos, networkError, saturated, System.nanoTime());
+  }
+
+  private synchronized void finished(Job job) {
+    running--;
+    if (job.host != null) {
+      int count = runningPerHost.get(job.host) - 1;
+      if (count > 0) {
+        runningPerHost.put(job.host, count);
+      } else {
+        runningPerHost.remove(job.host);
+      }
+    }
+    schedule();
+  }
+
+  private void schedule() {
+    while (running < controller.getLimit()) {
+      final Job job = poll();
+      if (job == null) {
+        return;
+      }
+
+      running++;
+      if (job.host != null) {
+        runningPerHost.put(job.host, getRunning(job.host) + 1);
+      }
+
+      Log.d(TAG, "Starting upload for " + job.host + ", running: " + running);
+
+      final AtomicBoolean done = new AtomicBoolean();
+      final Runnable finished =
+          () -> {
+            if (done.compareAndSet(false, true)) {
+              finished(job);
+            }
+          };
+
+      executor.execute(
+          () -> {
+            try {
+              job.task.run(finished);
+            } catch (RuntimeException e) {
+              finished.run();
+              throw e;
+            }
+          });
+    }
+  }
+
+  @Nullable
+  private Job poll() {
+    for (ArrayDeque<Job> lane : lanes) {
+      Iterator<Job> iterator = lane.iterator();
+      while (iterator.hasNext()) {
+        Job job = iterator.next();
+        if (job.host == null || getRunning(job.host) < maxConcurrentTasksPerHost) {
+          iterator.remove();
+          return job;
+        }
+      }
+    }
+    return null;
+  }
+
+  private int getRunning(String host) {
+    Integer count = runningPerHost.get(host);
+    return count != null ? count : 0;
+  }
+
+  /** A job which reports the end of its upload through a callback, see {@link #submitAsync}. */
+  public interface AsyncJob {
+    void run(Runnable finished);
+  }
+
+  private static class Job {
+    @Nullable final String host;
+    final AsyncJob task;
+
+    Job(@Nullable String host, AsyncJob task) {
+      this.host = host;
+      this.task = task;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.bluechilli.flutteruploader;
 
 import android.net.Uri;
+import androidx.annotation.Nullable;
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +16,22 @@ public class UploadTask {
   private boolean binaryUpload;
   private String tag;
   private boolean allowCellular;
+  private boolean resumable = false;
+  private long chunkSize = 0;
+  private boolean parallel = false;
+  private String completeUrl;
+  private long partSize = 0;
+  private int maxPartsInFlight = 0;
+  private String compression;
+  @Nullable private String preflight;
+  private long progressMinBytes = -1;
+  private int progressMinPercent = -1;
+  private long progressMinInterval = -1;
+  private int priority = UploadPriority.NORMAL;
+  private boolean deduplicate = false;
+  @Nullable private String deduplicationScope;
+  private long bandwidthLimit = 0;
+  @Nullable private RetryPolicy retryPolicy;
 
   public UploadTask(
       String url,
@@ -76,4 +93,136 @@ public class UploadTask {
   public boolean isAllowCellular() {
     return allowCellular;
   }
+
+  public long getProgressMinBytes() {
+    return progressMinBytes;
+  }
+
+  public int getProgressMinPercent() {
+    return progressMinPercent;
+  }
+
+  public long getProgressMinInterval() {
+    return progressMinInterval;
+  }
+
+  /**
+   * Overrides the globally configured progress throttling for this task. Negative values fall back
+   * to the global configuration.
+   */
+  public void setProgressThrottle(long minBytes, int minPercent, long minIntervalInMillis) {
+    this.progressMinBytes = minBytes;
+    this.progressMinPercent = minPercent;
+    this.progressMinInterval = minIntervalInMillis;
+  }
+
+  public boolean isResumable() {
+    return resumable;
+  }
+
+  public long getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Turns this task into a resumable tus upload. A {@code chunkSize} of 0 sends the whole file in a
+   * single PATCH request.
+   */
+  public void setResumable(long chunkSize) {
+    this.resumable = true;
+    this.chunkSize = chunkSize;
+  }
+
+  public boolean isParallel() {
+    return parallel;
+  }
+
+  public String getCompleteUrl() {
+    return completeUrl;
+  }
+
+  public long getPartSize() {
+    return partSize;
+  }
+
+  public int getMaxPartsInFlight() {
+    return maxPartsInFlight;
+  }
+
+  /**
+   * Splits the file of this task into parts of {@code partSize} bytes, which are uploaded in
+   * parallel and finished with a request to {@code completeUrl}.
+   */
+  public void setParallel(String completeUrl, long partSize, int maxPartsInFlight) {
+    this.parallel = true;
+    this.completeUrl = completeUrl;
+    this.partSize = partSize;
+    this.maxPartsInFlight = maxPartsInFlight;
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  /** Sets the {@link UploadPriority} lane this task is scheduled in. */
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
+
+  public boolean isDeduplicate() {
+    return deduplicate;
+  }
+
+  /** Skips the upload if the same content was already uploaded to the same destination. */
+  public void setDeduplicate(boolean deduplicate) {
+    this.deduplicate = deduplicate;
+  }
+
+  @Nullable
+  public String getDeduplicationScope() {
+    return deduplicationScope;
+  }
+
+  /** Keeps uploads of different scopes, e.g. of different users, apart when deduplicating. */
+  public void setDeduplicationScope(@Nullable String deduplicationScope) {
+    this.deduplicationScope = deduplicationScope;
+  }
+
+  public long getBandwidthLimit() {
+    return bandwidthLimit;
+  }
+
+  /** Limits the upload of this task to {@code bytesPerSecond}, or not at all if it is 0. */
+  public void setBandwidthLimit(long bytesPerSecond) {
+    this.bandwidthLimit = bytesPerSecond;
+  }
+
+  @Nullable
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  /** Retries transient failures according to {@code retryPolicy}, or fails at once if null. */
+  public void setRetryPolicy(@Nullable RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+  }
+
+  public String getCompression() {
+    return compression;
+  }
+
+  /** Compresses the request body with the given content encoding while it is sent. */
+  public void setCompression(String compression) {
+    this.compression = compression;
+  }
+
+  @Nullable
+  public String getPreflight() {
+    return preflight;
+  }
+
+  /** Lets the server reject the upload before the body is sent, see {@link UploadPreflight}. */
+  public void setPreflight(@Nullable String preflight) {
+    this.preflight = preflight;
+  }
 }
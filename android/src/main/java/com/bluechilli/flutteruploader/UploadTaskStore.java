@@ -0,0 +1,292 @@
+package com.bluechilli.flutteruploader;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.core.util.AtomicFile;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the specification of every enqueued {@link UploadTask} in a compact binary file, keyed by
+ * the id of its work request.
+ *
+ * <p>The {@link androidx.work.Data} of a work request is limited to 10 KB and is copied into the
+ * WorkManager database. Keeping files, headers and form fields out of it keeps those rows small
+ * and lets the worker load a task only when it starts running.
+ */
+public class UploadTaskStore {
+  private static final String TAG = UploadTaskStore.class.getSimpleName();
+  private static final String DIRECTORY_NAME = "flutter_uploader_tasks";
+
+  // The layout written by write(), shared by the fields of every feature. Bump it, and keep reading
+  // the previous layout, only once a layout was released.
+  private static final int VERSION = 1;
+
+  private final File directory;
+
+  public UploadTaskStore(Context context) {
+    directory = new File(ContextCompat.getNoBackupFilesDir(context), DIRECTORY_NAME);
+  }
+
+  public void save(String taskId, UploadTask task) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Can not create " + directory);
+    }
+
+    AtomicFile file = file(taskId);
+    FileOutputStream fos = file.startWrite();
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+      write(out, task);
+      out.flush();
+      file.finishWrite(fos);
+    } catch (IOException e) {
+      file.failWrite(fos);
+      throw e;
+    }
+  }
+
+  /** Loads the task stored for {@code taskId}, or returns null if there is none. */
+  @Nullable
+  public UploadTask load(String taskId) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(file(taskId).openRead()))) {
+      return read(in);
+    } catch (FileNotFoundException e) {
+      return null;
+    }
+  }
+
+  public void delete(String taskId) {
+    file(taskId).delete();
+  }
+
+  /** Deletes every stored task whose id is not contained in {@code taskIds}. */
+  public void retainAll(Collection<String> taskIds) {
+    String[] names = directory.list();
+    if (names == null) {
+      return;
+    }
+
+    for (String name : names) {
+      // AtomicFile keeps ".bak" and ".new" files around while writing.
+      String taskId =
+          name.endsWith(".bak") || name.endsWith(".new")
+              ? name.substring(0, name.length() - 4)
+              : name;
+      if (!taskIds.contains(taskId)) {
+        Log.d(TAG, "Deleting orphaned task " + taskId);
+        file(taskId).delete();
+      }
+    }
+  }
+
+  private AtomicFile file(String taskId) {
+    return new AtomicFile(new File(directory, taskId));
+  }
+
+  private static void write(DataOutputStream out, UploadTask task) throws IOException {
+    out.writeInt(VERSION);
+    writeString(out, task.getURL());
+    writeString(out, task.getMethod());
+    writeString(out, task.getTag());
+    out.writeInt(task.getTimeout());
+    out.writeBoolean(task.isBinaryUpload());
+    out.writeBoolean(task.isAllowCellular());
+    writeMap(out, task.getHeaders());
+    writeMap(out, task.getParameters());
+
+    List<FileItem> files = task.getFiles();
+    out.writeInt(files != null ? files.size() : -1);
+    if (files != null) {
+      for (FileItem item : files) {
+        writeString(out, item.getPath());
+        writeString(out, item.getFieldname());
+      }
+    }
+
+    out.writeBoolean(task.isResumable());
+    out.writeLong(task.getChunkSize());
+    out.writeBoolean(task.isParallel());
+    writeString(out, task.getCompleteUrl());
+    out.writeLong(task.getPartSize());
+    out.writeInt(task.getMaxPartsInFlight());
+    writeString(out, task.getCompression());
+    out.writeLong(task.getProgressMinBytes());
+    out.writeInt(task.getProgressMinPercent());
+    out.writeLong(task.getProgressMinInterval());
+    out.writeInt(task.getPriority());
+    out.writeBoolean(task.isDeduplicate());
+    out.writeLong(task.getBandwidthLimit());
+
+    RetryPolicy retryPolicy = task.getRetryPolicy();
+    out.writeBoolean(retryPolicy != null);
+    if (retryPolicy != null) {
+      out.writeInt(retryPolicy.getMaxRetries());
+      out.writeLong(retryPolicy.getInitialDelayMillis());
+      out.writeBoolean(retryPolicy.isRespectRetryAfter());
+
+      int[] codes = retryPolicy.getRetryStatusCodes();
+      out.writeInt(codes != null ? codes.length : -1);
+      if (codes != null) {
+        for (int code : codes) {
+          out.writeInt(code);
+        }
+      }
+    }
+
+    writeString(out, task.getPreflight());
+    writeString(out, task.getDeduplicationScope());
+  }
+
+  @NonNull
+  private static UploadTask read(DataInputStream in) throws IOException {
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported task version " + version);
+    }
+
+    String url = readString(in);
+    String method = readString(in);
+    String tag = readString(in);
+    int timeout = in.readInt();
+    boolean binaryUpload = in.readBoolean();
+    boolean allowCellular = in.readBoolean();
+    Map<String, String> headers = readMap(in);
+    Map<String, String> parameters = readMap(in);
+
+    List<FileItem> files = null;
+    int fileCount = in.readInt();
+    if (fileCount >= 0) {
+      files = new ArrayList<>(fileCount);
+      for (int i = 0; i < fileCount; i++) {
+        String path = readString(in);
+        files.add(new FileItem(path, readString(in)));
+      }
+    }
+
+    UploadTask task =
+        new UploadTask(
+            url,
+            method,
+            files,
+            headers,
+            parameters,
+            timeout,
+            binaryUpload,
+            tag,
+            allowCellular);
+
+    boolean resumable = in.readBoolean();
+    long chunkSize = in.readLong();
+    if (resumable) {
+      task.setResumable(chunkSize);
+    }
+
+    boolean parallel = in.readBoolean();
+    String completeUrl = readString(in);
+    long partSize = in.readLong();
+    int maxPartsInFlight = in.readInt();
+    if (parallel) {
+      task.setParallel(completeUrl, partSize, maxPartsInFlight);
+    }
+
+    task.setCompression(readString(in));
+    long progressMinBytes = in.readLong();
+    int progressMinPercent = in.readInt();
+    task.setProgressThrottle(progressMinBytes, progressMinPercent, in.readLong());
+
+    task.setPriority(in.readInt());
+    task.setDeduplicate(in.readBoolean());
+    task.setBandwidthLimit(in.readLong());
+
+    if (in.readBoolean()) {
+      int maxRetries = in.readInt();
+      long initialDelayMillis = in.readLong();
+      boolean respectRetryAfter = in.readBoolean();
+
+      int[] codes = null;
+      int codeCount = in.readInt();
+      if (codeCount >= 0) {
+        codes = new int[codeCount];
+        for (int i = 0; i < codeCount; i++) {
+          codes[i] = in.readInt();
+        }
+      }
+
+      task.setRetryPolicy(
+          new RetryPolicy(maxRetries, initialDelayMillis, respectRetryAfter, codes));
+    }
+
+    task.setPreflight(readString(in));
+    task.setDeduplicationScope(readString(in));
+    return task;
+  }
+
+  // DataOutputStream.writeUTF is limited to 64 KB, which large form fields can exceed.
+  private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  @Nullable
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeMap(DataOutputStream out, @Nullable Map<String, String> map)
+      throws IOException {
+    out.writeInt(map != null ? map.size() : -1);
+    if (map == null) {
+      return;
+    }
+
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      writeString(out, entry.getKey());
+      writeString(out, entry.getValue());
+    }
+  }
+
+  @Nullable
+  private static Map<String, String> readMap(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    if (size < 0) {
+      return null;
+    }
+
+    Map<String, String> map = new LinkedHashMap<>(size);
+    for (int i = 0; i < size; i++) {
+      String key = readString(in);
+      map.put(key, readString(in));
+    }
+    return map;
+  }
+}
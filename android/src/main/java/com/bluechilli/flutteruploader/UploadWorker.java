@@ -1,37 +1,36 @@
 package com.bluechilli.flutteruploader;
 
 import android.content.Context;
+import android.net.Uri;
 import android.util.Log;
 import android.webkit.MimeTypeMap;
 import android.webkit.URLUtil;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.concurrent.futures.CallbackToFutureAdapter;
+import androidx.core.util.Consumer;
 import androidx.work.Data;
 import androidx.work.ListenableWorker;
 import androidx.work.WorkerParameters;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.Gson;
 import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
-import io.flutter.FlutterInjector;
-import io.flutter.embedding.engine.FlutterEngine;
-import io.flutter.embedding.engine.dart.DartExecutor;
-import io.flutter.embedding.engine.loader.FlutterLoader;
-import io.flutter.view.FlutterCallbackInformation;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.ProtocolException;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.Executor;
-import java.util.concurrent.TimeUnit;
 import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.Headers;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
@@ -49,106 +48,224 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
   public static final String ARG_FILES = "files";
   public static final String ARG_REQUEST_TIMEOUT = "requestTimeout";
   public static final String ARG_BINARY_UPLOAD = "binaryUpload";
+  public static final String ARG_RESUMABLE_UPLOAD = "resumableUpload";
+  public static final String ARG_CHUNK_SIZE = "chunkSize";
+  public static final String ARG_PARALLEL_UPLOAD = "parallelUpload";
+  public static final String ARG_COMPLETE_URL = "completeUrl";
+  public static final String ARG_PART_SIZE = "partSize";
+  public static final String ARG_MAX_PARTS_IN_FLIGHT = "maxPartsInFlight";
+  public static final String ARG_COMPRESSION = "compression";
   public static final String ARG_UPLOAD_REQUEST_TAG = "tag";
   public static final String ARG_ID = "primaryId";
-  public static final String EXTRA_STATUS_CODE = "statusCode";
-  public static final String EXTRA_STATUS = "status";
-  public static final String EXTRA_ERROR_MESSAGE = "errorMessage";
-  public static final String EXTRA_ERROR_CODE = "errorCode";
-  public static final String EXTRA_ERROR_DETAILS = "errorDetails";
-  public static final String EXTRA_RESPONSE = "response";
-  public static final String EXTRA_RESPONSE_FILE = "response_file";
-  public static final String EXTRA_ID = "id";
-  public static final String EXTRA_HEADERS = "headers";
+  public static final String ARG_TASK_STORED = "taskStored";
+  public static final String ARG_PRIORITY = "priority";
+  public static final String ARG_HOST = "host";
+  public static final String ARG_PROGRESS_MIN_BYTES = "progressMinBytes";
+  public static final String ARG_PROGRESS_MIN_PERCENT = "progressMinPercent";
+  public static final String ARG_PROGRESS_MIN_INTERVAL = "progressMinInterval";
   private static final String TAG = UploadWorker.class.getSimpleName();
-  private static final int UPDATE_STEP = 0;
   private static final int DEFAULT_ERROR_STATUS_CODE = 500;
+  private static final int MAX_RESUME_ATTEMPTS = 10;
+  private static final long DEFAULT_PART_SIZE = 5 * 1024 * 1024;
+  private static final int DEFAULT_MAX_PARTS_IN_FLIGHT = 3;
+  private static final Gson gson = new Gson();
 
   private String tag;
-  private Call call;
-  private boolean isCancelled = false;
+  private volatile Call call;
+  @Nullable private volatile ParallelPartUploader parallelUploader;
+  private volatile boolean isCancelled = false;
+  // Reported to the UploadScheduler, which adapts the number of concurrent uploads.
+  private volatile long bytesUploaded = 0;
+  // Set if the background engine was started for this upload.
+  private volatile long engineStartMillis = 0;
+  private boolean networkError = false;
+  private final UploadMetrics metrics = new UploadMetrics();
+  private final ThroughputEstimator throughput = new ThroughputEstimator();
+  @Nullable private RetryPolicy retryPolicy;
 
   private Context context;
 
   public UploadWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
     super(context, workerParams);
-    this.backgroundExecutor = UploadExecutorService.getExecutorService(context);
+    this.scheduler = UploadScheduler.getInstance(context);
     this.context = context;
   }
 
-  @Nullable private static FlutterEngine engine;
-
-  private Executor backgroundExecutor;
+  private final UploadScheduler scheduler;
 
   @NonNull
   @Override
   public ListenableFuture<Result> startWork() {
-    startEngine();
-
     return CallbackToFutureAdapter.getFuture(
         completer -> {
-          backgroundExecutor.execute(
-              () -> {
-                try {
-                  final Result result = doWorkInternal();
-                  completer.set(result);
-                } catch (Throwable e) {
-                  completer.setException(e);
-                } finally {
-                  // Do not destroy the engine at this very moment.
-                  // Keep it running in the background for just a little while.
-                  //                  stopEngine();
-                }
-              });
-
+          // startWork() is called on the main thread, the retry store reads from disk.
+          getBackgroundExecutor().execute(() -> startOrPostpone(completer));
           return getId().toString();
         });
   }
 
-  @NonNull
-  public Result doWorkInternal() {
-    String url = getInputData().getString(ARG_URL);
-    String method = getInputData().getString(ARG_METHOD);
-    int timeout = getInputData().getInt(ARG_REQUEST_TIMEOUT, 3600);
-    boolean isBinaryUpload = getInputData().getBoolean(ARG_BINARY_UPLOAD, false);
-    String headersJson = getInputData().getString(ARG_HEADERS);
-    String parametersJson = getInputData().getString(ARG_DATA);
-    String filesJson = getInputData().getString(ARG_FILES);
-    tag = getInputData().getString(ARG_UPLOAD_REQUEST_TAG);
+  /**
+   * Submits the upload, unless the server asked for a longer delay than the backoff. A postponed
+   * run still counts as a run attempt of WorkManager, which also doubles its next backoff. The
+   * retries of the {@link RetryPolicy} and the resume attempts are counted in the {@link
+   * RetryStore} instead, so postponing does not use them up.
+   */
+  private void startOrPostpone(CallbackToFutureAdapter.Completer<Result> completer) {
+    try {
+      long delay =
+          new RetryStore(context).getNotBefore(getId().toString()) - System.currentTimeMillis();
+
+      if (delay > 0) {
+        Log.d(TAG, "Postponing retry of " + getId() + " by at least " + delay + " ms");
+        completer.set(Result.retry());
+      } else {
+        submit(completer);
+      }
+    } catch (Throwable e) {
+      completer.setException(e);
+    }
+  }
+
+  private void submit(CallbackToFutureAdapter.Completer<Result> completer) {
+    final BackgroundEngineManager engineManager = BackgroundEngineManager.getInstance(context);
+    engineManager.acquire(startMillis -> engineStartMillis = startMillis);
+    final boolean async = FlutterUploaderInitializer.isAsyncUploads(context);
+
+    scheduler.submitAsync(
+        getInputData().getInt(ARG_PRIORITY, UploadPriority.NORMAL),
+        getInputData().getString(ARG_HOST),
+        finished -> {
+          if (isStopped()) {
+            // Stopped while waiting for a slot, WorkManager ignores the result.
+            engineManager.release();
+            completer.set(Result.failure());
+            finished.run();
+            return;
+          }
+
+          final long start = System.nanoTime();
+          final Consumer<Result> onResult =
+              result -> {
+                complete(completer, result, start);
+                // The engine is kept around for a while, in case more uploads follow.
+                engineManager.release();
+                finished.run();
+              };
+
+          try {
+            Result result = doWorkInternal(async ? onResult : null);
+            if (result != null) {
+              onResult.accept(result);
+            }
+          } catch (Throwable e) {
+            completer.setException(e);
+            engineManager.release();
+            finished.run();
+          }
+        });
+  }
+
+  /** Hands the {@code result} of the upload which began at {@code start} over to WorkManager. */
+  private void complete(
+      CallbackToFutureAdapter.Completer<Result> completer, Result result, long start) {
+    try {
+      result = withMetrics(result);
+      scheduler.onUploadFinished(
+          bytesUploaded, System.nanoTime() - start, networkError && !isCancelled);
+
+      if (!isStopped() && !result.equals(Result.retry())) {
+        // Stopped work is rescheduled by WorkManager and still needs its task.
+        new UploadTaskStore(context).delete(getId().toString());
+        new RetryStore(context).clear(getId().toString());
+      }
+      completer.set(result);
+    } catch (Throwable e) {
+      completer.setException(e);
+    }
+  }
+
+  /**
+   * Runs the upload and returns its result. If a {@code callback} is given, multipart and binary
+   * uploads return null once their request is enqueued with OkHttp and pass the result to {@code
+   * callback} instead, so that no thread waits for the network.
+   */
+  @Nullable
+  Result doWorkInternal(@Nullable Consumer<Result> callback) {
+    final UploadTask task;
+
+    try {
+      task = loadTask();
+    } catch (IOException | JsonParseException ex) {
+      return handleException(context, ex, "invalid_task");
+    }
+
+    if (task == null) {
+      return Result.failure(
+          createOutputErrorData(
+              UploadStatus.FAILED,
+              DEFAULT_ERROR_STATUS_CODE,
+              "invalid_task",
+              "The upload task could not be found",
+              null));
+    }
+
+    String url = task.getURL();
+    String method = task.getMethod();
+    int timeout = task.getTimeout();
+    boolean isBinaryUpload = task.isBinaryUpload();
+    boolean isResumableUpload = task.isResumable();
+    boolean isParallelUpload = task.isParallel();
+    Map<String, String> headers = task.getHeaders();
+    Map<String, String> parameters = task.getParameters();
+    List<FileItem> files = task.getFiles() != null ? task.getFiles() : new ArrayList<>();
+    String compression = task.getCompression();
+    tag = task.getTag();
+    retryPolicy = task.getRetryPolicy();
 
     if (tag == null) {
       tag = getId().toString();
     }
 
-    int statusCode = 200;
+    BandwidthLimiter.register(getId().toString(), task.getBandwidthLimit());
 
+    boolean enqueued = false;
     try {
-      Map<String, String> headers = null;
-      Map<String, String> parameters = null;
-      List<FileItem> files = new ArrayList<>();
-      Gson gson = new Gson();
-      Type type = new TypeToken<Map<String, String>>() {}.getType();
-      Type fileItemType = new TypeToken<List<FileItem>>() {}.getType();
-
-      if (headersJson != null) {
-        headers = gson.fromJson(headersJson, type);
+      if (isResumableUpload) {
+        return uploadResumable(task, files.get(0));
       }
 
-      if (parametersJson != null) {
-        parameters = gson.fromJson(parametersJson, type);
+      if (isParallelUpload) {
+        return uploadParallel(task, files.get(0));
       }
 
-      if (filesJson != null) {
-        files = gson.fromJson(filesJson, fileItemType);
+      UploadDeduplicator deduplicator = null;
+      String contentKey = null;
+
+      // Checked before the bodies are built, skipped uploads do not need to open their files.
+      if (task.isDeduplicate()) {
+        deduplicator = new UploadDeduplicator(context);
+        contentKey = deduplicator.getKey(task);
+
+        if (deduplicator.isUploaded(contentKey)) {
+          Log.d(TAG, "Content was already uploaded, skipping " + tag);
+          return Result.success(
+              new Data.Builder()
+                  .putString(UploadWorkerOutput.EXTRA_ID, getId().toString())
+                  .putInt(UploadWorkerOutput.EXTRA_STATUS, UploadStatus.COMPLETE)
+                  .putInt(UploadWorkerOutput.EXTRA_STATUS_CODE, 200)
+                  .putBoolean(UploadWorkerOutput.EXTRA_DEDUPLICATED, true)
+                  .build());
+        }
       }
 
-      final RequestBody innerRequestBody;
+      RequestBody requestBody;
 
       if (isBinaryUpload) {
         final FileItem item = files.get(0);
+        final ContentUriRequestBody contentBody = createContentBody(item.getPath());
         File file = new File(item.getPath());
 
-        if (!file.exists()) {
+        if (contentBody == null && !file.exists()) {
           return Result.failure(
               createOutputErrorData(
                   UploadStatus.FAILED,
@@ -158,17 +275,36 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
                   null));
         }
 
-        String mimeType = GetMimeType(item.getPath());
-        MediaType contentType = MediaType.parse(mimeType);
-        innerRequestBody = RequestBody.create(file, contentType);
+        if (contentBody != null) {
+          requestBody =
+              new CountingRequestBody(
+                  contentBody, getId().toString(), this, createProgressCoalescer(task));
+        } else {
+          String mimeType = GetMimeType(item.getPath());
+          MediaType contentType = MediaType.parse(mimeType);
+          requestBody =
+              new FileRequestBody(
+                  file,
+                  contentType,
+                  FlutterUploaderInitializer.getFileReadChunkSize(context),
+                  getId().toString(),
+                  this,
+                  createProgressCoalescer(task));
+        }
       } else {
-        MultipartBody.Builder formRequestBuilder = prepareRequest(parameters, null);
+        MultipartBody.Builder formRequestBuilder =
+            MultipartRequests.prepareRequest(parameters, null);
         int fileExistsCount = 0;
         for (FileItem item : files) {
+          ContentUriRequestBody contentBody = createContentBody(item.getPath());
           File file = new File(item.getPath());
           Log.d(TAG, "attaching file: " + item.getPath());
 
-          if (file.exists() && file.isFile()) {
+          if (contentBody != null) {
+            fileExistsCount++;
+            formRequestBuilder.addFormDataPart(
+                item.getFieldname(), contentBody.getDisplayName(), contentBody);
+          } else if (file.exists() && file.isFile()) {
             fileExistsCount++;
             String mimeType = GetMimeType(item.getPath());
             MediaType contentType = MediaType.parse(mimeType);
@@ -189,10 +325,13 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
                   null));
         }
 
-        innerRequestBody = formRequestBuilder.build();
+        requestBody =
+            new CountingRequestBody(
+                formRequestBuilder.build(),
+                getId().toString(),
+                this,
+                createProgressCoalescer(task));
       }
-
-      RequestBody requestBody = new CountingRequestBody(innerRequestBody, getId().toString(), this);
       Request.Builder requestBuilder = new Request.Builder();
 
       requestBuilder.addHeader("Accept", "*/*");
@@ -206,6 +345,17 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
         }
       }
 
+      if (compression != null) {
+        // Count uncompressed bytes, so progress still relates to the size of the files.
+        requestBody = new CompressingRequestBody(requestBody, compression);
+        requestBuilder.header("Content-Encoding", compression);
+      }
+
+      if (UploadPreflight.EXPECT_CONTINUE.equals(task.getPreflight())) {
+        // OkHttp waits for "100 Continue" and skips the body if the server answers otherwise.
+        requestBuilder.header("Expect", "100-continue");
+      }
+
       if (!URLUtil.isValidUrl(url)) {
         return Result.failure(
             createOutputErrorData(
@@ -216,6 +366,8 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
                 null));
       }
 
+      requestBuilder.tag(UploadMetrics.class, metrics);
+
       Request request;
 
       switch (method.toUpperCase()) {
@@ -232,26 +384,344 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
 
       Log.d(TAG, "Start uploading for " + tag);
 
-      OkHttpClient client =
-          new OkHttpClient.Builder()
-              .connectTimeout((long) timeout, TimeUnit.SECONDS)
-              .writeTimeout((long) timeout, TimeUnit.SECONDS)
-              .readTimeout((long) timeout, TimeUnit.SECONDS)
-              .build();
+      OkHttpClient client = HttpClientRegistry.getClient(context, timeout);
+      boolean isPreflight =
+          UploadPreflight.HEAD.equals(task.getPreflight())
+              || UploadPreflight.OPTIONS.equals(task.getPreflight());
+
+      if (isPreflight && callback != null) {
+        enqueuePreflight(client, request, task.getPreflight(), deduplicator, contentKey, callback);
+        enqueued = true;
+        return null;
+      }
+
+      if (isPreflight) {
+        Response rejection = preflight(client, request, task.getPreflight());
+        if (rejection != null) {
+          Log.d(TAG, "Upload rejected by preflight, skipping " + tag);
+          return processResponse(rejection);
+        }
+      }
 
       call = client.newCall(request);
+      if (callback != null) {
+        enqueue(call, deduplicator, contentKey, callback);
+        enqueued = true;
+        return null;
+      }
+
       Response response = call.execute();
-      statusCode = response.code();
+
+      if (deduplicator != null && response.isSuccessful()) {
+        deduplicator.markUploaded(contentKey);
+      }
+
+      return processResponse(response);
+    } catch (Exception ex) {
+      return handleUploadException(ex, isResumableUpload);
+    } finally {
+      if (!enqueued) {
+        cleanUp();
+      }
+    }
+  }
+
+  /**
+   * Sends {@code request} without its body using the {@code preflight} method. Returns the response
+   * if the server already rejects the upload, or null if the upload should go ahead.
+   */
+  @Nullable
+  private Response preflight(OkHttpClient client, Request request, String preflight)
+      throws IOException {
+    call = client.newCall(createPreflightRequest(request, preflight));
+    Response response = call.execute();
+
+    if (UploadPreflight.rejectsUpload(response.code())) {
+      return response;
+    }
+
+    response.close();
+    return null;
+  }
+
+  /**
+   * Like {@link #preflight}, but runs the preflight on the OkHttp dispatcher and enqueues the
+   * upload once the server accepted it.
+   */
+  private void enqueuePreflight(
+      OkHttpClient client,
+      Request request,
+      String preflight,
+      @Nullable UploadDeduplicator deduplicator,
+      @Nullable String contentKey,
+      Consumer<Result> callback) {
+    call = client.newCall(createPreflightRequest(request, preflight));
+    call.enqueue(
+        new Callback() {
+          @Override
+          public void onFailure(@NonNull Call call, @NonNull IOException e) {
+            finish(handleUploadException(e, false), callback);
+          }
+
+          @Override
+          public void onResponse(@NonNull Call call, @NonNull Response response) {
+            if (UploadPreflight.rejectsUpload(response.code())) {
+              Log.d(TAG, "Upload rejected by preflight, skipping " + tag);
+              processAsync(response, null, null, callback);
+              return;
+            }
+
+            response.close();
+            Call upload = client.newCall(request);
+            UploadWorker.this.call = upload;
+            if (isCancelled) {
+              // Stopped before the upload call was set, onStopped cancelled the preflight only.
+              upload.cancel();
+            }
+            enqueue(upload, deduplicator, contentKey, callback);
+          }
+        });
+  }
+
+  private static Request createPreflightRequest(Request request, String preflight) {
+    return request.newBuilder().method(preflight.toUpperCase(Locale.ROOT), null).build();
+  }
+
+  /** Runs {@code call} on the OkHttp dispatcher and processes its response on a shared pool. */
+  private void enqueue(
+      Call call,
+      @Nullable UploadDeduplicator deduplicator,
+      @Nullable String contentKey,
+      Consumer<Result> callback) {
+    call.enqueue(
+        new Callback() {
+          @Override
+          public void onFailure(@NonNull Call call, @NonNull IOException e) {
+            finish(handleUploadException(e, false), callback);
+          }
+
+          @Override
+          public void onResponse(@NonNull Call call, @NonNull Response response) {
+            processAsync(response, deduplicator, contentKey, callback);
+          }
+        });
+  }
+
+  /** Processes {@code response} on the shared response pool and passes its result on. */
+  private void processAsync(
+      Response response,
+      @Nullable UploadDeduplicator deduplicator,
+      @Nullable String contentKey,
+      Consumer<Result> callback) {
+    UploadExecutorService.getResponseExecutorService()
+        .execute(
+            () -> {
+              Result result;
+              try {
+                if (deduplicator != null && response.isSuccessful()) {
+                  deduplicator.markUploaded(contentKey);
+                }
+                result = processResponse(response);
+              } catch (Exception e) {
+                result = handleUploadException(e, false);
+              }
+              finish(result, callback);
+            });
+  }
+
+  private void finish(Result result, Consumer<Result> callback) {
+    cleanUp();
+    callback.accept(result);
+  }
+
+  private void cleanUp() {
+    call = null;
+    parallelUploader = null;
+    BandwidthLimiter.unregister(getId().toString());
+  }
+
+  private Result handleUploadException(Exception ex, boolean isResumableUpload) {
+    if (ex instanceof SecurityException || ex.getCause() instanceof SecurityException) {
+      // The permission to read a content URI was revoked, retrying does not help.
+      return handleException(context, ex, "permission_denied");
+    }
+
+    if (ex instanceof ProtocolException) {
+      if (isCancelled) {
+        return Result.failure();
+      }
+      if (isResumableUpload) {
+        return handleResumableException(ex, "protocol");
+      }
+      return handleException(context, ex, "protocol");
+    }
+
+    if (ex instanceof JsonIOException) {
+      return handleException(context, ex, "json_error");
+    }
+
+    if (ex instanceof UnknownHostException) {
+      if (isResumableUpload) {
+        return handleResumableException(ex, "unknown_host");
+      }
+      return handleTransientException(ex, "unknown_host");
+    }
+
+    if (ex instanceof IOException) {
+      networkError = true;
+      if (isResumableUpload) {
+        return handleResumableException(ex, "io_error");
+      }
+      return handleTransientException(ex, "io_error");
+    }
+
+    return handleException(context, ex, "upload error");
+  }
+
+  private Result uploadResumable(UploadTask task, FileItem item) throws IOException {
+    String url = task.getURL();
+    File file = new File(item.getPath());
+
+    if (!file.exists()) {
+      return Result.failure(
+          createOutputErrorData(
+              UploadStatus.FAILED,
+              DEFAULT_ERROR_STATUS_CODE,
+              "invalid_files",
+              "There are no items to upload",
+              null));
+    }
+
+    if (!URLUtil.isValidUrl(url)) {
+      return Result.failure(
+          createOutputErrorData(
+              UploadStatus.FAILED,
+              DEFAULT_ERROR_STATUS_CODE,
+              "invalid_url",
+              "url is not a valid url",
+              null));
+    }
+
+    Log.d(TAG, "Start resumable upload for " + tag);
+
+    final OkHttpClient client = HttpClientRegistry.getClient(context, task.getTimeout());
+    final ResumableUploadStore store = new ResumableUploadStore(context);
+
+    ResumableUploader uploader =
+        new ResumableUploader(
+            request -> {
+              call = client.newCall(metrics.tag(request));
+              return call;
+            },
+            store,
+            getId().toString(),
+            url,
+            task.getHeaders(),
+            file,
+            task.getChunkSize(),
+            this,
+            createProgressCoalescer(task));
+
+    Response response = uploader.upload();
+    store.clear(getId().toString());
+
+    return processResponse(response);
+  }
+
+  private Result uploadParallel(UploadTask task, FileItem item) throws IOException {
+    String url = task.getURL();
+    String completeUrl = task.getCompleteUrl();
+    File file = new File(item.getPath());
+
+    if (!file.exists()) {
+      return Result.failure(
+          createOutputErrorData(
+              UploadStatus.FAILED,
+              DEFAULT_ERROR_STATUS_CODE,
+              "invalid_files",
+              "There are no items to upload",
+              null));
+    }
+
+    if (!URLUtil.isValidUrl(url) || !URLUtil.isValidUrl(completeUrl)) {
+      return Result.failure(
+          createOutputErrorData(
+              UploadStatus.FAILED,
+              DEFAULT_ERROR_STATUS_CODE,
+              "invalid_url",
+              "url is not a valid url",
+              null));
+    }
+
+    long partSize = task.getPartSize();
+    int maxPartsInFlight = task.getMaxPartsInFlight();
+
+    if (partSize <= 0) {
+      partSize = DEFAULT_PART_SIZE;
+    }
+    if (maxPartsInFlight <= 0) {
+      maxPartsInFlight = DEFAULT_MAX_PARTS_IN_FLIGHT;
+    }
+
+    Log.d(TAG, "Start parallel upload for " + tag);
+
+    final OkHttpClient client = HttpClientRegistry.getClient(context, task.getTimeout());
+
+    parallelUploader =
+        new ParallelPartUploader(
+            request -> client.newCall(metrics.tag(request)),
+            getId().toString(),
+            url,
+            completeUrl,
+            task.getHeaders(),
+            file,
+            MediaType.parse(GetMimeType(item.getPath())),
+            partSize,
+            maxPartsInFlight,
+            this,
+            createProgressCoalescer(task));
+
+    if (isCancelled) {
+      parallelUploader.cancel();
+    }
+
+    return processResponse(parallelUploader.upload());
+  }
+
+  /** Adds the network timings of the upload to the output of {@code result}. */
+  private Result withMetrics(Result result) {
+    if (metrics.getRequests() == 0 || result.equals(Result.retry())) {
+      return result;
+    }
+
+    final boolean success = result.equals(Result.success(result.getOutputData()));
+    final Data outputData =
+        new Data.Builder()
+            .putAll(result.getOutputData())
+            .putString(UploadWorkerOutput.EXTRA_METRICS, gson.toJson(getMetricsMap()))
+            .build();
+
+    return success ? Result.success(outputData) : Result.failure(outputData);
+  }
+
+  /** The network timings, and the time it took to start the background engine for this upload. */
+  private Map<String, Long> getMetricsMap() {
+    Map<String, Long> map = metrics.toMap();
+    map.put("engineStart", engineStartMillis);
+    return map;
+  }
+
+  private Result processResponse(Response response) throws IOException {
+    try {
+      int statusCode = response.code();
       Headers rheaders = response.headers();
       Map<String, String> outputHeaders = new HashMap<>();
 
-      boolean hasJsonResponse = true;
-
       String responseContentType = rheaders.get("content-type");
 
       ResponseBody body = response.body();
 
-      hasJsonResponse =
+      boolean hasJsonResponse =
           responseContentType != null && responseContentType.contains("json") && body != null;
 
       for (String name : rheaders.names()) {
@@ -264,33 +734,53 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
       }
 
       String responseHeaders = gson.toJson(outputHeaders);
-      String responseString = "";
-      if (body != null) {
-        responseString = body.string();
-      }
+      ResponseSpillPolicy spillPolicy =
+          new ResponseSpillPolicy(
+              FlutterUploaderInitializer.getResponseInMemoryThreshold(context),
+              FlutterUploaderInitializer.getResponseMaxBytes(context));
 
       if (!response.isSuccessful()) {
-        return Result.failure(
-            createOutputErrorData(
-                UploadStatus.FAILED, statusCode, "upload_error", responseString, null));
+        String message = body != null ? spillPolicy.readInline(body).inline : "";
+        Result failure =
+            Result.failure(
+                createOutputErrorData(
+                    UploadStatus.FAILED, statusCode, "upload_error", message, null));
+
+        if (retryPolicy != null && retryPolicy.isTransient(statusCode)) {
+          return retryOrFail(
+              failure,
+              RetryPolicy.parseRetryAfter(rheaders.get("Retry-After"), System.currentTimeMillis()));
+        }
+        return failure;
       }
 
       Data.Builder builder =
           new Data.Builder()
-              .putString(EXTRA_ID, getId().toString())
-              .putInt(EXTRA_STATUS, UploadStatus.COMPLETE)
-              .putInt(EXTRA_STATUS_CODE, statusCode)
-              .putString(EXTRA_HEADERS, responseHeaders);
+              .putString(UploadWorkerOutput.EXTRA_ID, getId().toString())
+              .putInt(UploadWorkerOutput.EXTRA_STATUS, UploadStatus.COMPLETE)
+              .putInt(UploadWorkerOutput.EXTRA_STATUS_CODE, statusCode)
+              .putString(UploadWorkerOutput.EXTRA_HEADERS, responseHeaders);
 
+      String responseString = null;
       if (hasJsonResponse) {
-        builder.putString(EXTRA_RESPONSE, responseString);
+        ResponseSpillPolicy.SpilledBody spilledBody =
+            spillPolicy.read(body, ResponseSpillPolicy.getDirectory(context));
+        responseString = spilledBody.inline;
+
+        builder.putString(UploadWorkerOutput.EXTRA_RESPONSE, spilledBody.inline);
+        builder.putBoolean(UploadWorkerOutput.EXTRA_RESPONSE_TRUNCATED, spilledBody.truncated);
+        if (spilledBody.file != null) {
+          Log.d(TAG, "Response for " + tag + " spilled to " + spilledBody.file);
+          builder.putString(
+              UploadWorkerOutput.EXTRA_RESPONSE_FILE, spilledBody.file.getAbsolutePath());
+        }
       }
 
       Data outputData;
       try {
         outputData = builder.build();
       } catch (IllegalStateException e) {
-        if (responseString.isEmpty()) {
+        if (responseString == null || responseString.isEmpty()) {
           // Managed to break it with an empty string.
           throw e;
         }
@@ -299,41 +789,90 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
             TAG,
             "IllegalStateException while building a outputData object. Replace response with"
                 + " on-disk reference.");
-        builder.putString(EXTRA_RESPONSE, null);
+        builder.putString(UploadWorkerOutput.EXTRA_RESPONSE, null);
 
         File responseFile = writeResponseToTemporaryFile(context, responseString);
         if (responseFile != null) {
-          builder.putString(EXTRA_RESPONSE_FILE, responseFile.getAbsolutePath());
+          builder.putString(UploadWorkerOutput.EXTRA_RESPONSE_FILE, responseFile.getAbsolutePath());
         }
 
         outputData = builder.build();
       }
 
       return Result.success(outputData);
-    } catch (ProtocolException ex) {
-      if (isCancelled) {
-        return Result.failure();
-      }
-      return handleException(context, ex, "protocol");
-    } catch (JsonIOException ex) {
-      return handleException(context, ex, "json_error");
-    } catch (UnknownHostException ex) {
-      return handleException(context, ex, "unknown_host");
-    } catch (IOException ex) {
-      return handleException(context, ex, "io_error");
-    } catch (Exception ex) {
-      return handleException(context, ex, "upload error");
     } finally {
-      call = null;
+      response.close();
+    }
+  }
+
+  private Result handleResumableException(Exception ex, String code) {
+    // Not the run attempt count, which also counts runs postponed for a Retry-After.
+    RetryStore retryStore = new RetryStore(context);
+    if (!isCancelled && retryStore.getResumes(getId().toString()) < MAX_RESUME_ATTEMPTS) {
+      Log.d(TAG, "Resumable upload interrupted, retrying later: " + ex);
+      retryStore.recordResume(getId().toString());
+      return Result.retry();
+    }
+
+    if (!isCancelled) {
+      new ResumableUploadStore(context).clear(getId().toString());
+    }
+
+    return handleException(context, ex, code);
+  }
+
+  /**
+   * Creates a body which streams {@code path} from its content provider, or returns null if it is
+   * not a {@code content://} URI or does not exist. Throws a {@link SecurityException} if the app
+   * may no longer read it.
+   */
+  @Nullable
+  private ContentUriRequestBody createContentBody(String path) {
+    if (!ContentUriRequestBody.isContentUri(path)) {
+      return null;
+    }
+    return ContentUriRequestBody.create(context.getContentResolver(), Uri.parse(path));
+  }
+
+  private Result handleTransientException(Exception ex, String code) {
+    Result failure = handleException(context, ex, code);
+    return RetryPolicy.isTransient(ex) ? retryOrFail(failure, -1) : failure;
+  }
+
+  /**
+   * Returns {@code failure}, or a retry if the {@link RetryPolicy} of the task allows another
+   * attempt. WorkManager schedules the retry with its backoff, a longer {@code Retry-After} of the
+   * server is enforced in {@link #startOrPostpone}.
+   */
+  private Result retryOrFail(Result failure, long retryAfterMillis) {
+    if (retryPolicy == null || isCancelled) {
+      return failure;
+    }
+
+    RetryStore store = new RetryStore(context);
+    String taskId = getId().toString();
+    int retries = store.getRetries(taskId);
+    if (retries >= retryPolicy.getMaxRetries()) {
+      Log.d(TAG, "Giving up " + tag + " after " + retries + " retries");
+      return failure;
     }
+
+    long notBefore = 0;
+    if (retryPolicy.isRespectRetryAfter() && retryAfterMillis > 0) {
+      notBefore = System.currentTimeMillis() + retryAfterMillis;
+    }
+    Log.d(TAG, "Retrying " + tag + ", retry " + (retries + 1));
+    store.recordRetry(taskId, notBefore);
+    return Result.retry();
   }
 
   private File writeResponseToTemporaryFile(Context context, String body) {
     FileOutputStream fos = null;
     try {
-      File tempFile = File.createTempFile("flutter_uploader", null, context.getCacheDir());
+      File tempFile =
+          File.createTempFile("flutter_uploader", null, ResponseSpillPolicy.getDirectory(context));
       fos = new FileOutputStream(tempFile);
-      fos.write(body.getBytes());
+      fos.write(body.getBytes(StandardCharsets.UTF_8));
       fos.close();
       return tempFile;
     } catch (Throwable e) {
@@ -348,38 +887,87 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
     return null;
   }
 
-  private void startEngine() {
-    long callbackHandle = SharedPreferenceHelper.getCallbackHandle(context);
+  /**
+   * Loads the task of this worker from the {@link UploadTaskStore}. Work enqueued by earlier
+   * versions of the plugin still carries the whole task in its input data.
+   */
+  @Nullable
+  private UploadTask loadTask() throws IOException {
+    Data input = getInputData();
+
+    if (input.getBoolean(ARG_TASK_STORED, false)) {
+      return new UploadTaskStore(context).load(getId().toString());
+    }
+
+    String headersJson = input.getString(ARG_HEADERS);
+    String parametersJson = input.getString(ARG_DATA);
+    String filesJson = input.getString(ARG_FILES);
+    Map<String, String> headers = null;
+    Map<String, String> parameters = null;
+    List<FileItem> files = null;
+    Type type = new TypeToken<Map<String, String>>() {}.getType();
+    Type fileItemType = new TypeToken<List<FileItem>>() {}.getType();
+
+    if (headersJson != null) {
+      headers = gson.fromJson(headersJson, type);
+    }
 
-    Log.d(TAG, "callbackHandle: " + callbackHandle);
+    if (parametersJson != null) {
+      parameters = gson.fromJson(parametersJson, type);
+    }
 
-    if (callbackHandle != -1L && engine == null) {
-      engine = new FlutterEngine(context);
-      FlutterLoader flutterLoader = FlutterInjector.instance().flutterLoader();
-      flutterLoader.ensureInitializationComplete(context, null);
+    if (filesJson != null) {
+      files = gson.fromJson(filesJson, fileItemType);
+    }
 
-      FlutterCallbackInformation callbackInfo =
-          FlutterCallbackInformation.lookupCallbackInformation(callbackHandle);
-      String dartBundlePath = flutterLoader.findAppBundlePath();
+    UploadTask task =
+        new UploadTask(
+            input.getString(ARG_URL),
+            input.getString(ARG_METHOD),
+            files,
+            headers,
+            parameters,
+            input.getInt(ARG_REQUEST_TIMEOUT, 3600),
+            input.getBoolean(ARG_BINARY_UPLOAD, false),
+            input.getString(ARG_UPLOAD_REQUEST_TAG),
+            true);
+
+    if (input.getBoolean(ARG_RESUMABLE_UPLOAD, false)) {
+      task.setResumable(input.getLong(ARG_CHUNK_SIZE, 0));
+    }
 
-      engine
-          .getDartExecutor()
-          .executeDartCallback(
-              new DartExecutor.DartCallback(context.getAssets(), dartBundlePath, callbackInfo));
+    if (input.getBoolean(ARG_PARALLEL_UPLOAD, false)) {
+      task.setParallel(
+          input.getString(ARG_COMPLETE_URL),
+          input.getLong(ARG_PART_SIZE, 0),
+          input.getInt(ARG_MAX_PARTS_IN_FLIGHT, 0));
     }
+
+    task.setCompression(input.getString(ARG_COMPRESSION));
+    task.setProgressThrottle(
+        input.getLong(ARG_PROGRESS_MIN_BYTES, -1),
+        input.getInt(ARG_PROGRESS_MIN_PERCENT, -1),
+        input.getLong(ARG_PROGRESS_MIN_INTERVAL, -1));
+
+    return task;
   }
 
-  private void stopEngine() {
-    Log.d(TAG, "Destroying worker engine.");
+  private ProgressCoalescer createProgressCoalescer(UploadTask task) {
+    long minBytes = task.getProgressMinBytes();
+    int minPercent = task.getProgressMinPercent();
+    long minInterval = task.getProgressMinInterval();
 
-    if (engine != null) {
-      try {
-        engine.destroy();
-      } catch (Throwable e) {
-        Log.e(TAG, "Can not destroy engine", e);
-      }
-      engine = null;
+    if (minBytes < 0) {
+      minBytes = FlutterUploaderInitializer.getProgressMinBytes(context);
+    }
+    if (minPercent < 0) {
+      minPercent = FlutterUploaderInitializer.getProgressMinPercent(context);
+    }
+    if (minInterval < 0) {
+      minInterval = FlutterUploaderInitializer.getProgressMinInterval(context);
     }
+
+    return new ProgressCoalescer(minBytes, minPercent, minInterval);
   }
 
   private Result handleException(Context context, Exception ex, String code) {
@@ -415,40 +1003,29 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
     return type;
   }
 
-  private MultipartBody.Builder prepareRequest(Map<String, String> parameters, String boundary) {
-
-    MultipartBody.Builder requestBodyBuilder =
-        boundary != null && !boundary.isEmpty()
-            ? new MultipartBody.Builder(boundary)
-            : new MultipartBody.Builder();
-
-    requestBodyBuilder.setType(MultipartBody.FORM);
-
-    if (parameters == null) return requestBodyBuilder;
-
-    for (String key : parameters.keySet()) {
-      String parameter = parameters.get(key);
-      if (parameter != null) {
-        requestBodyBuilder.addFormDataPart(key, parameter);
-      }
-    }
-
-    return requestBodyBuilder;
-  }
-
-  private void sendUpdateProcessEvent(Context context, int status, int progress) {
+  private void sendUpdateProcessEvent(
+      Context context, int status, int progress, long bytesSent, long totalBytes) {
     setProgressAsync(
-        new Data.Builder().putInt("status", status).putInt("progress", progress).build());
+        new Data.Builder()
+            .putInt("status", status)
+            .putInt("progress", progress)
+            .putLong(UploadWorkerOutput.EXTRA_BYTES_SENT, bytesSent)
+            .putLong(UploadWorkerOutput.EXTRA_TOTAL_BYTES, totalBytes)
+            .putLong(UploadWorkerOutput.EXTRA_BYTES_PER_SECOND, throughput.getBytesPerSecond())
+            .putLong(
+                UploadWorkerOutput.EXTRA_TIME_REMAINING,
+                throughput.getTimeRemainingMillis(totalBytes))
+            .build());
   }
 
   private Data createOutputErrorData(
       int status, int statusCode, String code, String message, String[] details) {
     return new Data.Builder()
-        .putInt(UploadWorker.EXTRA_STATUS_CODE, statusCode)
-        .putInt(UploadWorker.EXTRA_STATUS, status)
-        .putString(UploadWorker.EXTRA_ERROR_CODE, code)
-        .putString(UploadWorker.EXTRA_ERROR_MESSAGE, message)
-        .putStringArray(UploadWorker.EXTRA_ERROR_DETAILS, details)
+        .putInt(UploadWorkerOutput.EXTRA_STATUS_CODE, statusCode)
+        .putInt(UploadWorkerOutput.EXTRA_STATUS, status)
+        .putString(UploadWorkerOutput.EXTRA_ERROR_CODE, code)
+        .putString(UploadWorkerOutput.EXTRA_ERROR_MESSAGE, message)
+        .putStringArray(UploadWorkerOutput.EXTRA_ERROR_DETAILS, details)
         .build();
   }
 
@@ -458,8 +1035,10 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
       return;
     }
 
-    double p = ((double) bytesWritten / (double) contentLength) * 100;
-    int progress = (int) Math.round(p);
+    bytesUploaded = Math.max(bytesUploaded, bytesWritten);
+    throughput.update(bytesWritten, System.nanoTime());
+
+    int progress = getProgress(bytesWritten, contentLength);
 
     Log.d(
         TAG,
@@ -472,7 +1051,18 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
             + ", progress: "
             + progress);
 
-    sendUpdateProcessEvent(context, UploadStatus.RUNNING, progress);
+    sendUpdateProcessEvent(context, UploadStatus.RUNNING, progress, bytesWritten, contentLength);
+  }
+
+  /**
+   * Returns the progress in percent, or -1 if the size of the upload is not known, e.g. for a
+   * content URI whose provider does not report it.
+   */
+  static int getProgress(long bytesWritten, long contentLength) {
+    if (contentLength <= 0) {
+      return -1;
+    }
+    return (int) Math.round(((double) bytesWritten / contentLength) * 100);
   }
 
   @Override
@@ -484,6 +1074,12 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
       if (call != null && !call.isCanceled()) {
         call.cancel();
       }
+      ParallelPartUploader uploader = parallelUploader;
+      if (uploader != null) {
+        uploader.cancel();
+      }
+      // Writes which wait for bandwidth do not notice the cancelled call otherwise.
+      BandwidthLimiter.unregister(getId().toString());
     } catch (Exception ex) {
       Log.d(TAG, "Upload Request cancelled", ex);
     }
@@ -503,7 +1099,7 @@ public class UploadWorker extends ListenableWorker implements CountProgressListe
             + code
             + ", error: "
             + message);
-    sendUpdateProcessEvent(context, UploadStatus.FAILED, -1);
+    sendUpdateProcessEvent(context, UploadStatus.FAILED, -1, bytesUploaded, -1);
   }
 
   private String[] getStacktraceAsStringList(StackTraceElement[] stacktrace) {
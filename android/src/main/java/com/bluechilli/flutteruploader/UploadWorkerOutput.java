@@ -0,0 +1,26 @@
+package com.bluechilli.flutteruploader;
+
+/**
+ * Keys of the output and progress {@link androidx.work.Data} which the {@link UploadWorker} reports
+ * and the {@link com.bluechilli.flutteruploader.plugin.UploadObserver} reads.
+ */
+public final class UploadWorkerOutput {
+  public static final String EXTRA_STATUS_CODE = "statusCode";
+  public static final String EXTRA_STATUS = "status";
+  public static final String EXTRA_ERROR_MESSAGE = "errorMessage";
+  public static final String EXTRA_ERROR_CODE = "errorCode";
+  public static final String EXTRA_ERROR_DETAILS = "errorDetails";
+  public static final String EXTRA_RESPONSE = "response";
+  public static final String EXTRA_RESPONSE_FILE = "response_file";
+  public static final String EXTRA_RESPONSE_TRUNCATED = "response_truncated";
+  public static final String EXTRA_DEDUPLICATED = "deduplicated";
+  public static final String EXTRA_ID = "id";
+  public static final String EXTRA_HEADERS = "headers";
+  public static final String EXTRA_METRICS = "metrics";
+  public static final String EXTRA_BYTES_SENT = "bytesSent";
+  public static final String EXTRA_TOTAL_BYTES = "totalBytes";
+  public static final String EXTRA_BYTES_PER_SECOND = "bytesPerSecond";
+  public static final String EXTRA_TIME_REMAINING = "timeRemaining";
+
+  private UploadWorkerOutput() {}
+}
@@ -1,46 +1,270 @@
 package com.bluechilli.flutteruploader.plugin;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import androidx.annotation.Nullable;
 import io.flutter.plugin.common.EventChannel.EventSink;
 import io.flutter.plugin.common.EventChannel.StreamHandler;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 /**
  * A StreamHandler which manages a map of unique items and caches their last status.
  *
+ * <p>The cache holds at most {@code maxEntries} items and drops items which were not updated for
+ * {@code ttlMillis}. When it is full, terminal items which were already delivered to a listener
+ * are evicted first, then the least recently updated ones. All methods are thread-safe.
+ *
+ * <p>With a batch interval set, items are not sent one by one. Instead, the latest item of every
+ * changed id is sent as a single list once per interval. A terminal item is sent right away,
+ * together with everything pending.
+ *
  * @param <T>
  */
 public class CachingStreamHandler<T> implements StreamHandler {
+  private static final String TAG = CachingStreamHandler.class.getSimpleName();
+
   @Nullable private EventSink eventSink;
 
-  Map<String, T> cache = new HashMap<>();
+  private final int maxEntries;
+  private final long ttlMillis;
+
+  // Ordered from least to most recently updated.
+  private final LinkedHashMap<String, Entry<T>> cache = new LinkedHashMap<>();
+  private long estimatedBytes = 0;
+
+  private final LinkedHashSet<String> pendingIds = new LinkedHashSet<>();
+  private final Runnable flush = this::flush;
+  @Nullable private Handler handler;
+  private long batchIntervalMillis = 0;
+
+  public CachingStreamHandler(int maxEntries, long ttlMillis) {
+    this.maxEntries = Math.max(1, maxEntries);
+    this.ttlMillis = ttlMillis;
+  }
 
   @Override
   public void onListen(Object arguments, EventSink events) {
-    eventSink = events;
+    final List<T> items;
+    final boolean batched;
+
+    synchronized (this) {
+      eventSink = events;
+      evictExpired(SystemClock.elapsedRealtime());
+
+      items = new ArrayList<>(cache.size());
+      for (Entry<T> entry : cache.values()) {
+        entry.delivered = true;
+        items.add(entry.item);
+      }
+      pendingIds.clear();
+      batched = batchIntervalMillis > 0;
+    }
 
-    if (!cache.isEmpty()) {
-      for (T item : cache.values()) {
+    if (batched) {
+      if (!items.isEmpty()) {
+        events.success(items);
+      }
+    } else {
+      for (T item : items) {
         events.success(item);
       }
     }
   }
 
   @Override
-  public void onCancel(Object arguments) {
+  public synchronized void onCancel(Object arguments) {
     eventSink = null;
   }
 
   public void add(String id, T args) {
-    if (eventSink != null) {
-      eventSink.success(args);
+    add(id, args, false);
+  }
+
+  /**
+   * Sends {@code args} to the listener and caches it as the last status of {@code id}. Terminal
+   * items will not be followed by further updates, so they can be evicted once delivered.
+   */
+  public void add(String id, T args, boolean terminal) {
+    final EventSink sink;
+
+    synchronized (this) {
+      sink = batchIntervalMillis > 0 ? null : eventSink;
+
+      Entry<T> previous = cache.remove(id);
+      if (previous != null) {
+        estimatedBytes -= previous.estimatedBytes;
+      }
+
+      Entry<T> entry = new Entry<>(args, terminal, sink != null, SystemClock.elapsedRealtime());
+      cache.put(id, entry);
+      estimatedBytes += entry.estimatedBytes;
+
+      evictExpired(entry.updatedAt);
+      trimToSize();
+
+      if (batchIntervalMillis > 0 && eventSink != null) {
+        if (terminal) {
+          // Nothing follows a terminal item, so there is no point in waiting for more updates.
+          handler.removeCallbacks(flush);
+          handler.post(flush);
+        } else if (pendingIds.isEmpty()) {
+          handler.postDelayed(flush, batchIntervalMillis);
+        }
+        pendingIds.add(id);
+      }
     }
 
-    cache.put(id, args);
+    if (sink != null) {
+      sink.success(args);
+    }
   }
 
-  public void clear() {
+  public synchronized void clear() {
     cache.clear();
+    pendingIds.clear();
+    estimatedBytes = 0;
+  }
+
+  /**
+   * Sends items in batches of at most one list per {@code intervalMillis}, or one by one if the
+   * interval is 0. Must be called on the main thread.
+   */
+  public void setBatchInterval(long intervalMillis) {
+    synchronized (this) {
+      if (handler == null) {
+        handler = new Handler(Looper.getMainLooper());
+      }
+      batchIntervalMillis = Math.max(0, intervalMillis);
+    }
+
+    // Deliver whatever is pending with the previous interval.
+    handler.removeCallbacks(flush);
+    flush();
+  }
+
+  private void flush() {
+    final EventSink sink;
+    final List<T> items;
+
+    synchronized (this) {
+      sink = eventSink;
+      items = new ArrayList<>(pendingIds.size());
+      for (String id : pendingIds) {
+        Entry<T> entry = cache.get(id);
+        if (entry != null) {
+          entry.delivered = true;
+          items.add(entry.item);
+        }
+      }
+      pendingIds.clear();
+    }
+
+    if (sink != null && !items.isEmpty()) {
+      sink.success(items);
+    }
+  }
+
+  /** The number of cached items. */
+  public synchronized int size() {
+    return cache.size();
+  }
+
+  /** A rough estimate of the heap used by the cached items, in bytes. */
+  public synchronized long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+
+  private void evictExpired(long now) {
+    int evicted = 0;
+
+    Iterator<Entry<T>> iterator = cache.values().iterator();
+    while (iterator.hasNext()) {
+      Entry<T> entry = iterator.next();
+      if (now - entry.updatedAt < ttlMillis) {
+        break;
+      }
+
+      iterator.remove();
+      estimatedBytes -= entry.estimatedBytes;
+      evicted++;
+    }
+
+    if (evicted > 0) {
+      Log.d(TAG, "Evicted " + evicted + " expired items, " + describeFootprint());
+    }
+  }
+
+  private void trimToSize() {
+    if (cache.size() <= maxEntries) {
+      return;
+    }
+
+    evict(true);
+
+    while (cache.size() > maxEntries) {
+      evict(false);
+    }
+
+    Log.d(TAG, "Cache full, " + describeFootprint());
+  }
+
+  private void evict(boolean deliveredTerminalOnly) {
+    Iterator<Entry<T>> iterator = cache.values().iterator();
+    while (iterator.hasNext() && cache.size() > maxEntries) {
+      Entry<T> entry = iterator.next();
+      if (!deliveredTerminalOnly || (entry.terminal && entry.delivered)) {
+        iterator.remove();
+        estimatedBytes -= entry.estimatedBytes;
+      }
+    }
+  }
+
+  private String describeFootprint() {
+    return cache.size() + " items cached (~" + (estimatedBytes / 1024) + " KB)";
+  }
+
+  private static long estimateBytes(@Nullable Object value) {
+    if (value instanceof String) {
+      return 40 + 2L * ((String) value).length();
+    }
+    if (value instanceof Map) {
+      long bytes = 48;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        bytes += 32 + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+      }
+      return bytes;
+    }
+    if (value instanceof Collection) {
+      long bytes = 40;
+      for (Object item : (Collection<?>) value) {
+        bytes += 8 + estimateBytes(item);
+      }
+      return bytes;
+    }
+    return value != null ? 16 : 0;
+  }
+
+  private static class Entry<T> {
+    final T item;
+    final boolean terminal;
+    final long updatedAt;
+    final long estimatedBytes;
+    boolean delivered;
+
+    Entry(T item, boolean terminal, boolean delivered, long updatedAt) {
+      this.item = item;
+      this.terminal = terminal;
+      this.delivered = delivered;
+      this.updatedAt = updatedAt;
+      this.estimatedBytes = estimateBytes(item);
+    }
   }
 }
@@ -6,7 +6,18 @@ import java.util.Map;
 public interface StatusListener {
   void onEnqueued(String id);
 
-  void onUpdateProgress(String id, int status, int progress);
+  /**
+   * Reports the progress of a running upload. Byte counts, the rate in bytes per second and the
+   * time remaining in milliseconds are -1 if they are not known.
+   */
+  void onUpdateProgress(
+      String id,
+      int status,
+      int progress,
+      long bytesSent,
+      long totalBytes,
+      long bytesPerSecond,
+      long timeRemaining);
 
   void onFailed(
       String id,
@@ -14,14 +25,19 @@ public interface StatusListener {
       int statusCode,
       String code,
       String message,
-      @Nullable String[] details);
+      @Nullable String[] details,
+      @Nullable Map<String, Long> metrics);
 
   void onCompleted(
       String id,
       int status,
       int statusCode,
-      String response,
-      @Nullable Map<String, String> headers);
+      @Nullable String response,
+      @Nullable String responseFile,
+      boolean responseTruncated,
+      boolean deduplicated,
+      @Nullable Map<String, String> headers,
+      @Nullable Map<String, Long> metrics);
 
   void onWorkPruned();
 }
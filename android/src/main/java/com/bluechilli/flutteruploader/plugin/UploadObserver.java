@@ -1,23 +1,35 @@
 package com.bluechilli.flutteruploader.plugin;
 
-import android.text.TextUtils;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.Observer;
 import androidx.work.Data;
 import androidx.work.WorkInfo;
 import com.bluechilli.flutteruploader.UploadStatus;
-import com.bluechilli.flutteruploader.UploadWorker;
+import com.bluechilli.flutteruploader.UploadWorkerOutput;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
+/**
+ * Forwards changes of upload work to a {@link StatusListener}.
+ *
+ * <p>WorkManager delivers the full list of work on every change. The observer remembers the last
+ * state and progress of every task and only forwards tasks which actually changed.
+ */
 public class UploadObserver implements Observer<List<WorkInfo>> {
+  private static final Type HEADERS_TYPE = new TypeToken<Map<String, String>>() {}.getType();
+  private static final Type METRICS_TYPE = new TypeToken<Map<String, Long>>() {}.getType();
+
   private final WeakReference<StatusListener> listener;
   private final Gson gson = new Gson();
+  private final Map<UUID, Snapshot> snapshots = new HashMap<>();
+  private int generation = 0;
 
   public UploadObserver(StatusListener listener) {
     this.listener = new WeakReference<>(listener);
@@ -31,78 +43,129 @@ public class UploadObserver implements Observer<List<WorkInfo>> {
       return;
     }
 
+    generation++;
+
     for (WorkInfo info : workInfoList) {
+      Snapshot snapshot = snapshots.get(info.getId());
+      if (snapshot == null) {
+        snapshot = new Snapshot();
+        snapshots.put(info.getId(), snapshot);
+      }
+
+      snapshot.generation = generation;
+      if (!snapshot.update(info)) {
+        continue;
+      }
+
       String id = info.getId().toString();
 
       switch (info.getState()) {
         case ENQUEUED:
-          {
-            listener.onEnqueued(info.getId().toString());
-          }
+          listener.onEnqueued(id);
+          break;
         case RUNNING:
           {
             Data progress = info.getProgress();
 
             listener.onUpdateProgress(
-                info.getId().toString(),
+                id,
                 progress.getInt("status", -1),
-                progress.getInt("progress", -1));
+                progress.getInt("progress", -1),
+                progress.getLong(UploadWorkerOutput.EXTRA_BYTES_SENT, -1),
+                progress.getLong(UploadWorkerOutput.EXTRA_TOTAL_BYTES, -1),
+                progress.getLong(UploadWorkerOutput.EXTRA_BYTES_PER_SECOND, -1),
+                progress.getLong(UploadWorkerOutput.EXTRA_TIME_REMAINING, -1));
           }
           break;
         case FAILED:
           {
             final Data outputData = info.getOutputData();
-            int failedStatus = outputData.getInt(UploadWorker.EXTRA_STATUS, UploadStatus.FAILED);
-            int statusCode = outputData.getInt(UploadWorker.EXTRA_STATUS_CODE, 500);
-            String code = outputData.getString(UploadWorker.EXTRA_ERROR_CODE);
-            String errorMessage = outputData.getString(UploadWorker.EXTRA_ERROR_MESSAGE);
-            String[] details = outputData.getStringArray(UploadWorker.EXTRA_ERROR_DETAILS);
+            int failedStatus =
+                outputData.getInt(UploadWorkerOutput.EXTRA_STATUS, UploadStatus.FAILED);
+            int statusCode = outputData.getInt(UploadWorkerOutput.EXTRA_STATUS_CODE, 500);
+            String code = outputData.getString(UploadWorkerOutput.EXTRA_ERROR_CODE);
+            String errorMessage = outputData.getString(UploadWorkerOutput.EXTRA_ERROR_MESSAGE);
+            String[] details = outputData.getStringArray(UploadWorkerOutput.EXTRA_ERROR_DETAILS);
 
-            listener.onFailed(id, failedStatus, statusCode, code, errorMessage, details);
+            listener.onFailed(
+                id,
+                failedStatus,
+                statusCode,
+                code,
+                errorMessage,
+                details,
+                parseMetrics(outputData));
           }
           break;
         case CANCELLED:
-          listener.onFailed(id, UploadStatus.CANCELED, 500, "flutter_upload_cancelled", null, null);
+          listener.onFailed(
+              id, UploadStatus.CANCELED, 500, "flutter_upload_cancelled", null, null, null);
           break;
         case SUCCEEDED:
           {
             final Data outputData = info.getOutputData();
-            int status = outputData.getInt(UploadWorker.EXTRA_STATUS, UploadStatus.COMPLETE);
-            int statusCode = outputData.getInt(UploadWorker.EXTRA_STATUS_CODE, 500);
+            int status = outputData.getInt(UploadWorkerOutput.EXTRA_STATUS, UploadStatus.COMPLETE);
+            int statusCode = outputData.getInt(UploadWorkerOutput.EXTRA_STATUS_CODE, 500);
             Map<String, String> headers = null;
-            Type type = new TypeToken<Map<String, String>>() {}.getType();
-            String headerJson = outputData.getString(UploadWorker.EXTRA_HEADERS);
+            String headerJson = outputData.getString(UploadWorkerOutput.EXTRA_HEADERS);
             if (headerJson != null) {
-              headers = gson.fromJson(headerJson, type);
+              headers = gson.fromJson(headerJson, HEADERS_TYPE);
             }
-            String response = extractResponse(outputData);
-            listener.onCompleted(id, status, statusCode, response, headers);
+            String response = outputData.getString(UploadWorkerOutput.EXTRA_RESPONSE);
+            String responseFile = outputData.getString(UploadWorkerOutput.EXTRA_RESPONSE_FILE);
+            boolean responseTruncated =
+                outputData.getBoolean(UploadWorkerOutput.EXTRA_RESPONSE_TRUNCATED, false);
+            boolean deduplicated =
+                outputData.getBoolean(UploadWorkerOutput.EXTRA_DEDUPLICATED, false);
+            listener.onCompleted(
+                id,
+                status,
+                statusCode,
+                response,
+                responseFile,
+                responseTruncated,
+                deduplicated,
+                headers,
+                parseMetrics(outputData));
           }
           break;
       }
     }
-  }
 
-  String extractResponse(Data outputData) {
-    String response = outputData.getString(UploadWorker.EXTRA_RESPONSE);
-    if (TextUtils.isEmpty(response)) {
-      String responseFile = outputData.getString(UploadWorker.EXTRA_RESPONSE_FILE);
-      if (!TextUtils.isEmpty(responseFile)) {
-        StringBuilder buffer = new StringBuilder();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(responseFile))) {
-          String st;
-          while ((st = br.readLine()) != null) {
-            buffer.append(st);
-          }
-          response = buffer.toString();
-
-        } catch (Throwable ignored) {
-          response = "";
+    // Every task in the list has a snapshot, so any extra snapshot belongs to pruned work.
+    if (snapshots.size() > workInfoList.size()) {
+      Iterator<Snapshot> iterator = snapshots.values().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().generation != generation) {
+          iterator.remove();
         }
       }
     }
+  }
+
+  @Nullable
+  private Map<String, Long> parseMetrics(Data outputData) {
+    String metricsJson = outputData.getString(UploadWorkerOutput.EXTRA_METRICS);
+    return metricsJson != null ? gson.fromJson(metricsJson, METRICS_TYPE) : null;
+  }
 
-    return response;
+  private static class Snapshot {
+    @Nullable WorkInfo.State state;
+    @Nullable Data progress;
+    int generation;
+
+    /** Returns true if {@code info} differs from the last seen state of its task. */
+    boolean update(WorkInfo info) {
+      WorkInfo.State newState = info.getState();
+      Data newProgress = newState == WorkInfo.State.RUNNING ? info.getProgress() : null;
+
+      if (newState == state && (newProgress == null || newProgress.equals(progress))) {
+        return false;
+      }
+
+      state = newState;
+      progress = newProgress;
+      return true;
+    }
   }
 }
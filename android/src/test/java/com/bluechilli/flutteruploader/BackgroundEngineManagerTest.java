@@ -0,0 +1,150 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
+import androidx.test.core.app.ApplicationProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
+
+/** Runs the engine lifecycle on a paused main looper, with a fake engine. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class BackgroundEngineManagerTest {
+  private static final long IDLE_TIMEOUT_MILLIS = 30000;
+  private static final long START_MILLIS = 120;
+
+  private Context context;
+  private FakeStarter starter;
+  private BackgroundEngineManager manager;
+
+  @Before
+  public void setUp() {
+    context = ApplicationProvider.getApplicationContext();
+    starter = new FakeStarter(true);
+    manager = new BackgroundEngineManager(context, IDLE_TIMEOUT_MILLIS, starter);
+  }
+
+  @Test
+  public void warmUpStartsTheEngineAheadOfTheWorkers() {
+    manager.warmUp();
+    assertEquals(0, starter.started);
+
+    ShadowLooper.idleMainLooper();
+    assertEquals(1, starter.started);
+
+    // The worker finds the engine running, so starting it did not cost the upload anything.
+    List<Long> startMillis = new ArrayList<>();
+    manager.acquire(startMillis::add);
+    ShadowLooper.idleMainLooper();
+    assertEquals(1, starter.started);
+    assertEquals(Collections.emptyList(), startMillis);
+  }
+
+  @Test
+  public void workersShareTheEngine() {
+    List<Long> first = new ArrayList<>();
+    List<Long> second = new ArrayList<>();
+
+    manager.acquire(first::add);
+    manager.acquire(second::add);
+    ShadowLooper.idleMainLooper();
+
+    assertEquals(1, starter.started);
+    assertEquals(Collections.singletonList(START_MILLIS), first);
+    assertEquals(Collections.emptyList(), second);
+
+    // The engine stays while any worker still uses it.
+    manager.release();
+    ShadowLooper.idleMainLooper(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    assertEquals(0, starter.destroyed);
+
+    manager.release();
+    ShadowLooper.idleMainLooper(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    assertEquals(1, starter.destroyed);
+  }
+
+  @Test
+  public void idleEngineIsTornDown() {
+    manager.warmUp();
+    // The idle timeout begins once the engine is running.
+    ShadowLooper.idleMainLooper();
+    ShadowLooper.idleMainLooper(IDLE_TIMEOUT_MILLIS - 1, TimeUnit.MILLISECONDS);
+    assertEquals(0, starter.destroyed);
+
+    ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+    assertEquals(1, starter.destroyed);
+
+    // The next worker starts a new engine.
+    List<Long> startMillis = new ArrayList<>();
+    manager.acquire(startMillis::add);
+    ShadowLooper.idleMainLooper();
+    assertEquals(2, starter.started);
+    assertEquals(Collections.singletonList(START_MILLIS), startMillis);
+  }
+
+  @Test
+  public void acquireKeepsAWarmEngine() {
+    manager.warmUp();
+    ShadowLooper.idleMainLooper(IDLE_TIMEOUT_MILLIS / 2, TimeUnit.MILLISECONDS);
+
+    manager.acquire(null);
+    ShadowLooper.idleMainLooper(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    assertEquals(1, starter.started);
+    assertEquals(0, starter.destroyed);
+
+    manager.release();
+    ShadowLooper.idleMainLooper(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    assertEquals(1, starter.destroyed);
+  }
+
+  @Test
+  public void nothingIsStartedWithoutABackgroundHandler() {
+    starter = new FakeStarter(false);
+    manager = new BackgroundEngineManager(context, IDLE_TIMEOUT_MILLIS, starter);
+
+    List<Long> startMillis = new ArrayList<>();
+    manager.acquire(startMillis::add);
+    manager.release();
+    ShadowLooper.idleMainLooper(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+    assertEquals(Collections.emptyList(), startMillis);
+    assertEquals(0, starter.started);
+    assertEquals(0, starter.destroyed);
+  }
+
+  /** Takes {@link #START_MILLIS} of the main thread to start an engine, like a real one. */
+  private static class FakeStarter implements BackgroundEngineManager.EngineStarter {
+    private final boolean hasHandler;
+    int started = 0;
+    int destroyed = 0;
+
+    FakeStarter(boolean hasHandler) {
+      this.hasHandler = hasHandler;
+    }
+
+    @Nullable
+    @Override
+    public BackgroundEngineManager.Engine start(Context context) {
+      if (!hasHandler) {
+        return null;
+      }
+
+      SystemClock.sleep(START_MILLIS);
+      started++;
+      return () -> destroyed++;
+    }
+  }
+}
@@ -0,0 +1,242 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class BandwidthLimiterTest {
+
+  @Test
+  public void unlimitedDoesNotWait() throws InterruptedIOException {
+    FakeClock clock = new FakeClock(false);
+    BandwidthLimiter limiter = new BandwidthLimiter(0, clock);
+
+    limiter.acquire(100 * 1024 * 1024);
+
+    assertEquals(0, clock.waits);
+    assertEquals(0, clock.elapsedMillis());
+  }
+
+  @Test
+  public void limitsThroughput() throws InterruptedIOException {
+    FakeClock clock = new FakeClock(false);
+    BandwidthLimiter limiter = new BandwidthLimiter(100 * 1024, clock);
+
+    for (int i = 0; i < 10; i++) {
+      limiter.acquire(10 * 1024);
+    }
+
+    // 100 KB at 100 KB/s, each wait rounded up to the next millisecond.
+    assertTrue(clock.elapsedMillis() >= 1000);
+    assertTrue(clock.elapsedMillis() <= 1010);
+  }
+
+  @Test
+  public void largeWritesAreTakenInSlices() throws InterruptedIOException {
+    FakeClock clock = new FakeClock(false);
+    BandwidthLimiter limiter = new BandwidthLimiter(64 * 1024, clock);
+
+    limiter.acquire(1024 * 1024);
+
+    // One wait per burst of 16 KB.
+    assertEquals(64, clock.waits);
+    assertEquals(16000, clock.elapsedMillis());
+  }
+
+  @Test
+  public void raisingTheRateWakesUpWaitingWriters() throws Exception {
+    FakeClock clock = new FakeClock(true);
+    BandwidthLimiter limiter = new BandwidthLimiter(1024, clock);
+
+    Thread writer = startWriter(() -> limiter.acquire(1024 * 1024));
+
+    assertTrue(clock.waiting.await(5, TimeUnit.SECONDS));
+    limiter.setRate(0);
+    writer.join(5000);
+
+    assertFalse(writer.isAlive());
+  }
+
+  @Test
+  public void taskLimitSetBeforeStartTakesPrecedence() {
+    BandwidthLimiter.setTaskLimit("task", 1024);
+    assertNull(BandwidthLimiter.getTaskLimiter("task"));
+
+    BandwidthLimiter.register("task", 0);
+    BandwidthLimiter limiter = BandwidthLimiter.getTaskLimiter("task");
+    assertEquals(1024, limiter.getRate());
+
+    BandwidthLimiter.setTaskLimit("task", 2048);
+    assertSame(limiter, BandwidthLimiter.getTaskLimiter("task"));
+    assertEquals(2048, limiter.getRate());
+
+    BandwidthLimiter.unregister("task");
+    assertNull(BandwidthLimiter.getTaskLimiter("task"));
+
+    // The pending limit was used up by the first run.
+    BandwidthLimiter.register("task", 0);
+    assertEquals(0, BandwidthLimiter.getTaskLimiter("task").getRate());
+    BandwidthLimiter.unregister("task");
+  }
+
+  @Test
+  public void pendingTaskLimitIsRemovedOnCancel() {
+    BandwidthLimiter.setTaskLimit("task", 1024);
+    BandwidthLimiter.removePendingTaskLimit("task");
+
+    BandwidthLimiter.register("task", 0);
+    assertEquals(0, BandwidthLimiter.getTaskLimiter("task").getRate());
+    BandwidthLimiter.unregister("task");
+  }
+
+  @Test
+  public void unregisterAbortsWaitingWrites() throws Exception {
+    BandwidthLimiter.register("task", 1024);
+    BandwidthLimiter limiter = BandwidthLimiter.getTaskLimiter("task");
+    AtomicBoolean aborted = new AtomicBoolean();
+
+    Thread writer =
+        startWriter(
+            () -> {
+              try {
+                limiter.acquire(1024 * 1024);
+              } catch (InterruptedIOException e) {
+                aborted.set(true);
+              }
+            });
+
+    awaitBlocked(writer);
+    BandwidthLimiter.unregister("task");
+    writer.join(5000);
+
+    assertFalse(writer.isAlive());
+    assertTrue(aborted.get());
+  }
+
+  @Test
+  public void unregisterAbortsWritesWaitingForTheGlobalLimit() throws Exception {
+    BandwidthLimiter.setGlobalLimits(1024, 0);
+    BandwidthLimiter.register("task", 0);
+    BandwidthLimiter owner = BandwidthLimiter.getTaskLimiter("task");
+    AtomicBoolean aborted = new AtomicBoolean();
+
+    try {
+      Thread writer =
+          startWriter(
+              () -> {
+                try {
+                  BandwidthLimiter.getGlobal().acquire(1024 * 1024, owner);
+                } catch (InterruptedIOException e) {
+                  aborted.set(true);
+                }
+              });
+
+      awaitBlocked(writer);
+      BandwidthLimiter.unregister("task");
+      writer.join(5000);
+
+      assertFalse(writer.isAlive());
+      assertTrue(aborted.get());
+    } finally {
+      BandwidthLimiter.setGlobalLimits(0, 0);
+    }
+  }
+
+  @Test
+  public void closedOwnerFailsBeforeTakingBandwidth() throws Exception {
+    BandwidthLimiter.register("task", 0);
+    BandwidthLimiter owner = BandwidthLimiter.getTaskLimiter("task");
+    BandwidthLimiter.unregister("task");
+
+    FakeClock clock = new FakeClock(false);
+    BandwidthLimiter limiter = new BandwidthLimiter(1024, clock);
+    try {
+      limiter.acquire(1024, owner);
+      throw new AssertionError("The write of a cancelled task went through");
+    } catch (InterruptedIOException expected) {
+    }
+    assertEquals(0, clock.waits);
+  }
+
+  @Test
+  public void burstIsUnboundedWithoutALimit() {
+    assertEquals(Long.MAX_VALUE, new BandwidthLimiter(0).getBurstBytes());
+    assertEquals(16 * 1024, new BandwidthLimiter(1024).getBurstBytes());
+    assertEquals(1024 * 1024, new BandwidthLimiter(4 * 1024 * 1024).getBurstBytes());
+  }
+
+  static Thread startWriter(Acquisition acquisition) {
+    Thread writer =
+        new Thread(
+            () -> {
+              try {
+                acquisition.run();
+              } catch (InterruptedIOException ignored) {
+              }
+            });
+    writer.start();
+    return writer;
+  }
+
+  /** Waits until {@code thread} blocks on a monitor, which the limiters of a registry do. */
+  static void awaitBlocked(Thread thread) throws InterruptedException {
+    for (int i = 0; i < 5000; i++) {
+      Thread.State state = thread.getState();
+      if (state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING) {
+        return;
+      }
+      if (state == Thread.State.TERMINATED) {
+        throw new AssertionError("The writer finished without waiting");
+      }
+      Thread.sleep(1);
+    }
+    throw new AssertionError("The writer never waited");
+  }
+
+  interface Acquisition {
+    void run() throws InterruptedIOException;
+  }
+
+  /**
+   * Moves on by the requested time on each wait, or blocks until the limiter is notified if {@code
+   * blocking}.
+   */
+  private static class FakeClock implements BandwidthLimiter.Clock {
+    final CountDownLatch waiting = new CountDownLatch(1);
+    private final boolean blocking;
+    private long nanos = 0;
+    int waits = 0;
+
+    FakeClock(boolean blocking) {
+      this.blocking = blocking;
+    }
+
+    @Override
+    public long nanoTime() {
+      return nanos;
+    }
+
+    @Override
+    public void await(Object lock, long millis) throws InterruptedException {
+      waits++;
+      if (blocking) {
+        waiting.countDown();
+        lock.wait();
+      } else {
+        nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+      }
+    }
+
+    long elapsedMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+  }
+}
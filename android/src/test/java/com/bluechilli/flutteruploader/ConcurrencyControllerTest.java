@@ -0,0 +1,92 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ConcurrencyControllerTest {
+  private static final long WINDOW = ConcurrencyController.WINDOW_NANOS;
+  private static final long MB = 1024 * 1024;
+  private static final long SECOND = 1_000_000_000L;
+
+  @Test
+  public void fixedLimitNeverChanges() {
+    ConcurrencyController controller = new ConcurrencyController(3, 3, 3);
+
+    controller.onUploadFinished(0, SECOND, true, true, WINDOW);
+    controller.onUploadFinished(10 * MB, SECOND, false, true, 2 * WINDOW);
+
+    assertEquals(3, controller.getLimit());
+  }
+
+  @Test
+  public void growsWhileThroughputImproves() {
+    ConcurrencyController controller = new ConcurrencyController(1, 8, 3);
+    long now = System.nanoTime();
+
+    for (int window = 1; window <= 3; window++) {
+      now += WINDOW;
+      // Twice the bytes in every window, at the same speed per upload.
+      controller.onUploadFinished(window * 4 * MB, window * SECOND, false, true, now);
+    }
+
+    assertEquals(6, controller.getLimit());
+  }
+
+  @Test
+  public void stepsBackWithoutThroughputGain() {
+    ConcurrencyController controller = new ConcurrencyController(1, 8, 3);
+    long now = System.nanoTime();
+
+    now += WINDOW;
+    controller.onUploadFinished(4 * MB, SECOND, false, true, now);
+    assertEquals(4, controller.getLimit());
+
+    now += WINDOW;
+    controller.onUploadFinished(4 * MB, SECOND, false, true, now);
+    assertEquals(3, controller.getLimit());
+
+    // Holds the limit for a while before probing again.
+    now += WINDOW;
+    controller.onUploadFinished(4 * MB, SECOND, false, true, now);
+    assertEquals(3, controller.getLimit());
+  }
+
+  @Test
+  public void doesNotGrowWithoutWaitingUploads() {
+    ConcurrencyController controller = new ConcurrencyController(1, 8, 3);
+    long now = System.nanoTime();
+
+    for (int window = 1; window <= 3; window++) {
+      now += WINDOW;
+      controller.onUploadFinished(window * 4 * MB, window * SECOND, false, false, now);
+    }
+
+    assertEquals(3, controller.getLimit());
+  }
+
+  @Test
+  public void shrinksOnNetworkErrors() {
+    ConcurrencyController controller = new ConcurrencyController(1, 16, 10);
+
+    controller.onUploadFinished(0, SECOND, true, true, System.nanoTime());
+    assertEquals(7, controller.getLimit());
+
+    controller.onUploadFinished(0, SECOND, true, true, System.nanoTime());
+    controller.onUploadFinished(0, SECOND, true, true, System.nanoTime());
+    controller.onUploadFinished(0, SECOND, true, true, System.nanoTime());
+    controller.onUploadFinished(0, SECOND, true, true, System.nanoTime());
+    assertEquals(1, controller.getLimit());
+  }
+
+  @Test
+  public void shrinksWhenUploadsSlowDown() {
+    ConcurrencyController controller = new ConcurrencyController(1, 8, 4);
+    long now = System.nanoTime();
+
+    controller.onUploadFinished(MB, SECOND, false, true, now);
+    controller.onUploadFinished(MB, 10 * SECOND, false, true, now);
+
+    assertEquals(3, controller.getLimit());
+  }
+}
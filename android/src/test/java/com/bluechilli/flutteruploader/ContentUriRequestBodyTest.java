@@ -0,0 +1,184 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.ContentProvider;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.core.app.ApplicationProvider;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Uploads content URIs whose read permission is revoked between creating the body and sending it,
+ * which {@link UploadWorker} reports as {@code permission_denied}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ContentUriRequestBodyTest {
+  private static final String AUTHORITY = "com.bluechilli.flutteruploader.test";
+  private static final Uri URI = Uri.parse("content://" + AUTHORITY + "/file.bin");
+
+  private MockWebServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+    server.enqueue(new MockResponse());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  public void revokedPermissionOfKnownSizeFailsTheUpload() {
+    UnknownSizeProvider.size = 10L;
+
+    ContentUriRequestBody body = createBody();
+    assertEquals(10, body.contentLength());
+    assertPermissionDenied(body);
+  }
+
+  @Test
+  public void revokedPermissionOfUnknownSizeFailsTheUpload() {
+    UnknownSizeProvider.size = null;
+
+    ContentUriRequestBody body = createBody();
+    assertEquals(-1, body.contentLength());
+    assertPermissionDenied(body);
+  }
+
+  /** Creates the body while the app may read the content, then revokes the permission. */
+  private static ContentUriRequestBody createBody() {
+    Robolectric.setupContentProvider(UnknownSizeProvider.class, AUTHORITY);
+    ContentResolver resolver = ApplicationProvider.getApplicationContext().getContentResolver();
+    ContentUriRequestBody body = ContentUriRequestBody.create(resolver, URI);
+    assertNotNull(body);
+
+    shadowOf(resolver)
+        .registerInputStreamSupplier(
+            URI,
+            () -> {
+              throw new SecurityException("Permission Denial: reading " + URI);
+            });
+    return body;
+  }
+
+  private void assertPermissionDenied(ContentUriRequestBody body) {
+    RecordingListener listener = new RecordingListener();
+    Request request =
+        new Request.Builder()
+            .url(server.url("/upload"))
+            .post(new CountingRequestBody(body, "task", listener))
+            .build();
+
+    try (Response response = new OkHttpClient().newCall(request).execute()) {
+      throw new AssertionError("Uploaded without permission: " + response.code());
+    } catch (IOException e) {
+      // The cause is what the worker turns into permission_denied.
+      assertTrue(e.getCause() instanceof SecurityException);
+    }
+    assertEquals(1, listener.errors);
+  }
+
+  /** A provider whose files have the given size, or an unknown one like a pipe. */
+  public static class UnknownSizeProvider extends ContentProvider {
+    @Nullable static Long size;
+
+    @Override
+    public boolean onCreate() {
+      return true;
+    }
+
+    @Override
+    public Cursor query(
+        @NonNull Uri uri,
+        @Nullable String[] projection,
+        @Nullable String selection,
+        @Nullable String[] selectionArgs,
+        @Nullable String sortOrder) {
+      MatrixCursor cursor =
+          new MatrixCursor(new String[] {OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE});
+      cursor.addRow(new Object[] {"file.bin", size});
+      return cursor;
+    }
+
+    @Override
+    public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode)
+        throws FileNotFoundException {
+      try {
+        // Robolectric can not tell the size of a closed descriptor, as Android of a pipe.
+        ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createPipe();
+        pipe[0].close();
+        pipe[1].close();
+        return pipe[0];
+      } catch (IOException e) {
+        throw new FileNotFoundException(e.toString());
+      }
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+      return "application/octet-stream";
+    }
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+      return null;
+    }
+
+    @Override
+    public int delete(
+        @NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+      return 0;
+    }
+
+    @Override
+    public int update(
+        @NonNull Uri uri,
+        @Nullable ContentValues values,
+        @Nullable String selection,
+        @Nullable String[] selectionArgs) {
+      return 0;
+    }
+  }
+
+  private static class RecordingListener implements CountProgressListener {
+    int errors = 0;
+
+    @Override
+    public void OnProgress(String taskId, long bytesWritten, long contentLength) {}
+
+    @Override
+    public void OnError(String taskId, String code, String message) {
+      errors++;
+    }
+  }
+}
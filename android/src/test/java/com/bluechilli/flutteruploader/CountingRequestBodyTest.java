@@ -0,0 +1,99 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import org.junit.After;
+import org.junit.Test;
+
+public class CountingRequestBodyTest {
+  private static final MediaType CONTENT_TYPE = MediaType.parse("application/octet-stream");
+
+  @After
+  public void tearDown() {
+    BandwidthLimiter.unregister("task");
+  }
+
+  @Test
+  public void cancellingAThrottledMultipartBodyFailsTheWrite() throws Exception {
+    BandwidthLimiter.register("task", 1024);
+    RecordingListener listener = new RecordingListener();
+    RequestBody multipart =
+        new MultipartBody.Builder()
+            .setType(MultipartBody.FORM)
+            .addFormDataPart(
+                "file", "file.bin", RequestBody.create(new byte[64 * 1024], CONTENT_TYPE))
+            .build();
+    CountingRequestBody body = new CountingRequestBody(multipart, "task", listener);
+    AtomicReference<IOException> failure = new AtomicReference<>();
+
+    Thread writer =
+        new Thread(
+            () -> {
+              try {
+                body.writeTo(new Buffer());
+              } catch (IOException e) {
+                failure.set(e);
+              }
+            });
+    writer.start();
+
+    BandwidthLimiterTest.awaitBlocked(writer);
+    BandwidthLimiter.unregister("task");
+    writer.join(5000);
+
+    assertFalse(writer.isAlive());
+    assertTrue(failure.get() instanceof InterruptedIOException);
+    assertEquals(1, listener.errors);
+  }
+
+  @Test
+  public void failuresOfTheBodyAreReportedOnceAndRethrown() {
+    RecordingListener listener = new RecordingListener();
+    CountingRequestBody body =
+        new CountingRequestBody(
+            new RequestBody() {
+              @Override
+              public MediaType contentType() {
+                return CONTENT_TYPE;
+              }
+
+              @Override
+              public void writeTo(@NonNull BufferedSink sink) throws IOException {
+                throw new IOException("Permission denied");
+              }
+            },
+            "task",
+            listener);
+
+    try {
+      body.writeTo(new Buffer());
+      throw new AssertionError("The failure of the body was swallowed");
+    } catch (IOException e) {
+      assertEquals("Permission denied", e.getMessage());
+    }
+    assertEquals(1, listener.errors);
+  }
+
+  private static class RecordingListener implements CountProgressListener {
+    volatile int errors = 0;
+
+    @Override
+    public void OnProgress(String taskId, long bytesWritten, long contentLength) {}
+
+    @Override
+    public void OnError(String taskId, String code, String message) {
+      errors++;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import okhttp3.MediaType;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileRequestBodyTest {
+  private static final MediaType CONTENT_TYPE = MediaType.parse("application/octet-stream");
+
+  private File file;
+  private byte[] content;
+
+  @Before
+  public void setUp() throws IOException {
+    content = new byte[3 * 1024 * 1024 + 123];
+    new Random(42).nextBytes(content);
+
+    file = File.createTempFile("flutter_uploader", null);
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      sink.write(content);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void writesTheWholeFile() throws IOException {
+    RecordingListener listener = new RecordingListener();
+    FileRequestBody body =
+        new FileRequestBody(
+            file, CONTENT_TYPE, 64 * 1024, "task", listener, ProgressCoalescer.unthrottled());
+
+    Buffer buffer = new Buffer();
+    body.writeTo(buffer);
+
+    assertEquals(content.length, body.contentLength());
+    assertEquals(ByteString.of(content), buffer.readByteString());
+    assertEquals(content.length, listener.lastBytesWritten);
+    // One update per chunk, instead of one per 8 KiB segment.
+    assertEquals((content.length + 64 * 1024 - 1) / (64 * 1024), listener.updates);
+  }
+
+  private static class RecordingListener implements CountProgressListener {
+    long lastBytesWritten = 0;
+    int updates = 0;
+
+    @Override
+    public void OnProgress(String taskId, long bytesWritten, long contentLength) {
+      lastBytesWritten = bytesWritten;
+      updates++;
+    }
+
+    @Override
+    public void OnError(String taskId, String code, String message) {}
+  }
+}
@@ -0,0 +1,173 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.HashMap;
+import java.util.Map;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.BufferedSink;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ParallelPartUploaderTest {
+  private static final MediaType CONTENT_TYPE = MediaType.parse("application/octet-stream");
+
+  private MockWebServer server;
+  private PartDispatcher dispatcher;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("flutter_uploader", ".bin");
+    write("0123456789");
+
+    dispatcher = new PartDispatcher();
+    server = new MockWebServer();
+    server.setDispatcher(dispatcher);
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+    file.delete();
+  }
+
+  @Test
+  public void splitsTheFileAndCollectsTheETags() throws Exception {
+    try (Response response = createUploader(3).upload()) {
+      assertEquals(200, response.code());
+    }
+
+    assertEquals(3, dispatcher.parts.size());
+    assertPart(dispatcher.parts.get("1"), "bytes 0-3/10", "0123");
+    assertPart(dispatcher.parts.get("2"), "bytes 4-7/10", "4567");
+    assertPart(dispatcher.parts.get("3"), "bytes 8-9/10", "89");
+    assertEquals(
+        "{\"parts\":[{\"partNumber\":1,\"etag\":\"etag-1\"},"
+            + "{\"partNumber\":2,\"etag\":\"etag-2\"},"
+            + "{\"partNumber\":3,\"etag\":\"etag-3\"}]}",
+        dispatcher.completion);
+  }
+
+  @Test
+  public void firstRejectionIsReturned() throws Exception {
+    dispatcher.rejectedPart = "2";
+
+    try (Response response = createUploader(1).upload()) {
+      assertEquals(403, response.code());
+      assertEquals("part 2 denied", response.body().string());
+    }
+
+    // Parts are sent one by one, so the third one is never started.
+    assertEquals(2, dispatcher.parts.size());
+    assertNull(dispatcher.completion);
+  }
+
+  @Test
+  public void missingETagFails() throws Exception {
+    dispatcher.partWithoutETag = "3";
+
+    try {
+      createUploader(3).upload();
+      fail("Expected a protocol error");
+    } catch (ProtocolException expected) {
+    }
+
+    assertNull(dispatcher.completion);
+  }
+
+  @Test
+  public void emptyFileOnlyCompletes() throws Exception {
+    write("");
+
+    try (Response response = createUploader(3).upload()) {
+      assertEquals(200, response.code());
+    }
+
+    assertEquals(0, dispatcher.parts.size());
+    assertEquals("{\"parts\":[]}", dispatcher.completion);
+  }
+
+  private ParallelPartUploader createUploader(int maxPartsInFlight) {
+    return new ParallelPartUploader(
+        new OkHttpClient(),
+        "task",
+        server.url("/upload").toString(),
+        server.url("/complete").toString(),
+        null,
+        file,
+        CONTENT_TYPE,
+        4,
+        maxPartsInFlight,
+        new CountProgressListener() {
+          @Override
+          public void OnProgress(String taskId, long bytesWritten, long contentLength) {}
+
+          @Override
+          public void OnError(String taskId, String code, String message) {}
+        },
+        ProgressCoalescer.unthrottled());
+  }
+
+  private void write(String content) throws IOException {
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      sink.writeUtf8(content);
+    }
+  }
+
+  private static void assertPart(RecordedRequest request, String contentRange, String body) {
+    assertEquals("PUT", request.getMethod());
+    assertEquals(contentRange, request.getHeader("Content-Range"));
+    assertEquals(body, request.getBody().readUtf8());
+  }
+
+  /** Answers parts with an ETag per part number and records the completion request. */
+  private static class PartDispatcher extends Dispatcher {
+    final Map<String, RecordedRequest> parts = new HashMap<>();
+    volatile String completion;
+    volatile String rejectedPart;
+    volatile String partWithoutETag;
+
+    @NonNull
+    @Override
+    public MockResponse dispatch(@NonNull RecordedRequest request) {
+      if (request.getPath().startsWith("/complete")) {
+        completion = request.getBody().readUtf8();
+        return new MockResponse().setResponseCode(200);
+      }
+
+      String partNumber = request.getRequestUrl().queryParameter("partNumber");
+      synchronized (parts) {
+        parts.put(partNumber, request);
+      }
+
+      if (partNumber.equals(rejectedPart)) {
+        return new MockResponse().setResponseCode(403).setBody("part " + partNumber + " denied");
+      }
+      if (partNumber.equals(partWithoutETag)) {
+        return new MockResponse().setResponseCode(200);
+      }
+      return new MockResponse().setResponseCode(200).setHeader("ETag", "etag-" + partNumber);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.Okio;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ResponseSpillPolicyTest {
+  private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+  private static final int THRESHOLD = 1024;
+
+  // Not a multiple of the size of a read, so the last read is a partial one.
+  private static final int MAX_BYTES = 20000;
+
+  private Context context;
+  private File directory;
+  private ResponseSpillPolicy policy;
+
+  @Before
+  public void setUp() {
+    context = ApplicationProvider.getApplicationContext();
+    directory = ResponseSpillPolicy.getDirectory(context);
+    policy = new ResponseSpillPolicy(THRESHOLD, MAX_BYTES);
+  }
+
+  @Test
+  public void bodyOfThresholdSizeIsInline() throws IOException {
+    String content = content(THRESHOLD);
+
+    ResponseSpillPolicy.SpilledBody body = policy.read(body(content), directory);
+
+    assertEquals(content, body.inline);
+    assertNull(body.file);
+    assertFalse(body.truncated);
+  }
+
+  @Test
+  public void bodyAboveThresholdIsSpilled() throws IOException {
+    String content = content(THRESHOLD + 1);
+
+    ResponseSpillPolicy.SpilledBody body = policy.read(body(content), directory);
+
+    assertNull(body.inline);
+    assertFalse(body.truncated);
+    assertEquals(content, readFile(body.file));
+  }
+
+  @Test
+  public void bodyOfMaxSizeIsNotTruncated() throws IOException {
+    String content = content(MAX_BYTES);
+
+    ResponseSpillPolicy.SpilledBody body = policy.read(body(content), directory);
+
+    assertFalse(body.truncated);
+    assertEquals(content, readFile(body.file));
+  }
+
+  @Test
+  public void bodyAboveMaxSizeIsTruncated() throws IOException {
+    String content = content(MAX_BYTES + 1);
+
+    ResponseSpillPolicy.SpilledBody body = policy.read(body(content), directory);
+
+    assertTrue(body.truncated);
+    assertEquals(content.substring(0, MAX_BYTES), readFile(body.file));
+  }
+
+  @Test
+  public void readInlineKeepsBodiesOfThresholdSize() throws IOException {
+    String content = content(THRESHOLD);
+
+    ResponseSpillPolicy.SpilledBody body = policy.readInline(body(content));
+
+    assertEquals(content, body.inline);
+    assertFalse(body.truncated);
+  }
+
+  @Test
+  public void readInlineTruncatesLargerBodies() throws IOException {
+    String content = content(THRESHOLD + 1);
+
+    ResponseSpillPolicy.SpilledBody body = policy.readInline(body(content));
+
+    assertEquals(content.substring(0, THRESHOLD), body.inline);
+    assertNull(body.file);
+    assertTrue(body.truncated);
+  }
+
+  @Test
+  public void deleteFilesKeepsNewerFiles() throws IOException {
+    File old = policy.read(body(content(THRESHOLD + 1)), directory).file;
+    File recent = policy.read(body(content(THRESHOLD + 1)), directory).file;
+    assertTrue(old.setLastModified(1000));
+    assertTrue(recent.setLastModified(3000));
+
+    ResponseSpillPolicy.deleteFiles(context, 2000);
+
+    assertFalse(old.exists());
+    assertTrue(recent.exists());
+  }
+
+  private static String content(int length) {
+    char[] chars = new char[length];
+    Arrays.fill(chars, 'x');
+    return new String(chars);
+  }
+
+  private static ResponseBody body(String content) {
+    return ResponseBody.create(content, JSON);
+  }
+
+  private static String readFile(File file) throws IOException {
+    assertNotNull(file);
+    try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+      return source.readUtf8();
+    }
+  }
+}
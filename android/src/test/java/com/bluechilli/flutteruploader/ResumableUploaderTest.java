@@ -0,0 +1,232 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.ProtocolException;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.BufferedSink;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ResumableUploaderTest {
+  private static final String TASK_ID = "task";
+  private static final String CONTENT = "0123456789";
+
+  private MockWebServer server;
+  private ResumableUploadStore store;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    Context context = ApplicationProvider.getApplicationContext();
+    store = new ResumableUploadStore(context);
+    store.clear(TASK_ID);
+
+    file = File.createTempFile("flutter_uploader", ".bin");
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      sink.writeUtf8(CONTENT);
+    }
+
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+    file.delete();
+  }
+
+  @Test
+  public void createsTheUploadAndSendsChunks() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    server.enqueue(offset(204, 4));
+    server.enqueue(offset(204, 8));
+    server.enqueue(offset(204, 10));
+
+    try (Response response = createUploader().upload()) {
+      assertEquals(204, response.code());
+    }
+
+    RecordedRequest create = server.takeRequest();
+    assertEquals("POST", create.getMethod());
+    assertEquals("10", create.getHeader("Upload-Length"));
+    assertEquals("1.0.0", create.getHeader("Tus-Resumable"));
+
+    assertPatch(server.takeRequest(), 0, "0123");
+    assertPatch(server.takeRequest(), 4, "4567");
+    assertPatch(server.takeRequest(), 8, "89");
+    assertEquals(10, store.getOffset(TASK_ID));
+  }
+
+  @Test
+  public void resumesAtTheOffsetOfTheServer() throws Exception {
+    store.saveUploadUrl(TASK_ID, server.url("/files/1").toString());
+    server.enqueue(offset(200, 6));
+    server.enqueue(offset(204, 10));
+
+    try (Response response = createUploader().upload()) {
+      assertEquals(204, response.code());
+    }
+
+    RecordedRequest head = server.takeRequest();
+    assertEquals("HEAD", head.getMethod());
+    assertEquals("/files/1", head.getPath());
+
+    RecordedRequest patch = server.takeRequest();
+    assertEquals("6", patch.getHeader("Upload-Offset"));
+    assertEquals("6789", patch.getBody().readUtf8());
+    assertEquals(2, server.getRequestCount());
+  }
+
+  @Test
+  public void recoversFromAConflict() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    server.enqueue(new MockResponse().setResponseCode(409));
+    server.enqueue(offset(200, 4));
+    server.enqueue(offset(204, 8));
+    server.enqueue(offset(204, 10));
+
+    try (Response response = createUploader().upload()) {
+      assertEquals(204, response.code());
+    }
+
+    server.takeRequest();
+    assertPatch(server.takeRequest(), 0, "0123");
+    assertEquals("HEAD", server.takeRequest().getMethod());
+    assertPatch(server.takeRequest(), 4, "4567");
+    assertPatch(server.takeRequest(), 8, "89");
+  }
+
+  @Test
+  public void serverErrorKeepsTheCheckpoint() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    server.enqueue(offset(204, 4));
+    server.enqueue(new MockResponse().setResponseCode(503));
+
+    try {
+      createUploader().upload();
+      fail("Expected the upload to be interrupted");
+    } catch (IOException e) {
+      // Not a protocol error, so the worker resumes the upload later.
+      assertFalse(e instanceof ProtocolException);
+    }
+
+    assertEquals(server.url("/files/1").toString(), store.getUploadUrl(TASK_ID));
+    assertEquals(4, store.getOffset(TASK_ID));
+  }
+
+  @Test
+  public void missingUploadIsCreatedAgain() throws Exception {
+    store.saveUploadUrl(TASK_ID, server.url("/files/gone").toString());
+    server.enqueue(new MockResponse().setResponseCode(404));
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/2"));
+    server.enqueue(offset(204, 10));
+
+    try (Response response = createUploader(0).upload()) {
+      assertEquals(204, response.code());
+    }
+
+    assertEquals("HEAD", server.takeRequest().getMethod());
+    assertEquals("POST", server.takeRequest().getMethod());
+    assertEquals("/files/2", server.takeRequest().getPath());
+  }
+
+  @Test
+  public void repeatedConflictsFail() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    for (int i = 0; i < 10; i++) {
+      server.enqueue(new MockResponse().setResponseCode(409));
+      server.enqueue(offset(200, 0));
+    }
+
+    try {
+      createUploader().upload();
+      fail("Expected a protocol error");
+    } catch (ProtocolException expected) {
+    }
+
+    // The creation, then four rejected PATCH requests with three HEAD requests in between.
+    assertEquals(8, server.getRequestCount());
+  }
+
+  @Test
+  public void serverWhichAcceptsNoBytesFails() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/files/1"));
+    for (int i = 0; i < 10; i++) {
+      server.enqueue(offset(204, 0));
+    }
+
+    try {
+      createUploader().upload();
+      fail("Expected a protocol error");
+    } catch (ProtocolException expected) {
+    }
+
+    assertEquals(4, server.getRequestCount());
+  }
+
+  @Test
+  public void rejectedCreationIsReturned() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(413));
+
+    try (Response response = createUploader().upload()) {
+      assertEquals(413, response.code());
+    }
+
+    assertNull(store.getUploadUrl(TASK_ID));
+  }
+
+  private ResumableUploader createUploader() {
+    return createUploader(4);
+  }
+
+  private ResumableUploader createUploader(long chunkSize) {
+    return new ResumableUploader(
+        new OkHttpClient(),
+        store,
+        TASK_ID,
+        server.url("/files").toString(),
+        null,
+        file,
+        chunkSize,
+        new CountProgressListener() {
+          @Override
+          public void OnProgress(String taskId, long bytesWritten, long contentLength) {}
+
+          @Override
+          public void OnError(String taskId, String code, String message) {}
+        },
+        ProgressCoalescer.unthrottled());
+  }
+
+  private static MockResponse offset(int code, long offset) {
+    return new MockResponse().setResponseCode(code).setHeader("Upload-Offset", offset);
+  }
+
+  private static void assertPatch(RecordedRequest request, long offset, String body) {
+    assertEquals("PATCH", request.getMethod());
+    assertEquals("/files/1", request.getPath());
+    assertEquals(String.valueOf(offset), request.getHeader("Upload-Offset"));
+    assertEquals("application/offset+octet-stream", request.getHeader("Content-Type"));
+    assertEquals(body, request.getBody().readUtf8());
+  }
+}
@@ -0,0 +1,63 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import javax.net.ssl.SSLHandshakeException;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+  @Test
+  public void classifiesStatusCodes() {
+    RetryPolicy policy = RetryPolicy.withMaxRetries(3);
+
+    assertTrue(policy.isTransient(408));
+    assertTrue(policy.isTransient(429));
+    assertTrue(policy.isTransient(500));
+    assertTrue(policy.isTransient(503));
+    assertFalse(policy.isTransient(400));
+    assertFalse(policy.isTransient(401));
+    assertFalse(policy.isTransient(404));
+    assertFalse(policy.isTransient(413));
+  }
+
+  @Test
+  public void customStatusCodesReplaceTheDefaults() {
+    RetryPolicy policy = new RetryPolicy(3, 1000, true, new int[] {409, 503});
+
+    assertTrue(policy.isTransient(409));
+    assertTrue(policy.isTransient(503));
+    assertFalse(policy.isTransient(500));
+  }
+
+  @Test
+  public void classifiesExceptions() {
+    assertTrue(RetryPolicy.isTransient(new SocketTimeoutException()));
+    assertTrue(RetryPolicy.isTransient(new InterruptedIOException()));
+    assertTrue(RetryPolicy.isTransient(new UnknownHostException()));
+    assertTrue(RetryPolicy.isTransient(new IOException("unexpected end of stream")));
+    assertFalse(RetryPolicy.isTransient(new FileNotFoundException()));
+    assertFalse(RetryPolicy.isTransient(new ProtocolException()));
+    assertFalse(RetryPolicy.isTransient(new SSLHandshakeException("bad certificate")));
+    assertFalse(RetryPolicy.isTransient(new IllegalStateException()));
+  }
+
+  @Test
+  public void parsesRetryAfter() {
+    long now = 784111777000L - 120000;
+
+    assertEquals(120000, RetryPolicy.parseRetryAfter("120", now));
+    assertEquals(120000, RetryPolicy.parseRetryAfter("Sun, 06 Nov 1994 08:49:37 GMT", now));
+    assertEquals(0, RetryPolicy.parseRetryAfter("Sun, 06 Nov 1994 08:49:37 GMT", now + 240000));
+    assertEquals(-1, RetryPolicy.parseRetryAfter(null, now));
+    assertEquals(-1, RetryPolicy.parseRetryAfter("soon", now));
+  }
+}
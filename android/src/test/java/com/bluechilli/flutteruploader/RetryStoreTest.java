@@ -0,0 +1,59 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.test.core.app.ApplicationProvider;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RetryStoreTest {
+  private RetryStore store;
+
+  @Before
+  public void setUp() {
+    store = new RetryStore(ApplicationProvider.getApplicationContext());
+  }
+
+  @Test
+  public void retriesAndResumesAreCountedApart() {
+    store.recordRetry("task", 5000);
+    store.recordResume("task");
+    store.recordResume("task");
+
+    assertEquals(1, store.getRetries("task"));
+    assertEquals(2, store.getResumes("task"));
+    assertEquals(5000, store.getNotBefore("task"));
+  }
+
+  @Test
+  public void clearRemovesEverything() {
+    store.recordRetry("task", 5000);
+    store.recordResume("task");
+
+    store.clear("task");
+
+    assertEquals(0, store.getRetries("task"));
+    assertEquals(0, store.getResumes("task"));
+    assertEquals(0, store.getNotBefore("task"));
+  }
+
+  @Test
+  public void retainAllKeepsTheGivenTasks() {
+    store.recordResume("kept");
+    store.recordResume("dropped");
+    store.recordRetry("dropped", 5000);
+
+    store.retainAll(Collections.singletonList("kept"));
+
+    assertEquals(1, store.getResumes("kept"));
+    assertEquals(0, store.getResumes("dropped"));
+    assertEquals(0, store.getRetries("dropped"));
+    assertEquals(0, store.getNotBefore("dropped"));
+  }
+}
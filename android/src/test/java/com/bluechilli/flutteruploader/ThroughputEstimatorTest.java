@@ -0,0 +1,82 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ThroughputEstimatorTest {
+
+  @Test
+  public void unknownUntilTwoSamples() {
+    ThroughputEstimator estimator = new ThroughputEstimator();
+
+    assertEquals(-1, estimator.getBytesPerSecond());
+    assertEquals(-1, estimator.getTimeRemainingMillis(1000));
+
+    estimator.update(100, seconds(1));
+
+    assertEquals(-1, estimator.getBytesPerSecond());
+    assertEquals(-1, estimator.getTimeRemainingMillis(1000));
+  }
+
+  @Test
+  public void steadyRate() {
+    ThroughputEstimator estimator = new ThroughputEstimator();
+
+    for (int i = 0; i <= 10; i++) {
+      estimator.update(i * 1000L, seconds(i));
+    }
+
+    assertEquals(1000, estimator.getBytesPerSecond());
+    assertEquals(5000, estimator.getTimeRemainingMillis(15000));
+  }
+
+  @Test
+  public void irregularSamplesAreWeightedByTime() {
+    ThroughputEstimator frequent = new ThroughputEstimator(1000);
+    ThroughputEstimator coarse = new ThroughputEstimator(1000);
+
+    for (int i = 0; i <= 100; i++) {
+      frequent.update(i * 100L, TimeUnit.MILLISECONDS.toNanos(i * 100L));
+    }
+    coarse.update(0, 0);
+    coarse.update(10000, seconds(10));
+
+    // Both saw 1000 bytes per second, then the rate drops to 100 for two half-lives.
+    for (int i = 1; i <= 20; i++) {
+      frequent.update(10000 + i * 10L, seconds(10) + TimeUnit.MILLISECONDS.toNanos(i * 100L));
+    }
+    coarse.update(10200, seconds(12));
+
+    assertEquals(325, frequent.getBytesPerSecond(), 5);
+    assertEquals(325, coarse.getBytesPerSecond(), 5);
+  }
+
+  @Test
+  public void restartsWhenTheUploadStartsOver() {
+    ThroughputEstimator estimator = new ThroughputEstimator();
+    estimator.update(0, 0);
+    estimator.update(5000, seconds(1));
+
+    estimator.update(0, seconds(2));
+
+    assertEquals(5000, estimator.getBytesPerSecond());
+    assertEquals(2000, estimator.getTimeRemainingMillis(10000));
+  }
+
+  @Test
+  public void completedUploadHasNoTimeRemaining() {
+    ThroughputEstimator estimator = new ThroughputEstimator();
+    estimator.update(0, 0);
+    estimator.update(1000, seconds(1));
+
+    assertEquals(0, estimator.getTimeRemainingMillis(1000));
+    assertTrue(estimator.getBytesPerSecond() > 0);
+  }
+
+  private static long seconds(long seconds) {
+    return TimeUnit.SECONDS.toNanos(seconds);
+  }
+}
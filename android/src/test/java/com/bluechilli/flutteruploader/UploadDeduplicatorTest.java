@@ -0,0 +1,263 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.OpenableColumns;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.core.app.ApplicationProvider;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class UploadDeduplicatorTest {
+  private static final String AUTHORITY = "com.bluechilli.flutteruploader.test";
+  private static final Uri DOCUMENT = Uri.parse("content://" + AUTHORITY + "/document");
+
+  private Context context;
+  private DeduplicationDatabase database;
+  private UploadDeduplicator deduplicator;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    context = ApplicationProvider.getApplicationContext();
+    database = new DeduplicationDatabase(context, null, 2, 3);
+    deduplicator = new UploadDeduplicator(context.getContentResolver(), database);
+    file = File.createTempFile("flutter_uploader", ".bin");
+    write(file, "first");
+  }
+
+  @After
+  public void tearDown() {
+    database.close();
+    file.delete();
+  }
+
+  @Test
+  public void keyDependsOnTheRequest() throws IOException {
+    String key = deduplicator.getKey(createTask("POST", "http://host/a", null, "value"));
+
+    assertEquals(key, deduplicator.getKey(createTask("POST", "http://host/a", null, "value")));
+    assertNotEquals(key, deduplicator.getKey(createTask("PUT", "http://host/a", null, "value")));
+    assertNotEquals(key, deduplicator.getKey(createTask("POST", "http://host/b", null, "value")));
+    assertNotEquals(key, deduplicator.getKey(createTask("POST", "http://host/a", null, "other")));
+
+    write(file, "other");
+    assertNotEquals(key, deduplicator.getKey(createTask("POST", "http://host/a", null, "value")));
+  }
+
+  @Test
+  public void keyDependsOnTheScopeNotTheHeaders() throws IOException {
+    Map<String, String> token = Collections.singletonMap("Authorization", "Bearer token");
+    Map<String, String> refreshed = Collections.singletonMap("Authorization", "Bearer refreshed");
+
+    UploadTask alice = createTask("POST", "http://host/a", token, "value");
+    alice.setDeduplicationScope("alice");
+    String key = deduplicator.getKey(alice);
+
+    UploadTask aliceRefreshed = createTask("POST", "http://host/a", refreshed, "value");
+    aliceRefreshed.setDeduplicationScope("alice");
+    assertEquals(key, deduplicator.getKey(aliceRefreshed));
+
+    UploadTask bob = createTask("POST", "http://host/a", token, "value");
+    bob.setDeduplicationScope("bob");
+    assertNotEquals(key, deduplicator.getKey(bob));
+    assertNotEquals(key, deduplicator.getKey(createTask("POST", "http://host/a", token, "value")));
+  }
+
+  @Test
+  public void hashOfContentIsCachedWhileSizeAndModificationTimeMatch() throws IOException {
+    Robolectric.setupContentProvider(DocumentProvider.class, AUTHORITY);
+    AtomicInteger reads = new AtomicInteger();
+    shadowOf(context.getContentResolver())
+        .registerInputStreamSupplier(
+            DOCUMENT,
+            () -> {
+              reads.incrementAndGet();
+              return new ByteArrayInputStream(DocumentProvider.content.getBytes(UTF_8));
+            });
+
+    DocumentProvider.content = "first";
+    DocumentProvider.modified = 1000L;
+    String hash = deduplicator.getHash(DOCUMENT);
+    assertEquals(ByteString.encodeUtf8("first").sha256().hex(), hash);
+    assertEquals(hash, deduplicator.getHash(DOCUMENT));
+    assertEquals(1, reads.get());
+
+    DocumentProvider.content = "fir5t";
+    DocumentProvider.modified = 2000L;
+    assertEquals(ByteString.encodeUtf8("fir5t").sha256().hex(), deduplicator.getHash(DOCUMENT));
+    assertEquals(2, reads.get());
+
+    // Without a modification time, the content is read every time.
+    DocumentProvider.modified = null;
+    deduplicator.getHash(DOCUMENT);
+    deduplicator.getHash(DOCUMENT);
+    assertEquals(4, reads.get());
+  }
+
+  @Test
+  public void cachedHashIsUsedWhileSizeAndModificationTimeMatch() throws IOException {
+    long modified = file.lastModified();
+    String hash = deduplicator.getHash(file);
+    assertEquals(ByteString.encodeUtf8("first").sha256().hex(), hash);
+
+    // Same size and modification time, so the file is not read again.
+    write(file, "fir5t");
+    assertTrue(file.setLastModified(modified));
+    assertEquals(hash, deduplicator.getHash(file));
+  }
+
+  @Test
+  public void cachedHashIsInvalidatedByModificationTime() throws IOException {
+    long modified = file.lastModified();
+    String hash = deduplicator.getHash(file);
+
+    write(file, "fir5t");
+    assertTrue(file.setLastModified(modified + 2000));
+
+    assertEquals(ByteString.encodeUtf8("fir5t").sha256().hex(), deduplicator.getHash(file));
+    assertNotEquals(hash, deduplicator.getHash(file));
+  }
+
+  @Test
+  public void cachedHashIsInvalidatedBySize() throws IOException {
+    long modified = file.lastModified();
+    deduplicator.getHash(file);
+
+    write(file, "first and more");
+    assertTrue(file.setLastModified(modified));
+
+    assertEquals(
+        ByteString.encodeUtf8("first and more").sha256().hex(), deduplicator.getHash(file));
+  }
+
+  @Test
+  public void uploadedKeysAreBounded() {
+    for (int i = 0; i < 4; i++) {
+      deduplicator.markUploaded("key" + i);
+    }
+
+    assertFalse(deduplicator.isUploaded("key0"));
+    assertTrue(deduplicator.isUploaded("key1"));
+    assertTrue(deduplicator.isUploaded("key2"));
+    assertTrue(deduplicator.isUploaded("key3"));
+  }
+
+  @Test
+  public void cachedHashesAreBounded() {
+    database.putHash("/a", 1, 1, "a");
+    database.putHash("/b", 1, 1, "b");
+    database.putHash("/c", 1, 1, "c");
+
+    assertNull(database.getHash("/a", 1, 1));
+    assertEquals("b", database.getHash("/b", 1, 1));
+    assertEquals("c", database.getHash("/c", 1, 1));
+  }
+
+  private UploadTask createTask(
+      String method, String url, Map<String, String> headers, String value) {
+    return new UploadTask(
+        url,
+        method,
+        Collections.singletonList(new FileItem(file.getAbsolutePath(), "file")),
+        headers,
+        Collections.singletonMap("name", value),
+        30,
+        false,
+        null,
+        true);
+  }
+
+  private static void write(File file, String content) throws IOException {
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      sink.writeUtf8(content);
+    }
+  }
+
+  /** A document provider which reports the size and modification time of its content. */
+  public static class DocumentProvider extends ContentProvider {
+    static String content = "";
+    @Nullable static Long modified;
+
+    @Override
+    public boolean onCreate() {
+      return true;
+    }
+
+    @Override
+    public Cursor query(
+        @NonNull Uri uri,
+        @Nullable String[] projection,
+        @Nullable String selection,
+        @Nullable String[] selectionArgs,
+        @Nullable String sortOrder) {
+      MatrixCursor cursor =
+          new MatrixCursor(
+              new String[] {
+                OpenableColumns.DISPLAY_NAME,
+                OpenableColumns.SIZE,
+                DocumentsContract.Document.COLUMN_LAST_MODIFIED
+              });
+      cursor.addRow(new Object[] {"document", content.length(), modified});
+      return cursor;
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+      return null;
+    }
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+      return null;
+    }
+
+    @Override
+    public int delete(
+        @NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+      return 0;
+    }
+
+    @Override
+    public int update(
+        @NonNull Uri uri,
+        @Nullable ContentValues values,
+        @Nullable String selection,
+        @Nullable String[] selectionArgs) {
+      return 0;
+    }
+  }
+}
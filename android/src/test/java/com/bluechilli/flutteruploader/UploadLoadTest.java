@@ -0,0 +1,335 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.work.Data;
+import androidx.work.ListenableWorker.Result;
+import androidx.work.testing.TestListenableWorkerBuilder;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.BufferedSink;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Runs many real {@link UploadWorker}s at the same time against a local {@link MockWebServer} and
+ * reports uploads per second, bytes per second, task latency and peak heap.
+ *
+ * <p>The server can limit its bandwidth, delay its responses and inject errors. All settings can
+ * be changed with {@code -Dloadtest.<name>=<value>}, e.g. {@code ./gradlew test
+ * -Dloadtest.enabled=true -Dloadtest.tasks=1000 -Dloadtest.bytesPerSecond=1048576}.
+ *
+ * <p>The load run with random errors only runs with {@code -Dloadtest.enabled=true}, so it does not
+ * slow down or destabilize the default test run. The short check of the bandwidth shaping always
+ * runs.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class UploadLoadTest {
+  private static final boolean ENABLED = Boolean.getBoolean("loadtest.enabled");
+  private static final int TASKS = Integer.getInteger("loadtest.tasks", 50);
+  private static final int FILE_SIZE = Integer.getInteger("loadtest.fileSize", 64 * 1024);
+  private static final boolean BINARY = Boolean.getBoolean("loadtest.binary");
+  private static final int BYTES_PER_SECOND = Integer.getInteger("loadtest.bytesPerSecond", 0);
+  private static final int LATENCY_MILLIS = Integer.getInteger("loadtest.latencyMillis", 20);
+  private static final double ERROR_RATE = getDouble("loadtest.errorRate", 0.05);
+  private static final double DISCONNECT_RATE = getDouble("loadtest.disconnectRate", 0.02);
+  private static final int TIMEOUT_SECONDS = Integer.getInteger("loadtest.timeoutSeconds", 300);
+
+  private Context context;
+  private MockWebServer server;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    context = ApplicationProvider.getApplicationContext();
+
+    byte[] content = new byte[FILE_SIZE];
+    new Random(42).nextBytes(content);
+    file = File.createTempFile("flutter_uploader", ".bin");
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      sink.write(content);
+    }
+
+    server = new MockWebServer();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+    file.delete();
+  }
+
+  @Test
+  public void uploadsUnderLoad() throws Exception {
+    assumeTrue("Enable with -Dloadtest.enabled=true", ENABLED);
+
+    ShapingDispatcher dispatcher =
+        new ShapingDispatcher(BYTES_PER_SECOND, LATENCY_MILLIS, ERROR_RATE, DISCONNECT_RATE);
+    server.setDispatcher(dispatcher);
+    server.start();
+
+    Report report = run(TASKS);
+    report.print();
+
+    // OkHttp may retry a request after a disconnect, so not every disconnect fails a task.
+    assertTrue(report.failed >= dispatcher.errors.get());
+    assertTrue(report.failed <= dispatcher.errors.get() + dispatcher.disconnects.get());
+  }
+
+  @Test
+  public void bandwidthShapingLimitsThroughput() throws Exception {
+    final int bytesPerSecond = 256 * 1024;
+    server.setDispatcher(new ShapingDispatcher(bytesPerSecond, 0, 0, 0));
+    server.start();
+
+    Report report = run(6);
+    report.print();
+
+    assertEquals(6, report.succeeded);
+    // Every connection is limited on its own, so the server never receives more than this.
+    int maxConcurrentTasks = FlutterUploaderInitializer.getUploadThreadCount(context);
+    assertTrue(report.bytesPerSecond() <= 1.1 * bytesPerSecond * maxConcurrentTasks);
+
+    // The server reads one chunk before its first pause, every other chunk is paid for.
+    long chunk = bytesPerSecond / 10;
+    long minTaskNanos = TimeUnit.SECONDS.toNanos(FILE_SIZE - chunk) / bytesPerSecond;
+    assertTrue(report.latencies[0] >= minTaskNanos);
+    // Even one connection at a time would finish in this time, with room for the worker overhead.
+    long maxElapsedNanos = 2 * 6 * TimeUnit.SECONDS.toNanos(FILE_SIZE) / bytesPerSecond;
+    assertTrue(report.elapsedNanos <= maxElapsedNanos);
+  }
+
+  private Report run(int tasks) throws Exception {
+    final UploadTaskStore store = new UploadTaskStore(context);
+    final String url = server.url("/upload").toString();
+    final long[] starts = new long[tasks];
+    final long[] latencies = new long[tasks];
+    final List<Result> results = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch done = new CountDownLatch(tasks);
+    final HeapSampler heapSampler = new HeapSampler();
+
+    List<UploadWorker> workers = new ArrayList<>(tasks);
+    for (int i = 0; i < tasks; i++) {
+      UUID id = UUID.randomUUID();
+      store.save(id.toString(), createTask(url));
+      workers.add(
+          TestListenableWorkerBuilder.from(context, UploadWorker.class)
+              .setId(id)
+              .setInputData(
+                  new Data.Builder()
+                      .putBoolean(UploadWorker.ARG_TASK_STORED, true)
+                      .putString(UploadWorker.ARG_HOST, server.getHostName())
+                      .build())
+              .build());
+    }
+
+    heapSampler.start();
+    final long start = System.nanoTime();
+
+    for (int i = 0; i < tasks; i++) {
+      final int index = i;
+      starts[index] = System.nanoTime();
+      final ListenableFuture<Result> future = workers.get(i).startWork();
+      future.addListener(
+          () -> {
+            latencies[index] = System.nanoTime() - starts[index];
+            try {
+              results.add(future.get());
+            } catch (Exception e) {
+              results.add(Result.failure());
+            }
+            done.countDown();
+          },
+          Runnable::run);
+    }
+
+    assertTrue("Uploads did not finish in time", done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    final long elapsed = System.nanoTime() - start;
+    heapSampler.interrupt();
+
+    int succeeded = 0;
+    for (Result result : results) {
+      int status = result.getOutputData().getInt(UploadWorkerOutput.EXTRA_STATUS, -1);
+      if (status == UploadStatus.COMPLETE) {
+        succeeded++;
+      }
+    }
+
+    return new Report(
+        tasks, succeeded, elapsed, latencies, server.getRequestCount(), heapSampler.peak);
+  }
+
+  private UploadTask createTask(String url) {
+    return new UploadTask(
+        url,
+        "POST",
+        Collections.singletonList(new FileItem(file.getAbsolutePath(), "file")),
+        null,
+        Collections.singletonMap("name", "value"),
+        30,
+        BINARY,
+        null,
+        true);
+  }
+
+  private static double getDouble(String name, double defaultValue) {
+    String value = System.getProperty(name);
+    return value != null ? Double.parseDouble(value) : defaultValue;
+  }
+
+  /** Limits the upload bandwidth per connection, delays responses and injects errors. */
+  private static class ShapingDispatcher extends Dispatcher {
+    final AtomicInteger errors = new AtomicInteger();
+    final AtomicInteger disconnects = new AtomicInteger();
+
+    private final int bytesPerSecond;
+    private final int latencyMillis;
+    private final double errorRate;
+    private final double disconnectRate;
+    private final Random random = new Random(42);
+
+    ShapingDispatcher(
+        int bytesPerSecond, int latencyMillis, double errorRate, double disconnectRate) {
+      this.bytesPerSecond = bytesPerSecond;
+      this.latencyMillis = latencyMillis;
+      this.errorRate = errorRate;
+      this.disconnectRate = disconnectRate;
+    }
+
+    @NonNull
+    @Override
+    public MockResponse dispatch(@NonNull RecordedRequest request) {
+      final double roll;
+      synchronized (random) {
+        roll = random.nextDouble();
+      }
+
+      if (roll < disconnectRate) {
+        disconnects.incrementAndGet();
+        return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+      }
+
+      MockResponse response =
+          new MockResponse().setHeadersDelay(latencyMillis, TimeUnit.MILLISECONDS);
+
+      if (roll < disconnectRate + errorRate) {
+        errors.incrementAndGet();
+        return response.setResponseCode(503).setBody("unavailable");
+      }
+
+      return response
+          .setResponseCode(200)
+          .setHeader("Content-Type", "application/json")
+          .setBody("{\"ok\":true}");
+    }
+
+    /** MockWebServer reads request bodies with the throttling of the peeked response. */
+    @NonNull
+    @Override
+    public MockResponse peek() {
+      MockResponse response = new MockResponse();
+      if (bytesPerSecond > 0) {
+        response.throttleBody(Math.max(1, bytesPerSecond / 10), 100, TimeUnit.MILLISECONDS);
+      }
+      return response;
+    }
+  }
+
+  private static class HeapSampler extends Thread {
+    volatile long peak = 0;
+
+    HeapSampler() {
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      final Runtime runtime = Runtime.getRuntime();
+      while (!isInterrupted()) {
+        peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  private static class Report {
+    final int tasks;
+    final int succeeded;
+    final int failed;
+    final long elapsedNanos;
+    final long[] latencies;
+    final int requests;
+    final long peakHeap;
+
+    Report(int tasks, int succeeded, long elapsedNanos, long[] latencies, int requests, long peak) {
+      this.tasks = tasks;
+      this.succeeded = succeeded;
+      this.failed = tasks - succeeded;
+      this.elapsedNanos = elapsedNanos;
+      this.latencies = latencies.clone();
+      this.requests = requests;
+      this.peakHeap = peak;
+      Arrays.sort(this.latencies);
+    }
+
+    double bytesPerSecond() {
+      return (double) succeeded * FILE_SIZE / (elapsedNanos / 1e9);
+    }
+
+    long percentileMillis(double percentile) {
+      int index = (int) Math.ceil(percentile * latencies.length) - 1;
+      return TimeUnit.NANOSECONDS.toMillis(latencies[Math.max(0, index)]);
+    }
+
+    void print() {
+      final double seconds = elapsedNanos / 1e9;
+      System.out.println(
+          String.format(
+              Locale.ROOT,
+              "%d tasks of %d KB (%d ok, %d failed, %d requests) in %.2f s: "
+                  + "%.1f uploads/s, %.1f KB/s, latency p50 %d ms, p99 %d ms, peak heap %d MB",
+              tasks,
+              FILE_SIZE / 1024,
+              succeeded,
+              failed,
+              requests,
+              seconds,
+              succeeded / seconds,
+              bytesPerSecond() / 1024,
+              percentileMillis(0.5),
+              percentileMillis(0.99),
+              peakHeap / (1024 * 1024)));
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.BufferedSink;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class UploadMetricsTest {
+  private static final MediaType CONTENT_TYPE = MediaType.parse("application/octet-stream");
+  private static final long HEADERS_DELAY_MILLIS = 100;
+
+  private MockWebServer server;
+  private OkHttpClient client;
+  private UploadMetrics metrics;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+    client = new OkHttpClient.Builder().eventListenerFactory(UploadMetrics.FACTORY).build();
+    metrics = new UploadMetrics();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  public void freshConnection() throws IOException {
+    server.enqueue(delayed(new MockResponse().setBody("done")));
+
+    execute(upload("0123456789"));
+
+    Map<String, Long> map = metrics.toMap();
+    assertEquals(1, (long) map.get("requests"));
+    assertEquals(0, (long) map.get("connectionsReused"));
+    assertEquals(0, (long) map.get("tls"));
+    assertEquals(10, (long) map.get("bytesSent"));
+    assertEquals(4, (long) map.get("bytesReceived"));
+    assertTrue(map.get("timeToFirstByte") >= HEADERS_DELAY_MILLIS);
+    assertTrue(map.get("total") >= map.get("timeToFirstByte"));
+  }
+
+  @Test
+  public void reusedConnection() throws IOException {
+    server.enqueue(delayed(new MockResponse().setBody("first")));
+    server.enqueue(delayed(new MockResponse().setBody("second")));
+
+    execute(upload("0123"));
+    execute(upload("456789"));
+
+    Map<String, Long> map = metrics.toMap();
+    assertEquals(2, (long) map.get("requests"));
+    assertEquals(1, (long) map.get("connectionsReused"));
+    assertEquals(10, (long) map.get("bytesSent"));
+    assertEquals(11, (long) map.get("bytesReceived"));
+    assertTrue(map.get("timeToFirstByte") >= 2 * HEADERS_DELAY_MILLIS);
+  }
+
+  @Test
+  public void preflightRequestsAreCounted() throws Exception {
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+
+    // The worker derives the preflight from the tagged upload request, like this.
+    Request upload = upload("0123456789");
+    execute(upload.newBuilder().method("HEAD", null).build());
+    execute(upload);
+
+    Map<String, Long> map = metrics.toMap();
+    assertEquals(2, (long) map.get("requests"));
+    assertEquals(10, (long) map.get("bytesSent"));
+    assertEquals("HEAD", server.takeRequest().getMethod());
+  }
+
+  @Test
+  public void parallelPartsAreSummedUp() throws Exception {
+    server.setDispatcher(
+        new Dispatcher() {
+          @NonNull
+          @Override
+          public MockResponse dispatch(@NonNull RecordedRequest request) {
+            String partNumber = request.getRequestUrl().queryParameter("partNumber");
+            MockResponse response = delayed(new MockResponse());
+            return partNumber != null ? response.setHeader("ETag", "etag-" + partNumber) : response;
+          }
+        });
+
+    File file = File.createTempFile("flutter_uploader", ".bin");
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      sink.writeUtf8("0123456789");
+    }
+
+    try (Response response = createUploader(file).upload()) {
+      assertEquals(200, response.code());
+    } finally {
+      file.delete();
+    }
+
+    // Three parts and the completion, each waiting for its headers on its own.
+    Map<String, Long> map = metrics.toMap();
+    assertEquals(4, (long) map.get("requests"));
+    assertTrue(map.get("timeToFirstByte") >= 4 * HEADERS_DELAY_MILLIS);
+    assertTrue(map.get("total") >= map.get("timeToFirstByte"));
+    assertTrue(map.get("bytesSent") > 10);
+  }
+
+  private ParallelPartUploader createUploader(File file) {
+    return new ParallelPartUploader(
+        request -> client.newCall(metrics.tag(request)),
+        "task",
+        server.url("/upload").toString(),
+        server.url("/complete").toString(),
+        null,
+        file,
+        CONTENT_TYPE,
+        4,
+        3,
+        new CountProgressListener() {
+          @Override
+          public void OnProgress(String taskId, long bytesWritten, long contentLength) {}
+
+          @Override
+          public void OnError(String taskId, String code, String message) {}
+        },
+        ProgressCoalescer.unthrottled());
+  }
+
+  private Request upload(String content) {
+    return metrics.tag(
+        new Request.Builder()
+            .url(server.url("/upload"))
+            .post(RequestBody.create(content, CONTENT_TYPE))
+            .build());
+  }
+
+  private void execute(Request request) throws IOException {
+    try (Response response = client.newCall(request).execute()) {
+      response.body().string();
+    }
+  }
+
+  private static MockResponse delayed(MockResponse response) {
+    return response.setHeadersDelay(HEADERS_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+  }
+}
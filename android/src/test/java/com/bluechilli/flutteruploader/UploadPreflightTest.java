@@ -0,0 +1,27 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class UploadPreflightTest {
+
+  @Test
+  public void clientErrorsRejectTheUpload() {
+    assertTrue(UploadPreflight.rejectsUpload(401));
+    assertTrue(UploadPreflight.rejectsUpload(403));
+    assertTrue(UploadPreflight.rejectsUpload(413));
+    assertTrue(UploadPreflight.rejectsUpload(429));
+  }
+
+  @Test
+  public void unsupportedPreflightDoesNotRejectTheUpload() {
+    assertFalse(UploadPreflight.rejectsUpload(200));
+    assertFalse(UploadPreflight.rejectsUpload(204));
+    assertFalse(UploadPreflight.rejectsUpload(404));
+    assertFalse(UploadPreflight.rejectsUpload(405));
+    assertFalse(UploadPreflight.rejectsUpload(500));
+    assertFalse(UploadPreflight.rejectsUpload(501));
+  }
+}
@@ -0,0 +1,127 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class UploadSchedulerTest {
+  private final List<String> started = new ArrayList<>();
+  private final Map<String, Runnable> running = new HashMap<>();
+
+  @Test
+  public void higherLanesStartFirst() {
+    UploadScheduler scheduler = createScheduler(1, 1);
+
+    submit(scheduler, UploadPriority.NORMAL, "a", "running");
+    submit(scheduler, UploadPriority.BULK, "b", "bulk");
+    submit(scheduler, UploadPriority.NORMAL, "c", "normal");
+    submit(scheduler, UploadPriority.INTERACTIVE, "d", "interactive");
+    submit(scheduler, UploadPriority.NORMAL, "e", "normal 2");
+
+    finish("running");
+    finish("interactive");
+    finish("normal");
+    finish("normal 2");
+
+    assertStarted("running", "interactive", "normal", "normal 2", "bulk");
+  }
+
+  @Test
+  public void jobsOfABusyHostAreSkipped() {
+    UploadScheduler scheduler = createScheduler(3, 1);
+
+    submit(scheduler, UploadPriority.INTERACTIVE, "a", "a1");
+    submit(scheduler, UploadPriority.INTERACTIVE, "a", "a2");
+    submit(scheduler, UploadPriority.BULK, "b", "b1");
+    assertStarted("a1", "b1");
+
+    finish("a1");
+    assertStarted("a1", "b1", "a2");
+  }
+
+  @Test
+  public void jobsWithoutHostAreNotLimitedPerHost() {
+    UploadScheduler scheduler = createScheduler(2, 1);
+
+    submit(scheduler, UploadPriority.NORMAL, null, "first");
+    submit(scheduler, UploadPriority.NORMAL, null, "second");
+    submit(scheduler, UploadPriority.NORMAL, null, "third");
+
+    assertStarted("first", "second");
+  }
+
+  @Test
+  public void finishedJobsReleaseTheirHost() {
+    UploadScheduler scheduler = createScheduler(4, 2);
+
+    submit(scheduler, UploadPriority.NORMAL, "a", "a1");
+    submit(scheduler, UploadPriority.NORMAL, "a", "a2");
+    submit(scheduler, UploadPriority.NORMAL, "a", "a3");
+    assertStarted("a1", "a2");
+
+    // Reporting the end twice must not free a second slot of the host.
+    Runnable finished = running.get("a1");
+    finish("a1");
+    finished.run();
+    assertStarted("a1", "a2", "a3");
+
+    submit(scheduler, UploadPriority.NORMAL, "a", "a4");
+    assertStarted("a1", "a2", "a3");
+
+    finish("a2");
+    finish("a3");
+    submit(scheduler, UploadPriority.NORMAL, "a", "a5");
+    assertStarted("a1", "a2", "a3", "a4", "a5");
+  }
+
+  @Test
+  public void failingJobsReleaseTheirSlot() {
+    UploadScheduler scheduler = createScheduler(1, 1);
+
+    try {
+      scheduler.submitAsync(
+          UploadPriority.NORMAL,
+          "a",
+          finished -> {
+            throw new IllegalStateException("failed");
+          });
+    } catch (IllegalStateException expected) {
+    }
+    submit(scheduler, UploadPriority.NORMAL, "a", "next");
+
+    assertStarted("next");
+  }
+
+  /** Runs the jobs right away on the calling thread. */
+  private static UploadScheduler createScheduler(int limit, int maxConcurrentTasksPerHost) {
+    return new UploadScheduler(
+        Runnable::run, new ConcurrencyController(limit, limit, limit), maxConcurrentTasksPerHost);
+  }
+
+  /** Submits a job which keeps its slot until {@link #finish} is called with its {@code name}. */
+  private void submit(UploadScheduler scheduler, int priority, String host, String name) {
+    scheduler.submitAsync(
+        priority,
+        host,
+        finished -> {
+          started.add(name);
+          running.put(name, finished);
+        });
+  }
+
+  private void finish(String name) {
+    running.remove(name).run();
+  }
+
+  private void assertStarted(String... names) {
+    List<String> expected = new ArrayList<>();
+    for (String name : names) {
+      expected.add(name);
+    }
+    assertEquals(expected, started);
+  }
+}
@@ -0,0 +1,182 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.core.app.ApplicationProvider;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class UploadTaskStoreTest {
+  private UploadTaskStore store;
+
+  @Before
+  public void setUp() {
+    store = new UploadTaskStore(ApplicationProvider.getApplicationContext());
+  }
+
+  @Test
+  public void roundTripsEveryField() throws IOException {
+    Map<String, String> headers = new LinkedHashMap<>();
+    headers.put("Authorization", "Bearer token");
+    headers.put("X-Empty", null);
+    Map<String, String> parameters = Collections.singletonMap("name", "v\u00e4lue");
+
+    UploadTask task =
+        new UploadTask(
+            "https://example.com/upload",
+            "PUT",
+            Arrays.asList(new FileItem("/path/a", "a"), new FileItem("/path/b", "b")),
+            headers,
+            parameters,
+            45,
+            true,
+            "tag",
+            false);
+    task.setResumable(1024);
+    task.setCompression("gzip");
+    task.setProgressThrottle(4096, 5, 250);
+    task.setPriority(UploadPriority.INTERACTIVE);
+    task.setDeduplicate(true);
+    task.setDeduplicationScope("user-42");
+    task.setBandwidthLimit(65536);
+    task.setRetryPolicy(new RetryPolicy(5, 20000, false, new int[] {409, 503}));
+    task.setPreflight(UploadPreflight.HEAD);
+
+    store.save("task", task);
+    UploadTask loaded = store.load("task");
+
+    assertNotNull(loaded);
+    assertEquals(task.getURL(), loaded.getURL());
+    assertEquals("PUT", loaded.getMethod());
+    assertEquals("tag", loaded.getTag());
+    assertEquals(45, loaded.getTimeout());
+    assertTrue(loaded.isBinaryUpload());
+    assertFalse(loaded.isAllowCellular());
+    assertEquals(headers, loaded.getHeaders());
+    assertEquals(parameters, loaded.getParameters());
+    assertEquals(2, loaded.getFiles().size());
+    assertEquals("/path/b", loaded.getFiles().get(1).getPath());
+    assertEquals("b", loaded.getFiles().get(1).getFieldname());
+    assertTrue(loaded.isResumable());
+    assertEquals(1024, loaded.getChunkSize());
+    assertFalse(loaded.isParallel());
+    assertEquals("gzip", loaded.getCompression());
+    assertEquals(4096, loaded.getProgressMinBytes());
+    assertEquals(5, loaded.getProgressMinPercent());
+    assertEquals(250, loaded.getProgressMinInterval());
+    assertEquals(UploadPriority.INTERACTIVE, loaded.getPriority());
+    assertTrue(loaded.isDeduplicate());
+    assertEquals("user-42", loaded.getDeduplicationScope());
+    assertEquals(65536, loaded.getBandwidthLimit());
+    assertEquals(UploadPreflight.HEAD, loaded.getPreflight());
+
+    RetryPolicy retryPolicy = loaded.getRetryPolicy();
+    assertNotNull(retryPolicy);
+    assertEquals(5, retryPolicy.getMaxRetries());
+    assertEquals(20000, retryPolicy.getInitialDelayMillis());
+    assertFalse(retryPolicy.isRespectRetryAfter());
+    assertArrayEquals(new int[] {409, 503}, retryPolicy.getRetryStatusCodes());
+  }
+
+  @Test
+  public void roundTripsParallelUploads() throws IOException {
+    UploadTask task = createTask(null, null);
+    task.setParallel("https://example.com/complete", 8 * 1024 * 1024, 4);
+
+    store.save("task", task);
+    UploadTask loaded = store.load("task");
+
+    assertTrue(loaded.isParallel());
+    assertEquals("https://example.com/complete", loaded.getCompleteUrl());
+    assertEquals(8 * 1024 * 1024, loaded.getPartSize());
+    assertEquals(4, loaded.getMaxPartsInFlight());
+  }
+
+  @Test
+  public void roundTripsMissingValues() throws IOException {
+    UploadTask task =
+        new UploadTask(
+            "https://example.com/upload", "POST", null, null, null, 30, false, null, true);
+    task.setRetryPolicy(RetryPolicy.withMaxRetries(3));
+
+    store.save("task", task);
+    UploadTask loaded = store.load("task");
+
+    assertNull(loaded.getFiles());
+    assertNull(loaded.getHeaders());
+    assertNull(loaded.getParameters());
+    assertNull(loaded.getTag());
+    assertNull(loaded.getCompression());
+    assertNull(loaded.getPreflight());
+    assertNull(loaded.getDeduplicationScope());
+    assertNull(loaded.getRetryPolicy().getRetryStatusCodes());
+    assertEquals(3, loaded.getRetryPolicy().getMaxRetries());
+
+    store.save("task", createTask(null, null));
+    assertNull(store.load("task").getRetryPolicy());
+  }
+
+  @Test
+  public void roundTripsStringsLargerThan64KB() throws IOException {
+    char[] chars = new char[100 * 1024];
+    Arrays.fill(chars, '\u00fc');
+    String large = new String(chars);
+
+    store.save(
+        "task",
+        createTask(
+            Collections.singletonMap("X-Large", large), Collections.singletonMap("field", large)));
+    UploadTask loaded = store.load("task");
+
+    assertEquals(large, loaded.getHeaders().get("X-Large"));
+    assertEquals(large, loaded.getParameters().get("field"));
+  }
+
+  @Test
+  public void missingTaskIsNull() throws IOException {
+    assertNull(store.load("missing"));
+
+    store.save("task", createTask(null, null));
+    store.delete("task");
+    assertNull(store.load("task"));
+  }
+
+  @Test
+  public void retainAllDeletesOtherTasks() throws IOException {
+    store.save("a", createTask(null, null));
+    store.save("b", createTask(null, null));
+
+    store.retainAll(Collections.singleton("a"));
+
+    assertNotNull(store.load("a"));
+    assertNull(store.load("b"));
+  }
+
+  private static UploadTask createTask(Map<String, String> headers, Map<String, String> data) {
+    return new UploadTask(
+        "https://example.com/upload",
+        "POST",
+        Collections.singletonList(new FileItem("/path/a", "file")),
+        headers,
+        data,
+        30,
+        false,
+        null,
+        true);
+  }
+}
@@ -0,0 +1,368 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.annotation.Nullable;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.work.Data;
+import androidx.work.ListenableWorker.Result;
+import androidx.work.WorkInfo;
+import androidx.work.testing.TestListenableWorkerBuilder;
+import com.bluechilli.flutteruploader.plugin.StatusListener;
+import com.bluechilli.flutteruploader.plugin.UploadObserver;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.BufferedSink;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Runs the real {@link UploadWorker} with each {@link UploadPreflight} against a local server, also
+ * with asynchronous uploads.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class UploadWorkerPreflightTest {
+  private static final String CONTENT = "the content of the file";
+
+  private Context context;
+  private MockWebServer server;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    context = ApplicationProvider.getApplicationContext();
+
+    file = File.createTempFile("flutter_uploader", ".bin");
+    try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+      sink.writeUtf8(CONTENT);
+    }
+
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+    file.delete();
+  }
+
+  @Test
+  public void headRejectionIsReportedWithItsStatusCode() throws Exception {
+    assertPreflightRejection(UploadPreflight.HEAD, "HEAD");
+  }
+
+  @Test
+  public void optionsRejectionIsReportedWithItsStatusCode() throws Exception {
+    assertPreflightRejection(UploadPreflight.OPTIONS, "OPTIONS");
+  }
+
+  @Test
+  public void unsupportedPreflightUploads() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(405));
+    server.enqueue(new MockResponse().setResponseCode(200));
+
+    Result result = upload(server.url("/upload").toString(), UploadPreflight.HEAD);
+
+    assertEquals(UploadStatus.COMPLETE, getStatus(result));
+    assertEquals("HEAD", server.takeRequest().getMethod());
+    assertBodySent(server.takeRequest());
+  }
+
+  @Test
+  public void expectContinueSendsTheBodyOnceTheServerContinues() throws Exception {
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.EXPECT_CONTINUE));
+
+    Result result = upload(server.url("/upload").toString(), UploadPreflight.EXPECT_CONTINUE);
+
+    assertEquals(UploadStatus.COMPLETE, getStatus(result));
+    RecordedRequest request = server.takeRequest();
+    assertEquals("100-continue", request.getHeader("Expect"));
+    assertBodySent(request);
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void expectContinueRejectionSkipsTheBody() throws Exception {
+    // MockWebServer always reads the body, so this server answers right after the headers.
+    try (RejectingServer rejectingServer = new RejectingServer()) {
+      rejectingServer.start();
+
+      Result result =
+          upload(
+              "http://127.0.0.1:" + rejectingServer.getPort() + "/upload",
+              UploadPreflight.EXPECT_CONTINUE);
+
+      assertEquals(UploadStatus.FAILED, getStatus(result));
+      assertEquals(401, result.getOutputData().getInt(UploadWorkerOutput.EXTRA_STATUS_CODE, -1));
+
+      String received = rejectingServer.getReceived();
+      assertTrue(received.contains("Expect: 100-continue"));
+      assertFalse(received.contains(CONTENT));
+    }
+  }
+
+  @Test
+  public void asyncUploadIsEnqueued() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(200));
+
+    Result result = uploadAsync(server.url("/upload").toString(), null);
+
+    assertEquals(UploadStatus.COMPLETE, getStatus(result));
+    assertBodySent(server.takeRequest());
+  }
+
+  @Test
+  public void asyncPreflightIsEnqueuedBeforeTheUpload() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(200));
+    server.enqueue(new MockResponse().setResponseCode(200));
+
+    Result result = uploadAsync(server.url("/upload").toString(), UploadPreflight.HEAD);
+
+    assertEquals(UploadStatus.COMPLETE, getStatus(result));
+    assertEquals("HEAD", server.takeRequest().getMethod());
+    assertBodySent(server.takeRequest());
+  }
+
+  @Test
+  public void asyncPreflightRejectionSkipsTheUpload() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(401));
+
+    Result result = uploadAsync(server.url("/upload").toString(), UploadPreflight.OPTIONS);
+
+    assertEquals(UploadStatus.FAILED, getStatus(result));
+    assertEquals(401, result.getOutputData().getInt(UploadWorkerOutput.EXTRA_STATUS_CODE, -1));
+    assertEquals(1, server.getRequestCount());
+  }
+
+  private void assertPreflightRejection(String preflight, String method) throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(401).setBody("token expired"));
+
+    UUID id = UUID.randomUUID();
+    Result result = upload(id, server.url("/upload").toString(), preflight);
+
+    assertEquals(UploadStatus.FAILED, getStatus(result));
+    assertEquals(401, result.getOutputData().getInt(UploadWorkerOutput.EXTRA_STATUS_CODE, -1));
+    assertEquals(1, server.getRequestCount());
+    assertEquals(method, server.takeRequest().getMethod());
+
+    // The failure reaches Flutter through the observer of the work.
+    FailureListener listener = new FailureListener();
+    new UploadObserver(listener)
+        .onChanged(
+            Collections.singletonList(
+                new WorkInfo(
+                    id,
+                    WorkInfo.State.FAILED,
+                    result.getOutputData(),
+                    Collections.emptyList(),
+                    Data.EMPTY,
+                    1)));
+    assertEquals(id.toString(), listener.id);
+    assertEquals(401, listener.statusCode);
+  }
+
+  private Result upload(String url, @Nullable String preflight) throws Exception {
+    return upload(UUID.randomUUID(), url, preflight);
+  }
+
+  private Result upload(UUID id, String url, @Nullable String preflight) throws Exception {
+    return createWorker(id, url, preflight).startWork().get(30, TimeUnit.SECONDS);
+  }
+
+  /** Runs the upload like with {@code ASYNC_UPLOADS}, which returns once it was enqueued. */
+  private Result uploadAsync(String url, @Nullable String preflight) throws Exception {
+    UploadWorker worker = createWorker(UUID.randomUUID(), url, preflight);
+    AtomicReference<Result> result = new AtomicReference<>();
+    CountDownLatch done = new CountDownLatch(1);
+
+    assertNull(
+        worker.doWorkInternal(
+            r -> {
+              result.set(r);
+              done.countDown();
+            }));
+    assertTrue(done.await(30, TimeUnit.SECONDS));
+    return result.get();
+  }
+
+  private UploadWorker createWorker(UUID id, String url, @Nullable String preflight)
+      throws IOException {
+    UploadTask task =
+        new UploadTask(
+            url,
+            "POST",
+            Collections.singletonList(new FileItem(file.getAbsolutePath(), "file")),
+            null,
+            null,
+            30,
+            true,
+            null,
+            true);
+    task.setPreflight(preflight);
+    new UploadTaskStore(context).save(id.toString(), task);
+
+    return TestListenableWorkerBuilder.from(context, UploadWorker.class)
+        .setId(id)
+        .setInputData(
+            new Data.Builder()
+                .putBoolean(UploadWorker.ARG_TASK_STORED, true)
+                .putString(UploadWorker.ARG_HOST, server.getHostName())
+                .build())
+        .build();
+  }
+
+  private static int getStatus(Result result) {
+    return result.getOutputData().getInt(UploadWorkerOutput.EXTRA_STATUS, -1);
+  }
+
+  private static void assertBodySent(RecordedRequest request) {
+    assertEquals("POST", request.getMethod());
+    assertEquals(CONTENT, request.getBody().readUtf8());
+  }
+
+  /**
+   * Answers the first request with 401 as soon as its headers arrived and records every byte the
+   * client sent until it closed the connection.
+   */
+  private static class RejectingServer extends Thread implements AutoCloseable {
+    private final ServerSocket serverSocket = new ServerSocket(0);
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+    RejectingServer() throws IOException {
+      setDaemon(true);
+    }
+
+    int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    String getReceived() throws InterruptedException {
+      join(5000);
+      return text();
+    }
+
+    @Override
+    public void run() {
+      try (Socket socket = serverSocket.accept()) {
+        socket.setSoTimeout(2000);
+        InputStream in = socket.getInputStream();
+        OutputStream out = socket.getOutputStream();
+
+        while (!text().contains("\r\n\r\n")) {
+          if (!read(in)) {
+            return;
+          }
+        }
+
+        out.write(
+            "HTTP/1.1 401 Unauthorized\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"
+                .getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+
+        // Keep reading, the body would arrive now if the client sent it anyway.
+        while (read(in)) {}
+      } catch (SocketTimeoutException ignored) {
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    /** Appends the next bytes to {@link #received}, returns false at the end of the stream. */
+    private boolean read(InputStream in) throws IOException {
+      byte[] buffer = new byte[8192];
+      int count = in.read(buffer);
+      if (count < 0) {
+        return false;
+      }
+      synchronized (received) {
+        received.write(buffer, 0, count);
+      }
+      return true;
+    }
+
+    private String text() {
+      synchronized (received) {
+        return new String(received.toByteArray(), StandardCharsets.ISO_8859_1);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      serverSocket.close();
+    }
+  }
+
+  private static class FailureListener implements StatusListener {
+    @Nullable String id;
+    int statusCode = -1;
+
+    @Override
+    public void onEnqueued(String id) {}
+
+    @Override
+    public void onUpdateProgress(
+        String id,
+        int status,
+        int progress,
+        long bytesSent,
+        long totalBytes,
+        long bytesPerSecond,
+        long timeRemaining) {}
+
+    @Override
+    public void onFailed(
+        String id,
+        int status,
+        int statusCode,
+        String code,
+        String message,
+        @Nullable String[] details,
+        @Nullable Map<String, Long> metrics) {
+      this.id = id;
+      this.statusCode = statusCode;
+    }
+
+    @Override
+    public void onCompleted(
+        String id,
+        int status,
+        int statusCode,
+        @Nullable String response,
+        @Nullable String responseFile,
+        boolean responseTruncated,
+        boolean deduplicated,
+        @Nullable Map<String, String> headers,
+        @Nullable Map<String, Long> metrics) {}
+
+    @Override
+    public void onWorkPruned() {}
+  }
+}
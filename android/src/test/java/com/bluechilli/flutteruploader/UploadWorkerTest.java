@@ -0,0 +1,66 @@
+package com.bluechilli.flutteruploader;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import org.junit.Test;
+
+public class UploadWorkerTest {
+
+  @Test
+  public void progressOfKnownSize() {
+    assertEquals(0, UploadWorker.getProgress(0, 200));
+    assertEquals(50, UploadWorker.getProgress(100, 200));
+    assertEquals(100, UploadWorker.getProgress(200, 200));
+  }
+
+  @Test
+  public void progressOfUnknownSizeIsIndeterminate() {
+    assertEquals(-1, UploadWorker.getProgress(0, -1));
+    assertEquals(-1, UploadWorker.getProgress(4096, -1));
+    assertEquals(-1, UploadWorker.getProgress(4096, 0));
+  }
+
+  @Test
+  public void unknownSizeIsReportedAsIndeterminate() throws IOException {
+    // A content URI whose provider does not know the size is sent with chunked encoding.
+    RequestBody chunked =
+        new RequestBody() {
+          @Override
+          public MediaType contentType() {
+            return MediaType.parse("application/octet-stream");
+          }
+
+          @Override
+          public long contentLength() {
+            return -1;
+          }
+
+          @Override
+          public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            sink.write(new byte[64 * 1024]);
+          }
+        };
+
+    final int[] progress = {Integer.MIN_VALUE};
+    CountProgressListener listener =
+        new CountProgressListener() {
+          @Override
+          public void OnProgress(String taskId, long bytesWritten, long contentLength) {
+            progress[0] = UploadWorker.getProgress(bytesWritten, contentLength);
+          }
+
+          @Override
+          public void OnError(String taskId, String code, String message) {}
+        };
+
+    new CountingRequestBody(chunked, "task", listener).writeTo(new Buffer());
+
+    assertEquals(-1, progress[0]);
+  }
+}
@@ -0,0 +1,197 @@
+package com.bluechilli.flutteruploader.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.flutter.plugin.common.EventChannel.EventSink;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CachingStreamHandlerTest {
+  // The estimate of a cached "value" string.
+  private static final long VALUE_BYTES = 40 + 2 * "value".length();
+  private static final long BATCH_INTERVAL_MILLIS = 100;
+
+  @Test
+  public void leastRecentlyUpdatedItemsAreEvicted() {
+    CachingStreamHandler<String> handler = new CachingStreamHandler<>(2, Long.MAX_VALUE);
+
+    handler.add("a", "a1");
+    handler.add("b", "b1");
+    handler.add("a", "a2");
+    handler.add("c", "c1");
+
+    assertEquals(Arrays.asList("a2", "c1"), replay(handler));
+  }
+
+  @Test
+  public void expiredItemsAreEvicted() {
+    CachingStreamHandler<String> handler = new CachingStreamHandler<>(10, 1000);
+
+    handler.add("a", "value");
+    ShadowLooper.idleMainLooper(600, TimeUnit.MILLISECONDS);
+    handler.add("b", "value");
+    ShadowLooper.idleMainLooper(400, TimeUnit.MILLISECONDS);
+    handler.add("c", "value");
+
+    assertEquals(2, handler.size());
+    assertEquals(2 * VALUE_BYTES, handler.getEstimatedBytes());
+
+    // Expired items are not replayed, even without a further update.
+    ShadowLooper.idleMainLooper(1000, TimeUnit.MILLISECONDS);
+    assertEquals(Collections.emptyList(), replay(handler));
+    assertEquals(0, handler.getEstimatedBytes());
+  }
+
+  @Test
+  public void deliveredTerminalItemsAreEvictedFirst() {
+    CachingStreamHandler<String> handler = new CachingStreamHandler<>(2, Long.MAX_VALUE);
+    handler.onListen(null, new RecordingSink());
+
+    handler.add("running", "progress");
+    handler.add("done", "result", true);
+    handler.add("next", "progress");
+
+    assertEquals(Arrays.asList("progress", "progress"), replay(handler));
+  }
+
+  @Test
+  public void undeliveredTerminalItemsAreKept() {
+    CachingStreamHandler<String> handler = new CachingStreamHandler<>(2, Long.MAX_VALUE);
+
+    // Without a listener, the result still has to be replayed once one subscribes.
+    handler.add("running", "progress");
+    handler.add("done", "result", true);
+    handler.add("next", "progress");
+
+    assertEquals(Arrays.asList("result", "progress"), replay(handler));
+  }
+
+  @Test
+  public void concurrentUpdatesKeepTheFootprintConsistent() throws Exception {
+    final int threads = 8;
+    final int updates = 2000;
+    final int ids = 500;
+    CachingStreamHandler<String> handler = new CachingStreamHandler<>(ids, Long.MAX_VALUE);
+    handler.onListen(null, new RecordingSink());
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      for (int t = 0; t < threads; t++) {
+        final int offset = t * updates;
+        executor.execute(
+            () -> {
+              try {
+                start.await();
+              } catch (InterruptedException e) {
+                return;
+              }
+              // Together, the threads update more ids than fit, so eviction runs concurrently.
+              for (int i = 0; i < updates; i++) {
+                handler.add("id" + ((offset + i) % (2 * ids)), "value", i % 3 == 0);
+              }
+            });
+      }
+      start.countDown();
+    } finally {
+      executor.shutdown();
+    }
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+    assertEquals(ids, handler.size());
+    assertEquals(ids * VALUE_BYTES, handler.getEstimatedBytes());
+    assertEquals(ids, replay(handler).size());
+  }
+
+  @Test
+  public void batchedUpdatesAreCoalesced() {
+    CachingStreamHandler<String> handler = new CachingStreamHandler<>(10, Long.MAX_VALUE);
+    RecordingSink sink = listenBatched(handler);
+
+    handler.add("a", "a1");
+    handler.add("b", "b1");
+    handler.add("a", "a2");
+    assertEquals(Collections.emptyList(), sink.events);
+
+    ShadowLooper.idleMainLooper(BATCH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    assertEquals(Collections.singletonList(Arrays.asList("a2", "b1")), sink.events);
+  }
+
+  @Test
+  public void batchesAreFlushedOncePerInterval() {
+    CachingStreamHandler<String> handler = new CachingStreamHandler<>(10, Long.MAX_VALUE);
+    RecordingSink sink = listenBatched(handler);
+
+    handler.add("a", "a1");
+    ShadowLooper.idleMainLooper(BATCH_INTERVAL_MILLIS - 1, TimeUnit.MILLISECONDS);
+    handler.add("a", "a2");
+    assertEquals(Collections.emptyList(), sink.events);
+
+    // The interval starts with the first pending update, not the last one.
+    ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+    assertEquals(Collections.singletonList(Collections.singletonList("a2")), sink.events);
+
+    handler.add("a", "a3");
+    ShadowLooper.idleMainLooper(BATCH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    assertEquals(
+        Arrays.asList(Collections.singletonList("a2"), Collections.singletonList("a3")),
+        sink.events);
+  }
+
+  @Test
+  public void terminalItemsAreFlushedRightAway() {
+    CachingStreamHandler<String> handler = new CachingStreamHandler<>(10, Long.MAX_VALUE);
+    RecordingSink sink = listenBatched(handler);
+
+    handler.add("a", "a1");
+    handler.add("b", "done", true);
+    ShadowLooper.idleMainLooper();
+    assertEquals(Collections.singletonList(Arrays.asList("a1", "done")), sink.events);
+
+    // The pending update went out with the terminal item, so the interval has nothing to send.
+    ShadowLooper.idleMainLooper(BATCH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    assertEquals(1, sink.events.size());
+  }
+
+  private static RecordingSink listenBatched(CachingStreamHandler<?> handler) {
+    RecordingSink sink = new RecordingSink();
+    handler.onListen(null, sink);
+    handler.setBatchInterval(BATCH_INTERVAL_MILLIS);
+    return sink;
+  }
+
+  private static List<Object> replay(CachingStreamHandler<?> handler) {
+    RecordingSink sink = new RecordingSink();
+    handler.onListen(null, sink);
+    return sink.events;
+  }
+
+  private static class RecordingSink implements EventSink {
+    final List<Object> events = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void success(Object event) {
+      events.add(event);
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {}
+
+    @Override
+    public void endOfStream() {}
+  }
+}
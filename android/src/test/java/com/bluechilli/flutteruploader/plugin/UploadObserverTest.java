@@ -0,0 +1,220 @@
+package com.bluechilli.flutteruploader.plugin;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.annotation.Nullable;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
+import com.bluechilli.flutteruploader.UploadStatus;
+import com.bluechilli.flutteruploader.UploadWorkerOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UploadObserverTest {
+  private RecordingListener listener;
+  private UploadObserver observer;
+
+  @Before
+  public void setUp() {
+    listener = new RecordingListener();
+    observer = new UploadObserver(listener);
+  }
+
+  @Test
+  public void enqueuedTaskIsReportedOnce() {
+    UUID id = UUID.randomUUID();
+
+    observer.onChanged(Collections.singletonList(enqueued(id)));
+    observer.onChanged(Collections.singletonList(enqueued(id)));
+
+    assertEquals(Collections.singletonList("enqueued " + id), listener.events);
+  }
+
+  @Test
+  public void onlyChangedProgressIsReported() {
+    UUID id = UUID.randomUUID();
+
+    observer.onChanged(Collections.singletonList(running(id, 10)));
+    observer.onChanged(Collections.singletonList(running(id, 10)));
+    observer.onChanged(Collections.singletonList(running(id, 20)));
+
+    assertEquals(2, listener.events.size());
+    assertEquals("progress " + id + " 20", listener.events.get(1));
+  }
+
+  @Test
+  public void completedTaskIsReportedOnce() {
+    UUID id = UUID.randomUUID();
+    Data output =
+        new Data.Builder()
+            .putInt(UploadWorkerOutput.EXTRA_STATUS_CODE, 200)
+            .putString(UploadWorkerOutput.EXTRA_HEADERS, "{\"etag\":\"abc\"}")
+            .build();
+    WorkInfo info =
+        new WorkInfo(
+            id, WorkInfo.State.SUCCEEDED, output, Collections.emptyList(), Data.EMPTY, 1);
+
+    observer.onChanged(Collections.singletonList(info));
+    observer.onChanged(Collections.singletonList(info));
+
+    assertEquals(Collections.singletonList("completed " + id + " abc"), listener.events);
+  }
+
+  @Test
+  public void metricsAreParsed() {
+    UUID id = UUID.randomUUID();
+    Data output =
+        new Data.Builder()
+            .putInt(UploadWorkerOutput.EXTRA_STATUS, UploadStatus.FAILED)
+            .putString(UploadWorkerOutput.EXTRA_METRICS, "{\"dns\":12,\"requests\":2}")
+            .build();
+    WorkInfo info =
+        new WorkInfo(id, WorkInfo.State.FAILED, output, Collections.emptyList(), Data.EMPTY, 1);
+
+    observer.onChanged(Collections.singletonList(info));
+
+    assertEquals(Collections.singletonList("failed " + id), listener.events);
+    assertEquals(Long.valueOf(12), listener.metrics.get("dns"));
+    assertEquals(Long.valueOf(2), listener.metrics.get("requests"));
+  }
+
+  @Test
+  public void throughputIsReported() {
+    UUID id = UUID.randomUUID();
+    Data progress =
+        new Data.Builder()
+            .putInt("status", UploadStatus.RUNNING)
+            .putInt("progress", 25)
+            .putLong(UploadWorkerOutput.EXTRA_BYTES_SENT, 1000)
+            .putLong(UploadWorkerOutput.EXTRA_TOTAL_BYTES, 4000)
+            .putLong(UploadWorkerOutput.EXTRA_BYTES_PER_SECOND, 500)
+            .putLong(UploadWorkerOutput.EXTRA_TIME_REMAINING, 6000)
+            .build();
+
+    observer.onChanged(
+        Collections.singletonList(
+            new WorkInfo(
+                id, WorkInfo.State.RUNNING, Data.EMPTY, Collections.emptyList(), progress, 0)));
+
+    assertEquals("1000/4000 at 500 B/s, 6000 ms left", listener.throughput);
+  }
+
+  @Test
+  public void prunedTaskIsForgotten() {
+    UUID id = UUID.randomUUID();
+
+    observer.onChanged(Collections.singletonList(enqueued(id)));
+    observer.onChanged(Collections.emptyList());
+    observer.onChanged(Collections.singletonList(enqueued(id)));
+
+    assertEquals(2, listener.events.size());
+  }
+
+  @Test
+  public void progressTicksWithManyTasksOnlyReportTheChangedTask() {
+    final int taskCount = 5000;
+    final int ticks = 200;
+
+    List<UUID> ids = new ArrayList<>(taskCount);
+    List<WorkInfo> infos = new ArrayList<>(taskCount);
+    for (int i = 0; i < taskCount; i++) {
+      UUID id = UUID.randomUUID();
+      ids.add(id);
+      infos.add(running(id, 0));
+    }
+
+    observer.onChanged(new ArrayList<>(infos));
+    assertEquals(taskCount, listener.events.size());
+    listener.events.clear();
+
+    for (int tick = 1; tick <= ticks; tick++) {
+      int index = tick % taskCount;
+      infos.set(index, running(ids.get(index), 1 + tick % 99));
+      observer.onChanged(new ArrayList<>(infos));
+    }
+
+    assertEquals(ticks, listener.events.size());
+  }
+
+  private static WorkInfo enqueued(UUID id) {
+    return new WorkInfo(
+        id, WorkInfo.State.ENQUEUED, Data.EMPTY, Collections.emptyList(), Data.EMPTY, 0);
+  }
+
+  private static WorkInfo running(UUID id, int progress) {
+    Data data =
+        new Data.Builder()
+            .putInt("status", UploadStatus.RUNNING)
+            .putInt("progress", progress)
+            .build();
+    return new WorkInfo(id, WorkInfo.State.RUNNING, Data.EMPTY, Collections.emptyList(), data, 0);
+  }
+
+  private static class RecordingListener implements StatusListener {
+    final List<String> events = new ArrayList<>();
+    @Nullable Map<String, Long> metrics;
+    @Nullable String throughput;
+
+    @Override
+    public void onEnqueued(String id) {
+      events.add("enqueued " + id);
+    }
+
+    @Override
+    public void onUpdateProgress(
+        String id,
+        int status,
+        int progress,
+        long bytesSent,
+        long totalBytes,
+        long bytesPerSecond,
+        long timeRemaining) {
+      events.add("progress " + id + " " + progress);
+      throughput =
+          bytesSent
+              + "/"
+              + totalBytes
+              + " at "
+              + bytesPerSecond
+              + " B/s, "
+              + timeRemaining
+              + " ms left";
+    }
+
+    @Override
+    public void onFailed(
+        String id,
+        int status,
+        int statusCode,
+        String code,
+        String message,
+        @Nullable String[] details,
+        @Nullable Map<String, Long> metrics) {
+      events.add("failed " + id);
+      this.metrics = metrics;
+    }
+
+    @Override
+    public void onCompleted(
+        String id,
+        int status,
+        int statusCode,
+        @Nullable String response,
+        @Nullable String responseFile,
+        boolean responseTruncated,
+        boolean deduplicated,
+        @Nullable Map<String, String> headers,
+        @Nullable Map<String, Long> metrics) {
+      events.add("completed " + id + " " + (headers != null ? headers.get("etag") : null));
+      this.metrics = metrics;
+    }
+
+    @Override
+    public void onWorkPruned() {}
+  }
+}
@@ -130,6 +130,94 @@ exports.uploadBinary = functions.https.onRequest(async (req, res) => {
 });
 
 
+// Minimal tus 1.0 (https://tus.io/protocols/resumable-upload.html) stand-in.
+// Uploads are kept in the temporary directory of the function instance.
+exports.uploadResumable = functions.https.onRequest(async (req, res) => {
+  res.set("Tus-Resumable", "1.0.0");
+
+  const id = req.path.split("/").filter(segment => segment.length > 0).pop();
+  const filepath = id !== undefined ? path.join(os.tmpdir(), `tus-${id}`) : undefined;
+  const metapath = id !== undefined ? path.join(os.tmpdir(), `tus-${id}.json`) : undefined;
+
+  switch (req.method) {
+    case "OPTIONS":
+      res.set("Tus-Version", "1.0.0");
+      return res.status(204).end();
+    case "POST": {
+      const length = parseInt(req.get("Upload-Length"), 10);
+      if (isNaN(length)) {
+        return res.status(400).json({ message: "Upload-Length is required" }).end();
+      }
+
+      const newId = crypto.randomBytes(16).toString("hex");
+      const simulate = req.query.simulate !== undefined ? req.query.simulate : "ok";
+      fs.writeFileSync(path.join(os.tmpdir(), `tus-${newId}`), Buffer.alloc(0));
+      fs.writeFileSync(
+        path.join(os.tmpdir(), `tus-${newId}.json`),
+        JSON.stringify({ length: length, simulate: simulate, interrupted: false })
+      );
+
+      res.set("Location", `uploadResumable/${newId}`);
+      return res.status(201).end();
+    }
+    case "HEAD": {
+      if (id === undefined || !fs.existsSync(metapath)) {
+        return res.status(404).end();
+      }
+
+      const meta = JSON.parse(fs.readFileSync(metapath));
+      res.set("Upload-Offset", `${fs.statSync(filepath).size}`);
+      res.set("Upload-Length", `${meta.length}`);
+      res.set("Cache-Control", "no-store");
+      return res.status(200).end();
+    }
+    case "PATCH": {
+      if (id === undefined || !fs.existsSync(metapath)) {
+        return res.status(404).end();
+      }
+
+      const meta = JSON.parse(fs.readFileSync(metapath));
+      const offset = fs.statSync(filepath).size;
+      if (parseInt(req.get("Upload-Offset"), 10) !== offset) {
+        return res.status(409).end();
+      }
+
+      const body = req.rawBody || Buffer.alloc(0);
+
+      // Keep half of the first chunk and fail, the client has to resume.
+      if (meta.simulate === "interrupt" && !meta.interrupted) {
+        fs.appendFileSync(filepath, body.slice(0, Math.floor(body.length / 2)));
+        meta.interrupted = true;
+        fs.writeFileSync(metapath, JSON.stringify(meta));
+        return res.status(500).end();
+      }
+
+      fs.appendFileSync(filepath, body);
+      const newOffset = fs.statSync(filepath).size;
+      res.set("Upload-Offset", `${newOffset}`);
+
+      if (newOffset < meta.length) {
+        return res.status(204).end();
+      }
+
+      const md5hash = md5File.sync(filepath);
+      fs.unlinkSync(filepath);
+      fs.unlinkSync(metapath);
+
+      return res.status(200).json({
+        message: "Successfully uploaded",
+        length: newOffset,
+        md5: md5hash,
+        headers: req.headers,
+        method: req.method,
+      }).end();
+    }
+    default:
+      return res.status(405).json({
+        errorMessage: "Method is not allowed"
+      });
+  }
+});
 
 function statusCodeForSimulation(simulation) {
   switch (simulation) {
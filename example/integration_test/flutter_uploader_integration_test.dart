@@ -258,6 +258,57 @@ void main() {
       expect(res.status, UploadTaskStatus.failed);
     });
   });
+
+  group('resumable uploads', () {
+    final url = baseUrl.replace(path: baseUrl.path + 'Resumable');
+
+    testWidgets('single file', (WidgetTester tester) async {
+      final taskId = await uploader.enqueue(
+        ResumableUpload(url: url.toString(), path: await _tmpFile(4096)),
+      );
+
+      expect(taskId, isNotNull);
+
+      final res = await uploader.result.firstWhere(isCompleted(taskId));
+      final json = jsonDecode(res.response!);
+
+      expect(json['message'], 'Successfully uploaded');
+      expect(json['length'], 4096);
+      expect(res.statusCode, 200);
+    });
+
+    testWidgets('multiple chunks', (WidgetTester tester) async {
+      final taskId = await uploader.enqueue(
+        ResumableUpload(
+          url: url.toString(),
+          path: await _tmpFile(4096),
+          chunkSize: 1024,
+        ),
+      );
+
+      final res = await uploader.result.firstWhere(isCompleted(taskId));
+      final json = jsonDecode(res.response!);
+
+      expect(json['length'], 4096);
+    });
+
+    testWidgets('resumes after an interruption', (WidgetTester tester) async {
+      final taskId = await uploader.enqueue(
+        ResumableUpload(
+          url: url.replace(queryParameters: {
+            'simulate': 'interrupt',
+          }).toString(),
+          path: await _tmpFile(4096),
+        ),
+      );
+
+      final res = await uploader.result.firstWhere(isCompleted(taskId));
+      final json = jsonDecode(res.response!);
+
+      expect(json['length'], 4096);
+      expect(res.statusCode, 200);
+    });
+  }, skip: !Platform.isAndroid);
 }
 
 /// Create a temporary file, with random contents.
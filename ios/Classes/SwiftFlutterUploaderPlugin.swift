@@ -75,10 +75,21 @@ public class SwiftFlutterUploaderPlugin: NSObject, FlutterPlugin {
             enqueueMethodCall(call, result)
         case "enqueueBinary":
             enqueueBinaryMethodCall(call, result)
+        case "enqueueAll":
+            enqueueAllMethodCall(call, result)
         case "cancel":
             cancelMethodCall(call, result)
         case "cancelAll":
             cancelAllMethodCall(call, result)
+        case "setProgressBatching":
+            // Progress is delivered one by one on iOS.
+            result(nil)
+        case "setBandwidthLimit":
+            // URLSession does not support limiting the upload speed.
+            result(nil)
+        case "getEventCacheStats":
+            // Events are not cached for replay on iOS.
+            result([String: Any]())
         default:
             result(FlutterMethodNotImplemented)
         }
@@ -194,6 +205,57 @@ public class SwiftFlutterUploaderPlugin: NSObject, FlutterPlugin {
         })
     }
 
+    private func enqueueAllMethodCall(_ call: FlutterMethodCall, _ result: @escaping FlutterResult) {
+        guard let args = call.arguments as? [String: Any?],
+              let uploads = args["uploads"] as? [[String: Any?]] else {
+            result(FlutterError(code: "invalid_call", message: "Invalid call parameters passed", details: nil))
+            return
+        }
+
+        // Reject unknown types before anything is enqueued.
+        for upload in uploads {
+            let type = upload["type"] as? String ?? ""
+            if type != "enqueue" && type != "enqueueBinary" {
+                result(FlutterError(code: "invalid_type", message: "Unknown upload type: \(type)", details: nil))
+                return
+            }
+        }
+
+        var taskIds: [String] = []
+
+        func enqueueNext(_ index: Int) {
+            if index >= uploads.count {
+                result(taskIds)
+                return
+            }
+
+            let upload = uploads[index]
+            let uploadCall = FlutterMethodCall(methodName: upload["type"] as? String ?? "", arguments: upload)
+            let next: FlutterResult = { value in
+                if let taskId = value as? String {
+                    taskIds.append(taskId)
+                    enqueueNext(index + 1)
+                } else if let error = value as? FlutterError {
+                    // The uploads before this one are running already, report their ids.
+                    result(FlutterError(code: error.code, message: error.message, details: taskIds))
+                } else {
+                    result(value)
+                }
+            }
+
+            switch uploadCall.method {
+            case "enqueue":
+                enqueueMethodCall(uploadCall, next)
+            case "enqueueBinary":
+                enqueueBinaryMethodCall(uploadCall, next)
+            default:
+                result(FlutterError(code: "invalid_type", message: "Unknown upload type: \(uploadCall.method)", details: taskIds))
+            }
+        }
+
+        enqueueNext(0)
+    }
+
     private func cancelMethodCall(_ call: FlutterMethodCall, _ result: @escaping FlutterResult) {
         if let args = call.arguments as? [String: Any?],
            let taskId = args[Key.taskId] as? String {
@@ -7,14 +7,28 @@ import 'package:equatable/equatable.dart';
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 
+part 'src/event_cache_stats.dart';
+
 part 'src/file_item.dart';
 
 part 'src/flutter_uploader.dart';
 
+part 'src/progress_throttle.dart';
+
+part 'src/retry_policy.dart';
+
 part 'src/upload.dart';
 
+part 'src/upload_compression.dart';
+
 part 'src/upload_method.dart';
 
+part 'src/upload_preflight.dart';
+
+part 'src/upload_priority.dart';
+
+part 'src/upload_task_metrics.dart';
+
 part 'src/upload_task_progress.dart';
 
 part 'src/upload_task_response.dart';
@@ -0,0 +1,32 @@
+part of flutter_uploader;
+
+/// The footprint of the events cached for one stream, which are replayed to
+/// new listeners (only used on Android).
+class EventCacheStats extends Equatable {
+  /// Number of cached events.
+  final int entries;
+
+  /// Rough estimate of the heap used by the cached events, in bytes.
+  final int estimatedBytes;
+
+  /// Default constructor.
+  const EventCacheStats({
+    required this.entries,
+    required this.estimatedBytes,
+  });
+
+  /// Reads the stats reported by the platform.
+  factory EventCacheStats.fromJson(Map<dynamic, dynamic> json) {
+    return EventCacheStats(
+      entries: json['entries'] as int? ?? 0,
+      estimatedBytes: json['estimatedBytes'] as int? ?? 0,
+    );
+  }
+
+  @override
+  List<Object?> get props => [entries, estimatedBytes];
+
+  @override
+  String toString() =>
+      'EventCacheStats(entries: $entries, estimatedBytes: $estimatedBytes)';
+}
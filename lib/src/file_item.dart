@@ -4,6 +4,12 @@ part of flutter_uploader;
 class FileItem {
   /// Path to the local file. It is the developers reponsibility to ensure
   /// the path can be accessed.
+  ///
+  /// On Android, this may also be a `content://` URI, e.g. from an image
+  /// picker, which is streamed from its content provider without copying it.
+  /// The app must still be allowed to read it when the upload runs, so take a
+  /// persistable permission for it first (`takePersistableUriPermission`).
+  /// Otherwise the upload fails with the error code `permission_denied`.
   final String path;
 
   /// The field name will be used during HTTP multipart/form-data uploads.
@@ -7,9 +7,11 @@ class FlutterUploader {
   final MethodChannel _platform;
   final EventChannel _progressChannel;
   final EventChannel _resultChannel;
+  final EventChannel _metricsChannel;
 
   Stream<UploadTaskProgress>? _progressStream;
   Stream<UploadTaskResponse>? _resultStream;
+  Stream<UploadTaskMetrics>? _metricsStream;
 
   static FlutterUploader? _instance;
 
@@ -27,10 +29,13 @@ class FlutterUploader {
   FlutterUploader.private(
     MethodChannel channel,
     EventChannel progressChannel,
-    EventChannel resultChannel,
-  )   : _platform = channel,
+    EventChannel resultChannel, [
+    EventChannel metricsChannel =
+        const EventChannel('flutter_uploader/events/metrics'),
+  ])  : _platform = channel,
         _progressChannel = progressChannel,
-        _resultChannel = resultChannel;
+        _resultChannel = resultChannel,
+        _metricsChannel = metricsChannel;
 
   /// This call is required to receive background notifications.
   /// [backgroundHandler] is a top level function which will be invoked by Android
@@ -46,6 +51,8 @@ class FlutterUploader {
   Stream<UploadTaskProgress> get progress {
     return _progressStream ??= _progressChannel
         .receiveBroadcastStream()
+        // Batched updates arrive as a list, see [setProgressBatching].
+        .expand<dynamic>((event) => event is List ? event : [event])
         .map<Map<String, dynamic>>((event) => Map<String, dynamic>.from(event))
         .map(_parseProgress);
   }
@@ -54,11 +61,19 @@ class FlutterUploader {
     String id = map['taskId'];
     int status = map['status'];
     int? uploadProgress = map['progress'];
+    // The platform sends -1 for values which are not known.
+    int? known(String key) => (map[key] ?? -1) >= 0 ? map[key] : null;
+    final timeRemaining = known('timeRemaining');
 
     return UploadTaskProgress(
       id,
       uploadProgress,
       UploadTaskStatus.from(status),
+      bytesSent: known('bytesSent'),
+      totalBytes: known('totalBytes'),
+      bytesPerSecond: known('bytesPerSecond'),
+      timeRemaining:
+          timeRemaining != null ? Duration(milliseconds: timeRemaining) : null,
     );
   }
 
@@ -80,6 +95,9 @@ class FlutterUploader {
   UploadTaskResponse _parseResult(Map<String, dynamic> map) {
     String id = map['taskId'];
     String? message = map['message'];
+    String? responseFile = map['responseFile'];
+    bool? responseTruncated = map['responseTruncated'];
+    bool? deduplicated = map['deduplicated'];
     int? status = map['status'];
     int? statusCode = map['statusCode'];
     final headers = map['headers'] != null
@@ -92,38 +110,227 @@ class FlutterUploader {
       statusCode: statusCode,
       headers: headers,
       response: message,
+      responseFile: responseFile,
+      responseTruncated: responseTruncated ?? false,
+      deduplicated: deduplicated ?? false,
+      metrics: map['metrics'] != null
+          ? _parseMetrics(id, Map<String, dynamic>.from(map['metrics']))
+          : null,
+    );
+  }
+
+  /// Stream to listen on network timings of finished uploads
+  /// (only used on Android).
+  ///
+  /// The same metrics are available in [UploadTaskResponse.metrics].
+  Stream<UploadTaskMetrics> get metrics {
+    return _metricsStream ??= _metricsChannel
+        .receiveBroadcastStream()
+        .map<Map<String, dynamic>>((event) => Map<String, dynamic>.from(event))
+        .map((map) => _parseMetrics(map['taskId'], map));
+  }
+
+  UploadTaskMetrics _parseMetrics(String id, Map<String, dynamic> map) {
+    Duration millis(String key) => Duration(milliseconds: map[key] ?? 0);
+
+    return UploadTaskMetrics(
+      taskId: id,
+      dns: millis('dns'),
+      connect: millis('connect'),
+      tls: millis('tls'),
+      requestWrite: millis('requestWrite'),
+      timeToFirstByte: millis('timeToFirstByte'),
+      responseRead: millis('responseRead'),
+      total: millis('total'),
+      bytesSent: map['bytesSent'] ?? 0,
+      bytesReceived: map['bytesReceived'] ?? 0,
+      requests: map['requests'] ?? 0,
+      connectionsReused: map['connectionsReused'] ?? 0,
+      engineStart: millis('engineStart'),
     );
   }
 
   /// Enqueues a new upload task described by [upload].
   ///
-  /// See [MultipartFormDataUpload], [RawUpload] for available configuration.
+  /// See [MultipartFormDataUpload], [RawUpload], [ResumableUpload],
+  /// [ParallelUpload] for available configuration.
   Future<String> enqueue(Upload upload) async {
+    return (await _platform.invokeMethod<String>(
+      _enqueueMethod(upload),
+      _enqueueArguments(upload),
+    ))!;
+  }
+
+  /// Enqueues all [uploads] at once and returns their task ids, in the same
+  /// order as [uploads].
+  ///
+  /// This is considerably faster than calling [enqueue] for each upload, as
+  /// the platform stores all tasks in a single transaction.
+  ///
+  /// An invalid upload throws a [PlatformException]. On Android, none of the
+  /// [uploads] is enqueued then. On iOS, the uploads before the invalid one
+  /// are enqueued already and [PlatformException.details] holds their task
+  /// ids.
+  Future<List<String>> enqueueAll(List<Upload> uploads) async {
+    if (uploads.isEmpty) {
+      return [];
+    }
+
+    return (await _platform.invokeListMethod<String>('enqueueAll', {
+      'uploads': uploads
+          .map((upload) => {
+                'type': _enqueueMethod(upload),
+                ..._enqueueArguments(upload),
+              })
+          .toList(),
+    }))!;
+  }
+
+  String _enqueueMethod(Upload upload) {
+    if (upload is MultipartFormDataUpload) return 'enqueue';
+    if (upload is RawUpload) return 'enqueueBinary';
+    if (upload is ResumableUpload) return 'enqueueResumable';
+    if (upload is ParallelUpload) return 'enqueueParallel';
+
+    throw 'Invalid upload type';
+  }
+
+  Map<String, dynamic> _enqueueArguments(Upload upload) {
     if (upload is MultipartFormDataUpload) {
-      return (await _platform.invokeMethod<String>('enqueue', {
+      return {
         'url': upload.url,
         'method': describeEnum(upload.method),
         'files': (upload.files ?? []).map((e) => e.toJson()).toList(),
         'headers': upload.headers,
         'data': upload.data,
+        'compression': _describeCompression(upload.compression),
+        'preflight': _describePreflight(upload.preflight),
+        'deduplicate': upload.deduplicate,
+        'deduplicationScope': upload.deduplicationScope,
         'tag': upload.tag,
         'allowCellular': upload.allowCellular,
-      }))!;
+        'progressThrottle': upload.progressThrottle?.toJson(),
+        'priority': describeEnum(upload.priority),
+        'bandwidthLimit': upload.bandwidthLimit,
+        'retryPolicy': upload.retryPolicy?.toJson(),
+      };
     }
+
     if (upload is RawUpload) {
-      return (await _platform.invokeMethod<String>('enqueueBinary', {
+      return {
         'url': upload.url,
         'method': describeEnum(upload.method),
         'path': upload.path,
+        'compression': _describeCompression(upload.compression),
+        'preflight': _describePreflight(upload.preflight),
+        'deduplicate': upload.deduplicate,
+        'deduplicationScope': upload.deduplicationScope,
+        'headers': upload.headers,
+        'tag': upload.tag,
+        'allowCellular': upload.allowCellular,
+        'progressThrottle': upload.progressThrottle?.toJson(),
+        'priority': describeEnum(upload.priority),
+        'bandwidthLimit': upload.bandwidthLimit,
+        'retryPolicy': upload.retryPolicy?.toJson(),
+      };
+    }
+
+    if (upload is ResumableUpload) {
+      return {
+        'url': upload.url,
+        'path': upload.path,
+        'chunkSize': upload.chunkSize,
+        'headers': upload.headers,
+        'tag': upload.tag,
+        'allowCellular': upload.allowCellular,
+        'progressThrottle': upload.progressThrottle?.toJson(),
+        'priority': describeEnum(upload.priority),
+        'bandwidthLimit': upload.bandwidthLimit,
+        'retryPolicy': upload.retryPolicy?.toJson(),
+      };
+    }
+
+    if (upload is ParallelUpload) {
+      return {
+        'url': upload.url,
+        'completeUrl': upload.completeUrl,
+        'path': upload.path,
+        'partSize': upload.partSize,
+        'maxPartsInFlight': upload.maxPartsInFlight,
         'headers': upload.headers,
         'tag': upload.tag,
         'allowCellular': upload.allowCellular,
-      }))!;
+        'progressThrottle': upload.progressThrottle?.toJson(),
+        'priority': describeEnum(upload.priority),
+        'bandwidthLimit': upload.bandwidthLimit,
+        'retryPolicy': upload.retryPolicy?.toJson(),
+      };
     }
 
     throw 'Invalid upload type';
   }
 
+  String? _describeCompression(UploadCompression? compression) =>
+      compression != null ? describeEnum(compression) : null;
+
+  String? _describePreflight(UploadPreflight? preflight) =>
+      preflight != null ? describeEnum(preflight) : null;
+
+  /// Delivers progress updates in batches instead of one by one.
+  ///
+  /// The latest progress of every task which changed is sent at most once per
+  /// [interval], which reduces the number of platform messages when many
+  /// uploads run at the same time. The final progress of a task is sent right
+  /// away, together with all pending updates. Passing `null` switches back to
+  /// delivering every update immediately, which is the default (only used on
+  /// Android).
+  Future<void> setProgressBatching(Duration? interval) async {
+    await _platform.invokeMethod<void>('setProgressBatching', {
+      'interval': interval?.inMilliseconds,
+    });
+  }
+
+  /// Limits the combined upload speed of all uploads to [bytesPerSecond].
+  ///
+  /// While the app is in the foreground, uploads are additionally limited to
+  /// [foregroundBytesPerSecond], which leaves bandwidth for the app itself.
+  /// `null` removes a limit. The limits apply to running uploads immediately
+  /// and replace the defaults configured in the `AndroidManifest.xml` until
+  /// the app process ends (only used on Android).
+  Future<void> setBandwidthLimit({
+    int? bytesPerSecond,
+    int? foregroundBytesPerSecond,
+  }) async {
+    await _platform.invokeMethod<void>('setBandwidthLimit', {
+      'bytesPerSecond': bytesPerSecond,
+      'foregroundBytesPerSecond': foregroundBytesPerSecond,
+    });
+  }
+
+  /// Changes the [Upload.bandwidthLimit] of the upload task [taskId] while
+  /// it is running. `null` removes the limit (only used on Android).
+  Future<void> setTaskBandwidthLimit({
+    required String taskId,
+    int? bytesPerSecond,
+  }) async {
+    await _platform.invokeMethod<void>('setBandwidthLimit', {
+      'taskId': taskId,
+      'bytesPerSecond': bytesPerSecond,
+    });
+  }
+
+  /// Returns the number and estimated size of the events which are cached to
+  /// be replayed to new listeners, by the name of their stream: `progress`,
+  /// `result` and `metrics` (only used on Android).
+  Future<Map<String, EventCacheStats>> getEventCacheStats() async {
+    final stats = await _platform
+        .invokeMapMethod<String, Map<dynamic, dynamic>>('getEventCacheStats');
+
+    return (stats ?? const {}).map(
+      (name, json) => MapEntry(name, EventCacheStats.fromJson(json)),
+    );
+  }
+
   /// Cancel a given upload task
   ///
   /// **parameters:**
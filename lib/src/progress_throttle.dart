@@ -0,0 +1,31 @@
+part of flutter_uploader;
+
+/// Limits how often progress updates for an upload are reported.
+///
+/// An update is only reported once all configured minimums are reached. The
+/// final update (100%) is always reported. Values which are not set fall back
+/// to the global configuration of the platform (only used on Android).
+class ProgressThrottle {
+  /// Minimum number of bytes sent between two progress updates.
+  final int? minBytes;
+
+  /// Minimum change in percent between two progress updates.
+  final int? minPercent;
+
+  /// Minimum time between two progress updates.
+  final Duration? minInterval;
+
+  /// Default constructor.
+  const ProgressThrottle({
+    this.minBytes,
+    this.minPercent,
+    this.minInterval,
+  });
+
+  /// JSON representation for sharing with the underlying platform.
+  Map<String, dynamic> toJson() => {
+        'minBytes': minBytes,
+        'minPercent': minPercent,
+        'minInterval': minInterval?.inMilliseconds,
+      };
+}
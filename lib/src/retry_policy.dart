@@ -0,0 +1,39 @@
+part of flutter_uploader;
+
+/// Retries uploads which failed for a transient reason.
+///
+/// Timeouts, lost connections, unknown hosts and the HTTP status codes 408,
+/// 429 and 5xx are considered transient, other failures like 4xx responses or
+/// missing files fail the upload right away. Retries are scheduled by the
+/// exponential backoff of WorkManager, which doubles the delay from
+/// [initialDelay] after every attempt, up to five hours (only used on Android).
+class RetryPolicy {
+  /// Maximum number of retries after the first attempt.
+  final int maxRetries;
+
+  /// Delay before the first retry. WorkManager does not wait less than ten
+  /// seconds.
+  final Duration? initialDelay;
+
+  /// HTTP status codes which are retried instead of 408, 429 and 5xx.
+  final List<int>? retryStatusCodes;
+
+  /// Waits at least as long as the `Retry-After` header of a response asks.
+  final bool respectRetryAfter;
+
+  /// Default constructor.
+  const RetryPolicy({
+    required this.maxRetries,
+    this.initialDelay,
+    this.retryStatusCodes,
+    this.respectRetryAfter = true,
+  });
+
+  /// JSON representation for sharing with the underlying platform.
+  Map<String, dynamic> toJson() => {
+        'maxRetries': maxRetries,
+        'initialDelay': initialDelay?.inMilliseconds,
+        'retryStatusCodes': retryStatusCodes,
+        'respectRetryAfter': respectRetryAfter,
+      };
+}
@@ -10,6 +10,10 @@ abstract class Upload {
     this.headers = const <String, String>{},
     this.tag,
     this.allowCellular = true,
+    this.progressThrottle,
+    this.priority = UploadPriority.normal,
+    this.bandwidthLimit,
+    this.retryPolicy,
   });
 
   /// Upload link
@@ -27,6 +31,23 @@ abstract class Upload {
   /// If uploads are allowed to use cellular connections
   /// Defaults to true. If false, uploads will only use wifi connections
   final bool allowCellular;
+
+  /// Limits how often progress updates are reported for this upload.
+  /// Uses the global configuration if not set (only used on Android).
+  final ProgressThrottle? progressThrottle;
+
+  /// Decides which waiting uploads start first (only used on Android).
+  final UploadPriority priority;
+
+  /// Limits the upload speed of this upload, in bytes per second. Applies
+  /// in addition to [FlutterUploader.setBandwidthLimit] (only used on
+  /// Android).
+  final int? bandwidthLimit;
+
+  /// Retries the upload if it fails for a transient reason. Without a policy,
+  /// the default configured in the `AndroidManifest.xml` applies (only used
+  /// on Android).
+  final RetryPolicy? retryPolicy;
 }
 
 /// Standard RFC 2388 multipart/form-data upload.
@@ -41,7 +62,15 @@ class MultipartFormDataUpload extends Upload {
     String? tag,
     this.files,
     this.data,
+    this.compression,
+    this.preflight,
+    this.deduplicate = false,
+    this.deduplicationScope,
     bool allowCellular = true,
+    ProgressThrottle? progressThrottle,
+    UploadPriority priority = UploadPriority.normal,
+    int? bandwidthLimit,
+    RetryPolicy? retryPolicy,
   })  : assert(files != null || data != null),
         super(
           url: url,
@@ -49,6 +78,10 @@ class MultipartFormDataUpload extends Upload {
           headers: headers,
           tag: tag,
           allowCellular: allowCellular,
+          progressThrottle: progressThrottle,
+          priority: priority,
+          bandwidthLimit: bandwidthLimit,
+          retryPolicy: retryPolicy,
         ) {
     // Need to specify either files or data.
     assert(files!.isNotEmpty || data!.isNotEmpty);
@@ -59,6 +92,26 @@ class MultipartFormDataUpload extends Upload {
 
   /// additional data. Each entry will be sent as a form field.
   final Map<String, String>? data;
+
+  /// Compresses the request body while it is being uploaded and sets the
+  /// `Content-Encoding` header accordingly. The server needs to support the
+  /// chosen encoding (only used on Android).
+  final UploadCompression? compression;
+
+  /// Lets the server reject the upload before the body is sent
+  /// (only used on Android).
+  final UploadPreflight? preflight;
+
+  /// Skips the upload if the same files and form fields were already
+  /// uploaded successfully to the same URL within the same
+  /// [deduplicationScope]. The result of a skipped upload has
+  /// [UploadTaskResponse.deduplicated] set (only used on Android).
+  final bool deduplicate;
+
+  /// Keeps uploads of different scopes apart when deduplicating, e.g. the
+  /// id of the user they are uploaded for. Headers are not compared, so a
+  /// refreshed `Authorization` token still matches (only used on Android).
+  final String? deduplicationScope;
 }
 
 /// Also called a binary upload, this represents a upload without any form-encoding applies.
@@ -70,15 +123,135 @@ class RawUpload extends Upload {
     Map<String, String>? headers,
     String? tag,
     this.path,
+    this.compression,
+    this.preflight,
+    this.deduplicate = false,
+    this.deduplicationScope,
     bool allowCellular = true,
+    ProgressThrottle? progressThrottle,
+    UploadPriority priority = UploadPriority.normal,
+    int? bandwidthLimit,
+    RetryPolicy? retryPolicy,
   }) : super(
           url: url,
           method: method,
           headers: headers,
           tag: tag,
           allowCellular: allowCellular,
+          progressThrottle: progressThrottle,
+          priority: priority,
+          bandwidthLimit: bandwidthLimit,
+          retryPolicy: retryPolicy,
         );
 
-  /// single file to upload
+  /// single file to upload, or a `content://` URI on Android. See
+  /// [FileItem.path] for the permission such a URI needs.
   final String? path;
+
+  /// Compresses the request body while it is being uploaded and sets the
+  /// `Content-Encoding` header accordingly. The server needs to support the
+  /// chosen encoding (only used on Android).
+  final UploadCompression? compression;
+
+  /// Lets the server reject the upload before the body is sent
+  /// (only used on Android).
+  final UploadPreflight? preflight;
+
+  /// Skips the upload if the same file content was already uploaded
+  /// successfully to the same URL within the same [deduplicationScope].
+  /// Files are identified by their SHA-256 hash. The result of a skipped
+  /// upload has [UploadTaskResponse.deduplicated] set (only used on Android).
+  final bool deduplicate;
+
+  /// Keeps uploads of different scopes apart when deduplicating, e.g. the
+  /// id of the user they are uploaded for. Headers are not compared, so a
+  /// refreshed `Authorization` token still matches (only used on Android).
+  final String? deduplicationScope;
+}
+
+/// A binary upload using the resumable tus 1.0 protocol
+/// (https://tus.io/protocols/resumable-upload.html).
+///
+/// The upload is created with a POST request to [url]. Interrupted uploads
+/// continue from the last byte acknowledged by the server instead of starting
+/// over (only available on Android).
+class ResumableUpload extends Upload {
+  /// Default constructor.
+  const ResumableUpload({
+    required String url,
+    Map<String, String>? headers,
+    String? tag,
+    required this.path,
+    this.chunkSize,
+    bool allowCellular = true,
+    ProgressThrottle? progressThrottle,
+    UploadPriority priority = UploadPriority.normal,
+    int? bandwidthLimit,
+    RetryPolicy? retryPolicy,
+  }) : super(
+          url: url,
+          method: UploadMethod.PATCH,
+          headers: headers,
+          tag: tag,
+          allowCellular: allowCellular,
+          progressThrottle: progressThrottle,
+          priority: priority,
+          bandwidthLimit: bandwidthLimit,
+          retryPolicy: retryPolicy,
+        );
+
+  /// single file to upload
+  final String path;
+
+  /// Maximum number of bytes sent per PATCH request. The whole file is sent
+  /// in a single request if not set.
+  final int? chunkSize;
+}
+
+/// A binary upload which splits a single file into parts that are uploaded
+/// in parallel, modeled on S3 multipart uploads (only available on Android).
+///
+/// Every part is sent as `PUT url?partNumber=N` with a `Content-Range`
+/// header, and the server has to respond with an `ETag` header. Once all
+/// parts are uploaded, a POST request with the JSON body
+/// `{"parts": [{"partNumber": 1, "etag": "..."}]}` is sent to [completeUrl].
+/// Its response is the result of the upload.
+class ParallelUpload extends Upload {
+  /// Default constructor.
+  const ParallelUpload({
+    required String url,
+    required this.completeUrl,
+    required this.path,
+    Map<String, String>? headers,
+    String? tag,
+    this.partSize,
+    this.maxPartsInFlight,
+    bool allowCellular = true,
+    ProgressThrottle? progressThrottle,
+    UploadPriority priority = UploadPriority.normal,
+    int? bandwidthLimit,
+    RetryPolicy? retryPolicy,
+  }) : super(
+          url: url,
+          method: UploadMethod.PUT,
+          headers: headers,
+          tag: tag,
+          allowCellular: allowCellular,
+          progressThrottle: progressThrottle,
+          priority: priority,
+          bandwidthLimit: bandwidthLimit,
+          retryPolicy: retryPolicy,
+        );
+
+  /// URL which receives the list of uploaded parts once all parts are done.
+  final String completeUrl;
+
+  /// single file to upload
+  final String path;
+
+  /// Size of each part in bytes. Defaults to 5 MiB.
+  final int? partSize;
+
+  /// Maximum number of parts uploaded at the same time. Defaults to 3.
+  final int? maxPartsInFlight;
 }
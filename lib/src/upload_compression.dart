@@ -0,0 +1,11 @@
+part of flutter_uploader;
+
+/// Content encodings which can be used to compress a request body while it
+/// is being uploaded (only used on Android).
+enum UploadCompression {
+  /// gzip (RFC 1952).
+  gzip,
+
+  /// zlib deflate (RFC 1950).
+  deflate,
+}
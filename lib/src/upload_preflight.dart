@@ -0,0 +1,20 @@
+part of flutter_uploader;
+
+/// Ways to let the server reject an upload, e.g. because of an expired token
+/// or an exceeded quota, before the request body is sent. A rejection is
+/// reported like any other failed upload, with the status code of the server
+/// (only used on Android).
+enum UploadPreflight {
+  /// Sends the request with `Expect: 100-continue` and only sends the body
+  /// once the server answered with `100 Continue`. The server needs to
+  /// support this, otherwise every attempt waits for the whole connection
+  /// timeout (3600 seconds by default) and then fails.
+  expectContinue,
+
+  /// Sends a `HEAD` request with the same headers first. The upload is
+  /// skipped if the server answers with a 4xx status other than 404 and 405.
+  head,
+
+  /// Like [head], but with an `OPTIONS` request.
+  options,
+}
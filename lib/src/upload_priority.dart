@@ -0,0 +1,16 @@
+part of flutter_uploader;
+
+/// Scheduling priority of an upload (only used on Android).
+///
+/// Uploads with a higher priority start before waiting uploads with a lower
+/// priority. Uploads which are already running are not interrupted.
+enum UploadPriority {
+  /// Uploads the user is actively waiting for, e.g. a profile picture.
+  interactive,
+
+  /// The default priority.
+  normal,
+
+  /// Background uploads which may wait, e.g. a photo backup.
+  bulk,
+}
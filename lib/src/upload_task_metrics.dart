@@ -0,0 +1,88 @@
+part of flutter_uploader;
+
+/// Network timings of an upload, to tell slow servers apart from slow
+/// connection setup (only used on Android).
+///
+/// Uploads which send several requests, such as [ResumableUpload] and
+/// [ParallelUpload], report the sum over all requests.
+class UploadTaskMetrics extends Equatable {
+  /// Upload Task ID.
+  final String taskId;
+
+  /// Time spent resolving host names.
+  final Duration dns;
+
+  /// Time spent opening connections, including [tls].
+  final Duration connect;
+
+  /// Time spent on TLS handshakes.
+  final Duration tls;
+
+  /// Time spent writing request bodies.
+  final Duration requestWrite;
+
+  /// Time between the end of the request and the first byte of the response.
+  final Duration timeToFirstByte;
+
+  /// Time spent reading responses.
+  final Duration responseRead;
+
+  /// Total duration of all requests.
+  final Duration total;
+
+  /// Number of request body bytes sent.
+  final int bytesSent;
+
+  /// Number of response body bytes received.
+  final int bytesReceived;
+
+  /// Number of requests sent.
+  final int requests;
+
+  /// Number of requests which reused an open connection.
+  final int connectionsReused;
+
+  /// Time it took to start the background engine which runs the handler of
+  /// [FlutterUploader.setBackgroundHandler], if it was started for this
+  /// upload. Zero if the engine was already running.
+  final Duration engineStart;
+
+  /// Default constructor.
+  const UploadTaskMetrics({
+    required this.taskId,
+    this.dns = Duration.zero,
+    this.connect = Duration.zero,
+    this.tls = Duration.zero,
+    this.requestWrite = Duration.zero,
+    this.timeToFirstByte = Duration.zero,
+    this.responseRead = Duration.zero,
+    this.total = Duration.zero,
+    this.bytesSent = 0,
+    this.bytesReceived = 0,
+    this.requests = 0,
+    this.connectionsReused = 0,
+    this.engineStart = Duration.zero,
+  });
+
+  @override
+  bool get stringify => true;
+
+  @override
+  List<Object?> get props {
+    return [
+      taskId,
+      dns,
+      connect,
+      tls,
+      requestWrite,
+      timeToFirstByte,
+      responseRead,
+      total,
+      bytesSent,
+      bytesReceived,
+      requests,
+      connectionsReused,
+      engineStart,
+    ];
+  }
+}
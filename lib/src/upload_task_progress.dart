@@ -6,22 +6,51 @@ class UploadTaskProgress extends Equatable {
   /// Upload Task ID.
   final String taskId;
 
-  /// Upload progress, range from 0 to 100 (complete).
+  /// Upload progress, range from 0 to 100 (complete). On Android, this is -1
+  /// if the size of the upload is not known, e.g. for a `content://` URI whose
+  /// provider does not report it.
   final int? progress;
 
   /// Status of the upload itself.
   final UploadTaskStatus status;
 
+  /// Number of bytes sent so far (only used on Android).
+  final int? bytesSent;
+
+  /// Total number of bytes of the upload, if known (only used on Android).
+  final int? totalBytes;
+
+  /// Moving average of the upload rate, in bytes per second. Recent seconds
+  /// weigh more than earlier ones, so the rate follows changes of the network
+  /// within a few seconds (only used on Android).
+  final int? bytesPerSecond;
+
+  /// Estimated time until the upload is sent at [bytesPerSecond]
+  /// (only used on Android).
+  final Duration? timeRemaining;
+
   /// Default constructor.
   const UploadTaskProgress(
     this.taskId,
     this.progress,
-    this.status,
-  );
+    this.status, {
+    this.bytesSent,
+    this.totalBytes,
+    this.bytesPerSecond,
+    this.timeRemaining,
+  });
 
   @override
   bool get stringify => true;
 
   @override
-  List<Object?> get props => [taskId, progress, status];
+  List<Object?> get props => [
+        taskId,
+        progress,
+        status,
+        bytesSent,
+        totalBytes,
+        bytesPerSecond,
+        timeRemaining,
+      ];
 }
@@ -10,6 +10,26 @@ class UploadTaskResponse extends Equatable {
   /// No automatic conversion (e.g. JSON / XML) will be done.
   final String? response;
 
+  /// Large responses are not kept in memory. Instead, they are written to
+  /// this file and [response] is `null` (only used on Android).
+  ///
+  /// The file is placed in the cache directory of the app. It is kept while
+  /// the result is replayed to new listeners, and deleted by
+  /// [FlutterUploader.clearUploads]. Delete it earlier once it has been
+  /// processed to free the space.
+  final String? responseFile;
+
+  /// Whether the response was cut off, because it exceeded the configured
+  /// maximum response size (only used on Android).
+  final bool responseTruncated;
+
+  /// Whether the upload was skipped, because the same content had already
+  /// been uploaded to the same destination (only used on Android).
+  ///
+  /// See [RawUpload.deduplicate]. Skipped uploads have no [response] and no
+  /// [headers].
+  final bool deduplicated;
+
   /// The status code of the finished upload.
   final int? statusCode;
 
@@ -19,13 +39,20 @@ class UploadTaskResponse extends Equatable {
   /// Response headers.
   final Map<String, dynamic>? headers;
 
+  /// Network timings of the upload (only used on Android).
+  final UploadTaskMetrics? metrics;
+
   /// Default constructor.
   const UploadTaskResponse({
     required this.taskId,
     this.response,
+    this.responseFile,
+    this.responseTruncated = false,
+    this.deduplicated = false,
     this.statusCode,
     this.status,
     this.headers,
+    this.metrics,
   });
 
   @override
@@ -36,9 +63,13 @@ class UploadTaskResponse extends Equatable {
     return [
       taskId,
       response,
+      responseFile,
+      responseTruncated,
+      deduplicated,
       statusCode,
       status,
       headers,
+      metrics,
     ];
   }
 }
@@ -104,6 +104,65 @@ void main() {
 
         expect(await uploader.enqueue(sampleUpload), 'TASK123');
       });
+      test('passes the progress throttle', () async {
+        methodChannel.setMockMethodCallHandler((call) async {
+          expect(call.arguments['progressThrottle'], <String, dynamic>{
+            'minBytes': 1024,
+            'minPercent': 5,
+            'minInterval': 500,
+          });
+          return 'progressThrottle';
+        });
+        expect(
+          await uploader.enqueue(MultipartFormDataUpload(
+            url: 'http://www.somewhere.com',
+            files: [FileItem(path: '/path/to/file1')],
+            progressThrottle: const ProgressThrottle(
+              minBytes: 1024,
+              minPercent: 5,
+              minInterval: Duration(milliseconds: 500),
+            ),
+          )),
+          'progressThrottle',
+        );
+      });
+      test('passes the retry policy', () async {
+        methodChannel.setMockMethodCallHandler((call) async {
+          expect(call.arguments['retryPolicy'], <String, dynamic>{
+            'maxRetries': 5,
+            'initialDelay': 2000,
+            'retryStatusCodes': [503],
+            'respectRetryAfter': true,
+          });
+          return 'retryPolicy';
+        });
+        expect(
+          await uploader.enqueue(MultipartFormDataUpload(
+            url: 'http://www.somewhere.com',
+            files: [FileItem(path: '/path/to/file1')],
+            retryPolicy: const RetryPolicy(
+              maxRetries: 5,
+              initialDelay: Duration(seconds: 2),
+              retryStatusCodes: [503],
+            ),
+          )),
+          'retryPolicy',
+        );
+      });
+      test('passes the priority', () async {
+        methodChannel.setMockMethodCallHandler((call) async {
+          expect(call.arguments['priority'], 'interactive');
+          return 'priority';
+        });
+        expect(
+          await uploader.enqueue(MultipartFormDataUpload(
+            url: 'http://www.somewhere.com',
+            files: [FileItem(path: '/path/to/file1')],
+            priority: UploadPriority.interactive,
+          )),
+          'priority',
+        );
+      });
       test('passes the arguments correctly', () async {
         mockResponse = 'TASK123';
 
@@ -129,8 +188,16 @@ void main() {
             'data': {
               'data1': 'value1',
             },
+            'compression': null,
+            'preflight': null,
+            'deduplicate': false,
+            'deduplicationScope': null,
             'tag': 'tag1',
             'allowCellular': true,
+            'progressThrottle': null,
+            'priority': 'normal',
+            'bandwidthLimit': null,
+            'retryPolicy': null,
           }),
         ]);
       });
@@ -151,6 +218,67 @@ void main() {
         expect(await uploader.enqueue(sampleUpload), 'TASK123');
       });
 
+      test('passes deduplicate', () async {
+        methodChannel.setMockMethodCallHandler((call) async {
+          expect(call.arguments['deduplicate'], isTrue);
+          return 'deduplicate';
+        });
+        expect(
+          await uploader.enqueue(const RawUpload(
+            url: 'http://www.somewhere.com',
+            path: '/path/to/file1',
+            deduplicate: true,
+          )),
+          'deduplicate',
+        );
+      });
+
+      test('passes the deduplication scope', () async {
+        methodChannel.setMockMethodCallHandler((call) async {
+          expect(call.arguments['deduplicationScope'], 'user-42');
+          return 'deduplicationScope';
+        });
+        expect(
+          await uploader.enqueue(const RawUpload(
+            url: 'http://www.somewhere.com',
+            path: '/path/to/file1',
+            deduplicate: true,
+            deduplicationScope: 'user-42',
+          )),
+          'deduplicationScope',
+        );
+      });
+
+      test('passes the compression', () async {
+        methodChannel.setMockMethodCallHandler((call) async {
+          expect(call.arguments['compression'], 'gzip');
+          return 'compression';
+        });
+        expect(
+          await uploader.enqueue(const RawUpload(
+            url: 'http://www.somewhere.com',
+            path: '/path/to/file1',
+            compression: UploadCompression.gzip,
+          )),
+          'compression',
+        );
+      });
+
+      test('passes the preflight', () async {
+        methodChannel.setMockMethodCallHandler((call) async {
+          expect(call.arguments['preflight'], 'expectContinue');
+          return 'preflight';
+        });
+        expect(
+          await uploader.enqueue(const RawUpload(
+            url: 'http://www.somewhere.com',
+            path: '/path/to/file1',
+            preflight: UploadPreflight.expectContinue,
+          )),
+          'preflight',
+        );
+      });
+
       test('passes the arguments correctly', () async {
         mockResponse = 'TASK123';
 
@@ -161,11 +289,178 @@ void main() {
             'url': 'http://www.somewhere.com',
             'method': 'PATCH',
             'path': '/path/to/file1',
+            'compression': null,
+            'preflight': null,
+            'deduplicate': false,
+            'deduplicationScope': null,
+            'headers': {
+              'header1': 'value1',
+            },
+            'tag': 'tag1',
+            'allowCellular': true,
+            'progressThrottle': null,
+            'priority': 'normal',
+            'bandwidthLimit': null,
+            'retryPolicy': null,
+          }),
+        ]);
+      });
+    });
+    group('enqueueResumable', () {
+      const sampleUpload = ResumableUpload(
+        url: 'http://www.somewhere.com',
+        path: '/path/to/file1',
+        chunkSize: 1024,
+        headers: {'header1': 'value1'},
+        tag: 'tag1',
+      );
+
+      test('returns the task id', () async {
+        mockResponse = 'TASK123';
+
+        expect(await uploader.enqueue(sampleUpload), 'TASK123');
+      });
+
+      test('passes the arguments correctly', () async {
+        mockResponse = 'TASK123';
+
+        await uploader.enqueue(sampleUpload);
+
+        expect(log, <Matcher>[
+          isMethodCall('enqueueResumable', arguments: <String, dynamic>{
+            'url': 'http://www.somewhere.com',
+            'path': '/path/to/file1',
+            'chunkSize': 1024,
             'headers': {
               'header1': 'value1',
             },
             'tag': 'tag1',
             'allowCellular': true,
+            'progressThrottle': null,
+            'priority': 'normal',
+            'bandwidthLimit': null,
+            'retryPolicy': null,
+          }),
+        ]);
+      });
+    });
+    group('enqueueParallel', () {
+      const sampleUpload = ParallelUpload(
+        url: 'http://www.somewhere.com/part',
+        completeUrl: 'http://www.somewhere.com/complete',
+        path: '/path/to/file1',
+        partSize: 1024,
+        maxPartsInFlight: 4,
+        headers: {'header1': 'value1'},
+        tag: 'tag1',
+      );
+
+      test('returns the task id', () async {
+        mockResponse = 'TASK123';
+
+        expect(await uploader.enqueue(sampleUpload), 'TASK123');
+      });
+
+      test('passes the arguments correctly', () async {
+        mockResponse = 'TASK123';
+
+        await uploader.enqueue(sampleUpload);
+
+        expect(log, <Matcher>[
+          isMethodCall('enqueueParallel', arguments: <String, dynamic>{
+            'url': 'http://www.somewhere.com/part',
+            'completeUrl': 'http://www.somewhere.com/complete',
+            'path': '/path/to/file1',
+            'partSize': 1024,
+            'maxPartsInFlight': 4,
+            'headers': {
+              'header1': 'value1',
+            },
+            'tag': 'tag1',
+            'allowCellular': true,
+            'progressThrottle': null,
+            'priority': 'normal',
+            'bandwidthLimit': null,
+            'retryPolicy': null,
+          }),
+        ]);
+      });
+    });
+    group('enqueueAll', () {
+      test('returns no task ids for no uploads', () async {
+        expect(await uploader.enqueueAll([]), isEmpty);
+        expect(log, isEmpty);
+      });
+      test('returns the task ids', () async {
+        mockResponse = ['TASK1', 'TASK2'];
+
+        expect(
+          await uploader.enqueueAll([
+            const RawUpload(url: 'http://www.somewhere.com', path: '/path/1'),
+            const RawUpload(url: 'http://www.somewhere.com', path: '/path/2'),
+          ]),
+          ['TASK1', 'TASK2'],
+        );
+      });
+
+      test('passes the arguments correctly', () async {
+        mockResponse = ['TASK1', 'TASK2'];
+
+        await uploader.enqueueAll([
+          MultipartFormDataUpload(
+            url: 'http://www.somewhere.com',
+            files: [FileItem(path: '/path/to/file1')],
+          ),
+          const RawUpload(
+            url: 'http://www.somewhere.com',
+            path: '/path/to/file2',
+          ),
+        ]);
+
+        expect(log, <Matcher>[
+          isMethodCall('enqueueAll', arguments: <String, dynamic>{
+            'uploads': [
+              {
+                'type': 'enqueue',
+                'url': 'http://www.somewhere.com',
+                'method': 'POST',
+                'files': [
+                  {
+                    'path': '/path/to/file1',
+                    'fieldname': 'file',
+                  },
+                ],
+                'headers': null,
+                'data': null,
+                'compression': null,
+                'preflight': null,
+                'deduplicate': false,
+                'deduplicationScope': null,
+                'tag': null,
+                'allowCellular': true,
+                'progressThrottle': null,
+                'priority': 'normal',
+                'bandwidthLimit': null,
+                'retryPolicy': null,
+              },
+              {
+                'type': 'enqueueBinary',
+                'url': 'http://www.somewhere.com',
+                'method': 'POST',
+                'path': '/path/to/file2',
+                'compression': null,
+                'preflight': null,
+                'deduplicate': false,
+                'deduplicationScope': null,
+                'headers': null,
+                'tag': null,
+                'allowCellular': true,
+                'progressThrottle': null,
+                'priority': 'normal',
+                'bandwidthLimit': null,
+                'retryPolicy': null,
+              },
+            ],
           }),
         ]);
       });
@@ -222,6 +517,122 @@ void main() {
         expect(await c1.future, fakeTaskId);
         expect(await c2.future, fakeTaskId);
       });
+      testWidgets('expands batched updates', (WidgetTester tester) async {
+        final events = uploader.progress.take(2).toList();
+
+        progressController.add([
+          {'taskId': 'task1', 'status': 2, 'progress': 10},
+          {'taskId': 'task2', 'status': 2, 'progress': 20},
+        ]);
+
+        expect(await events, [
+          UploadTaskProgress('task1', 10, UploadTaskStatus.running),
+          UploadTaskProgress('task2', 20, UploadTaskStatus.running),
+        ]);
+      });
+      testWidgets('parses throughput', (WidgetTester tester) async {
+        final event = uploader.progress.first;
+
+        progressController.add({
+          'taskId': 'task1',
+          'status': 2,
+          'progress': 25,
+          'bytesSent': 1000,
+          'totalBytes': 4000,
+          'bytesPerSecond': 500,
+          'timeRemaining': 6000,
+        });
+
+        expect(
+          await event,
+          UploadTaskProgress(
+            'task1',
+            25,
+            UploadTaskStatus.running,
+            bytesSent: 1000,
+            totalBytes: 4000,
+            bytesPerSecond: 500,
+            timeRemaining: Duration(seconds: 6),
+          ),
+        );
+      });
+      testWidgets('treats unknown throughput as null',
+          (WidgetTester tester) async {
+        final event = uploader.progress.first;
+
+        progressController.add({
+          'taskId': 'task1',
+          'status': 2,
+          'progress': 0,
+          'bytesSent': 0,
+          'totalBytes': -1,
+          'bytesPerSecond': -1,
+          'timeRemaining': -1,
+        });
+
+        expect(
+          await event,
+          UploadTaskProgress('task1', 0, UploadTaskStatus.running,
+              bytesSent: 0),
+        );
+      });
+    });
+    group('setProgressBatching', () {
+      test('passes the interval', () async {
+        await uploader.setProgressBatching(const Duration(milliseconds: 100));
+        await uploader.setProgressBatching(null);
+
+        expect(log, <Matcher>[
+          isMethodCall('setProgressBatching', arguments: {'interval': 100}),
+          isMethodCall('setProgressBatching', arguments: {'interval': null}),
+        ]);
+      });
+    });
+    group('setBandwidthLimit', () {
+      test('passes the global limits', () async {
+        await uploader.setBandwidthLimit(
+          bytesPerSecond: 1024,
+          foregroundBytesPerSecond: 512,
+        );
+
+        expect(log, <Matcher>[
+          isMethodCall('setBandwidthLimit', arguments: {
+            'bytesPerSecond': 1024,
+            'foregroundBytesPerSecond': 512,
+          }),
+        ]);
+      });
+      test('passes the task limit', () async {
+        await uploader.setTaskBandwidthLimit(taskId: 'id', bytesPerSecond: 256);
+
+        expect(log, <Matcher>[
+          isMethodCall('setBandwidthLimit', arguments: {
+            'taskId': 'id',
+            'bytesPerSecond': 256,
+          }),
+        ]);
+      });
+    });
+    group('getEventCacheStats', () {
+      test('reads the stats of every stream', () async {
+        mockResponse = {
+          'progress': {'entries': 2, 'estimatedBytes': 640},
+          'result': {'entries': 1, 'estimatedBytes': 320},
+        };
+
+        final stats = await uploader.getEventCacheStats();
+
+        expect(log, <Matcher>[
+          isMethodCall('getEventCacheStats', arguments: null),
+        ]);
+        expect(stats, {
+          'progress': const EventCacheStats(entries: 2, estimatedBytes: 640),
+          'result': const EventCacheStats(entries: 1, estimatedBytes: 320),
+        });
+      });
+      test('is empty without a cache', () async {
+        expect(await uploader.getEventCacheStats(), isEmpty);
+      });
     });
   });
 
@@ -245,5 +656,65 @@ void main() {
       expect(await c1.future, fakeTaskId);
       expect(await c2.future, fakeTaskId);
     });
+
+    testWidgets('parses response file references', (WidgetTester tester) async {
+      const fakeTaskId = '123123';
+
+      final response = uploader.result.first;
+
+      resultController.add({
+        'taskId': fakeTaskId,
+        'message': null,
+        'responseFile': '/path/to/response',
+        'responseTruncated': true,
+        'status': 3,
+        'statusCode': 200,
+      });
+
+      final res = await response;
+      expect(res.response, isNull);
+      expect(res.responseFile, '/path/to/response');
+      expect(res.responseTruncated, isTrue);
+      expect(res.deduplicated, isFalse);
+    });
+
+    testWidgets('parses deduplicated uploads', (WidgetTester tester) async {
+      final response = uploader.result.first;
+
+      resultController.add({
+        'taskId': '123123',
+        'deduplicated': true,
+        'status': 3,
+        'statusCode': 200,
+      });
+
+      expect((await response).deduplicated, isTrue);
+    });
+
+    testWidgets('parses metrics', (WidgetTester tester) async {
+      final response = uploader.result.first;
+
+      resultController.add({
+        'taskId': '123123',
+        'status': 3,
+        'statusCode': 200,
+        'metrics': {
+          'dns': 12,
+          'timeToFirstByte': 250,
+          'bytesSent': 1024,
+          'requests': 1,
+          'engineStart': 180,
+        },
+      });
+
+      final metrics = (await response).metrics!;
+      expect(metrics.taskId, '123123');
+      expect(metrics.dns, const Duration(milliseconds: 12));
+      expect(metrics.timeToFirstByte, const Duration(milliseconds: 250));
+      expect(metrics.tls, Duration.zero);
+      expect(metrics.bytesSent, 1024);
+      expect(metrics.requests, 1);
+      expect(metrics.engineStart, const Duration(milliseconds: 180));
+    });
   });
 }